@@ -1,6 +1,7 @@
 package com.vickezi.gateway.queue.bean;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
@@ -11,17 +12,22 @@ import static com.vickezi.globals.util.Constants.USER_EMAIL_REGISTERED_EVENT_TOP
 
 @Configuration
 public class KafKaTopicManager {
+    private final int partitions;
+
+    public KafKaTopicManager(@Value("${vickezi.kafka.topics.partitions:1}") int partitions) {
+        this.partitions = partitions;
+    }
     @Bean
     public NewTopic createServiceTopic() {
         return TopicBuilder.name(USER_EMAIL_REGISTERED_EVENT_TOPIC)
-                        .partitions(1)
+                        .partitions(partitions)
                         .replicas(1)
                         .build();
     }
     @Bean
     public NewTopic emailVerificationTopic(){
         return TopicBuilder.name(EMAIL_VERIFICATION_MESSAGE_TOPIC)
-                .partitions(1)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
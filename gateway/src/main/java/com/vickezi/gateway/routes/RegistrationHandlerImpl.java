@@ -7,6 +7,8 @@ import com.vickezi.globals.events.MessageProducerService;
 import com.vickezi.globals.model.EmailVerificationEvent;
 import com.vickezi.globals.model.RegistrationEmail;
 import com.vickezi.globals.model.Response;
+import com.vickezi.globals.tracing.StageTracer;
+import com.vickezi.globals.tracing.TraceContext;
 import com.vickezi.globals.util.CustomValidator;
 import jakarta.validation.ValidationException;
 import org.slf4j.Logger;
@@ -23,21 +25,25 @@ import java.security.InvalidParameterException;
 import static com.vickezi.globals.util.Constants.*;
 
 @Component
-@Import(MessageProducerService.class)
+@Import({MessageProducerService.class, StageTracer.class})
 public class RegistrationHandlerImpl implements RegistrationHandler{
     private final MessageProducerService<EmailRegistrationEvent> messageProducerService;
     private final MessageProducerService<EmailVerificationEvent> verificationEventMessageProducerService;
     private final RedisService redisService;
+    private final StageTracer stageTracer;
     private final Logger logger = LoggerFactory.getLogger(RegistrationHandlerImpl.class);
 
-    public RegistrationHandlerImpl(MessageProducerService<EmailRegistrationEvent> messageProducerService, MessageProducerService<EmailVerificationEvent> verificationEventMessageProducerService, RedisService redisService) {
+    public RegistrationHandlerImpl(MessageProducerService<EmailRegistrationEvent> messageProducerService, MessageProducerService<EmailVerificationEvent> verificationEventMessageProducerService, RedisService redisService, StageTracer stageTracer) {
         this.messageProducerService = messageProducerService;
         this.verificationEventMessageProducerService = verificationEventMessageProducerService;
         this.redisService = redisService;
+        this.stageTracer = stageTracer;
     }
 
     @Override
     public Mono<ServerResponse> register(ServerRequest serverRequest) {
+        final long accepted = System.nanoTime();
+        final TraceContext trace = stageTracer.start();
         return serverRequest.bodyToMono(RegistrationEmail.class)
                 .flatMap(email ->
                         redisService.isIdempotent(email.email(), email)
@@ -52,13 +58,13 @@ public class RegistrationHandlerImpl implements RegistrationHandler{
                 .flatMap(email -> {
                     final String validatedEmail;
                     try {
-                        validatedEmail = String.valueOf(CustomValidator.genericValidation(email.email())).trim();
+                        validatedEmail = CustomValidator.validateEmail(email.email()).trim();
                     } catch (CustomValidator.InvalidInputException ex) {
                         return Mono.error(ex);
                     }
                     return redisService.setValue(email.email(), email)
                             .then(addMessageToQueue(USER_EMAIL_REGISTERED_EVENT_TOPIC,
-                                    new EmailRegistrationEvent(validatedEmail),messageProducerService))
+                                    new EmailRegistrationEvent(validatedEmail),messageProducerService, trace, accepted))
                             .thenReturn(validatedEmail);
                 })
                 .flatMap(validatedEmail -> ServerResponse.ok()
@@ -80,6 +86,8 @@ public class RegistrationHandlerImpl implements RegistrationHandler{
     }
 
     public Mono<ServerResponse> verifyEmail(ServerRequest serverRequest) {
+        final long accepted = System.nanoTime();
+        final TraceContext trace = stageTracer.start();
         return Mono.zip(
                         getValidatedParam(serverRequest, "token"),
                         getValidatedParam(serverRequest, "messageId")
@@ -96,7 +104,7 @@ public class RegistrationHandlerImpl implements RegistrationHandler{
                                     return Mono.error(new DuplicateRequestException("Duplicate verification attempt"));
                                 }
                                 return addMessageToQueue(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC,
-                                        event, verificationEventMessageProducerService)
+                                        event, verificationEventMessageProducerService, trace, accepted)
                                         .thenReturn(event);
                             });
                 })
@@ -120,8 +128,20 @@ public class RegistrationHandlerImpl implements RegistrationHandler{
     }
 
 
-    private <T>Mono<Void> addMessageToQueue(String topic, T message, MessageProducerService<T> messageQueue) {
-       return Mono.fromRunnable(()-> messageQueue.addMessageToQueue(topic,message));
+    /**
+     * Queues the message with the request's trace attached, recording the time the gateway spent on the request
+     * and how long the broker took to acknowledge it.
+     */
+    private <T>Mono<Void> addMessageToQueue(String topic, T message, MessageProducerService<T> messageQueue,
+                                            TraceContext trace, long accepted) {
+       return Mono.fromRunnable(()-> {
+           stageTracer.recordProcessing("gateway", trace, accepted);
+           final long sent = System.nanoTime();
+           try (TraceContext.Scope ignored = trace.bind()) {
+               messageQueue.addMessageToQueue(topic, message)
+                       .whenComplete((result, ex) -> stageTracer.recordSend(topic, trace, sent));
+           }
+       });
     }
     private Response responseBuilder(String message, boolean status, int statusCode){
         return new Response(message, status,statusCode);
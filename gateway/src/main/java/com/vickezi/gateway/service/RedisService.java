@@ -19,11 +19,11 @@ public class RedisService {
     }
 
     public Mono<Void> setValue(String key, Object value) {
-        logger.info("Adding new key/value to Redis store");
+        logger.debug("Adding new key/value to Redis store");
         return Mono.fromRunnable(()->redisTemplate.opsForValue().set(key, value, Duration.ofMinutes(30)));
     }
     public Mono<Boolean> isIdempotent(String key, Object value) {
-        logger.info("Checking Redis store for idempotency");
+        logger.debug("Checking Redis store for idempotency");
         return Mono.fromCallable(()->redisTemplate.opsForValue().setIfAbsent(key, value, Duration.ofMinutes(30)));
     }
 }
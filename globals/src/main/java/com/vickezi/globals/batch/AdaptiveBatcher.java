@@ -0,0 +1,401 @@
+package com.vickezi.globals.batch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups items submitted from any thread into batches handed to a {@link Handler}, sizing the batches to fit a
+ * latency budget.
+ * <p>
+ * A single flusher thread forms the batches. When idle it flushes the first item as soon as it arrives. While a
+ * flush is running, new items queue up and are taken together by the next one, so the batch size follows the load.
+ * The target size, between {@code minBatchSize} and {@code maxBatchSize}, is adapted after every flush: it doubles
+ * when a full batch was flushed in under half the budget and halves when a flush took longer than the budget. While
+ * batches are full, the flusher also waits up to the part of the budget the flushes do not use for a batch to fill.
+ * <p>
+ * At most {@code maxPending} items are queued; beyond that {@link #submit(Object)} fails fast with a
+ * {@link RejectedExecutionException}. At most {@code maxInFlightBatches} batches are handled at once.
+ * <p>
+ * Published meters, tagged {@code batcher=<name>}: {@code vickezi.batcher.batch.size},
+ * {@code vickezi.batcher.flush} (per outcome), {@code vickezi.batcher.item.latency} from submit to completion,
+ * {@code vickezi.batcher.pending}, {@code vickezi.batcher.target.size} and {@code vickezi.batcher.rejected}.
+ *
+ * @param <T> the item type
+ * @param <R> the result of each item, {@link Void} if there is none
+ */
+public final class AdaptiveBatcher<T, R> implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveBatcher.class);
+    private static final String PREFIX = "vickezi.batcher.";
+    private static final long POLL_INTERVAL_MILLIS = 100;
+    private static final double SMOOTHING = 0.2;
+
+    private final String name;
+    private final Handler<T, R> handler;
+    private final BlockingQueue<Pending<T, R>> queue;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long latencyBudgetNanos;
+    private final int maxInFlightBatches;
+    private final Semaphore inFlight;
+    private final Duration closeTimeout;
+    private final Thread flusher;
+    private final DistributionSummary batchSizes;
+    private final Timer flushSuccess;
+    private final Timer flushFailure;
+    private final Timer itemLatency;
+    private final Counter rejected;
+    private volatile boolean closed;
+    private volatile int targetBatchSize;
+    private volatile boolean loaded;
+    private long averageFlushNanos;
+
+    private AdaptiveBatcher(Builder<T, R> builder) {
+        if (builder.minBatchSize < 1 || builder.maxBatchSize < builder.minBatchSize
+                || builder.maxPending < builder.maxBatchSize || builder.maxInFlightBatches < 1
+                || builder.latencyBudget.isNegative()) {
+            throw new IllegalArgumentException("Batch sizes must satisfy 1 <= min <= max <= maxPending, " +
+                    "at least one batch must be in flight and the latency budget must not be negative");
+        }
+        this.name = builder.name;
+        this.handler = builder.handler;
+        this.queue = new ArrayBlockingQueue<>(builder.maxPending);
+        this.minBatchSize = builder.minBatchSize;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.targetBatchSize = builder.minBatchSize;
+        this.latencyBudgetNanos = builder.latencyBudget.toNanos();
+        this.maxInFlightBatches = builder.maxInFlightBatches;
+        this.inFlight = new Semaphore(builder.maxInFlightBatches);
+        this.closeTimeout = builder.closeTimeout;
+
+        MeterRegistry registry = builder.meterRegistry;
+        this.batchSizes = DistributionSummary.builder(PREFIX + "batch.size").tag("batcher", name)
+                .publishPercentileHistogram().register(registry);
+        this.flushSuccess = flushTimer(registry, "success");
+        this.flushFailure = flushTimer(registry, "failure");
+        this.itemLatency = Timer.builder(PREFIX + "item.latency").tag("batcher", name)
+                .publishPercentileHistogram().register(registry);
+        this.rejected = Counter.builder(PREFIX + "rejected").tag("batcher", name).register(registry);
+        Gauge.builder(PREFIX + "pending", queue, BlockingQueue::size).tag("batcher", name).register(registry);
+        Gauge.builder(PREFIX + "target.size", this, AdaptiveBatcher::targetBatchSize).tag("batcher", name)
+                .register(registry);
+
+        this.flusher = new Thread(this::run, "batcher-" + name);
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * @param name identifies the batcher in thread names and meter tags
+     * @param handler handles one batch
+     */
+    public static <T, R> Builder<T, R> builder(String name, Handler<T, R> handler) {
+        return new Builder<>(name, handler);
+    }
+
+    /**
+     * Queues an item for the next batch.
+     *
+     * @param item the item to add
+     * @return completes with the item's result once its batch was handled, or exceptionally if the batch failed,
+     * the queue is full or the batcher is closed
+     */
+    public CompletableFuture<R> submit(T item) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Batcher " + name + " is closed"));
+        }
+        Pending<T, R> pending = new Pending<>(item, System.nanoTime());
+        if (!queue.offer(pending)) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Batcher " + name + " has " + queue.size() + " pending items"));
+        }
+        // The flusher may have drained the queue for the last time between the check and the offer
+        if (closed && queue.remove(pending)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Batcher " + name + " is closed"));
+        }
+        return pending.future;
+    }
+
+    /**
+     * @return the batch size the flusher currently aims for
+     */
+    public int targetBatchSize() {
+        return targetBatchSize;
+    }
+
+    /**
+     * @return the number of items waiting for a batch
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting items, flushes the queued ones and waits up to the close timeout for the batches in flight.
+     * Items still queued afterwards are failed.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flusher.join(closeTimeout.toMillis());
+            if (!inFlight.tryAcquire(maxInFlightBatches, closeTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("Batcher {} closed with batches still in flight", name);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        List<Pending<T, R>> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        complete(remaining, null, new IllegalStateException("Batcher " + name + " is closed"));
+    }
+
+    private void run() {
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Pending<T, R> first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Pending<T, R>> batch = new ArrayList<>(targetBatchSize);
+                batch.add(first);
+                int size = targetBatchSize;
+                fill(batch, size, first.enqueuedNanos + lingerNanos());
+                inFlight.acquire();
+                flush(batch, batch.size() >= size);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Takes queued items until the batch reaches the target size, waiting for more until the deadline.
+     */
+    private void fill(List<Pending<T, R>> batch, int size, long deadlineNanos) throws InterruptedException {
+        while (batch.size() < size) {
+            queue.drainTo(batch, size - batch.size());
+            if (batch.size() >= size || closed) {
+                return;
+            }
+            long wait = deadlineNanos - System.nanoTime();
+            if (wait <= 0) {
+                return;
+            }
+            Pending<T, R> next = queue.poll(wait, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Items only wait for a batch to fill while the batches are full, and never longer than the flushes leave of
+     * the budget.
+     */
+    private long lingerNanos() {
+        if (!loaded) {
+            return 0;
+        }
+        synchronized (this) {
+            return Math.max(0, latencyBudgetNanos - averageFlushNanos);
+        }
+    }
+
+    private void flush(List<Pending<T, R>> batch, boolean full) {
+        List<T> items = new ArrayList<>(batch.size());
+        for (Pending<T, R> pending : batch) {
+            items.add(pending.item);
+        }
+        long start = System.nanoTime();
+        CompletionStage<List<R>> handled;
+        try {
+            handled = Objects.requireNonNull(handler.handle(Collections.unmodifiableList(items)),
+                    "Batch handler returned null");
+        } catch (RuntimeException ex) {
+            handled = CompletableFuture.failedFuture(ex);
+        }
+        handled.whenComplete((results, failure) -> {
+            long elapsed = System.nanoTime() - start;
+            try {
+                adapt(full, elapsed);
+                batchSizes.record(batch.size());
+                (failure == null ? flushSuccess : flushFailure).record(elapsed, TimeUnit.NANOSECONDS);
+                complete(batch, results, failure);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private synchronized void adapt(boolean full, long flushNanos) {
+        averageFlushNanos = averageFlushNanos == 0
+                ? flushNanos
+                : (long) (averageFlushNanos + SMOOTHING * (flushNanos - averageFlushNanos));
+        if (flushNanos > latencyBudgetNanos) {
+            targetBatchSize = Math.max(minBatchSize, targetBatchSize / 2);
+        } else if (full && flushNanos * 2 < latencyBudgetNanos) {
+            targetBatchSize = Math.min(maxBatchSize, targetBatchSize * 2);
+        }
+        loaded = full;
+    }
+
+    private void complete(List<Pending<T, R>> batch, List<R> results, Throwable failure) {
+        if (failure == null && results != null && results.size() != batch.size()) {
+            failure = new IllegalStateException("Batch handler returned " + results.size() + " results for "
+                    + batch.size() + " items");
+        }
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < batch.size(); i++) {
+            Pending<T, R> pending = batch.get(i);
+            itemLatency.record(now - pending.enqueuedNanos, TimeUnit.NANOSECONDS);
+            if (failure != null) {
+                pending.future.completeExceptionally(failure);
+            } else {
+                pending.future.complete(results == null ? null : results.get(i));
+            }
+        }
+    }
+
+    private Timer flushTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder(PREFIX + "flush").tags("batcher", name, "outcome", outcome)
+                .publishPercentileHistogram().register(registry);
+    }
+
+    /**
+     * Handles one batch of items.
+     *
+     * @param <T> the item type
+     * @param <R> the result of each item
+     */
+    @FunctionalInterface
+    public interface Handler<T, R> {
+        /**
+         * @param batch the items, in submission order
+         * @return completes with one result per item in the same order, or null if items have no result
+         */
+        CompletionStage<List<R>> handle(List<T> batch);
+    }
+
+    private static final class Pending<T, R> {
+        private final T item;
+        private final long enqueuedNanos;
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+
+        private Pending(T item, long enqueuedNanos) {
+            this.item = item;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    public static final class Builder<T, R> {
+        private final String name;
+        private final Handler<T, R> handler;
+        private int minBatchSize = 1;
+        private int maxBatchSize = 500;
+        private int maxPending = 10_000;
+        private int maxInFlightBatches = 1;
+        private Duration latencyBudget = Duration.ofMillis(10);
+        private Duration closeTimeout = Duration.ofSeconds(10);
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+        private Builder(String name, Handler<T, R> handler) {
+            this.name = Objects.requireNonNull(name, "name");
+            this.handler = Objects.requireNonNull(handler, "handler");
+        }
+
+        /**
+         * @param minBatchSize the smallest target size, and the initial one, 1 by default
+         * @return this builder
+         */
+        public Builder<T, R> minBatchSize(int minBatchSize) {
+            this.minBatchSize = minBatchSize;
+            return this;
+        }
+
+        /**
+         * @param maxBatchSize the largest batch, 500 by default
+         * @return this builder
+         */
+        public Builder<T, R> maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * @param maxPending the most items queued before submissions are rejected, 10000 by default
+         * @return this builder
+         */
+        public Builder<T, R> maxPending(int maxPending) {
+            this.maxPending = maxPending;
+            return this;
+        }
+
+        /**
+         * @param maxInFlightBatches the most batches handled at once, 1 by default
+         * @return this builder
+         */
+        public Builder<T, R> maxInFlightBatches(int maxInFlightBatches) {
+            this.maxInFlightBatches = maxInFlightBatches;
+            return this;
+        }
+
+        /**
+         * @param latencyBudget the time an item should take from submission to completion, 10 ms by default
+         * @return this builder
+         */
+        public Builder<T, R> latencyBudget(Duration latencyBudget) {
+            this.latencyBudget = Objects.requireNonNull(latencyBudget, "latencyBudget");
+            return this;
+        }
+
+        /**
+         * @param closeTimeout how long {@link #close()} waits for queued and in-flight batches, 10 s by default
+         * @return this builder
+         */
+        public Builder<T, R> closeTimeout(Duration closeTimeout) {
+            this.closeTimeout = Objects.requireNonNull(closeTimeout, "closeTimeout");
+            return this;
+        }
+
+        /**
+         * @param meterRegistry where the batcher meters are published, the global registry by default
+         * @return this builder
+         */
+        public Builder<T, R> meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = Objects.requireNonNull(meterRegistry, "meterRegistry");
+            return this;
+        }
+
+        public AdaptiveBatcher<T, R> build() {
+            return new AdaptiveBatcher<>(this);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.vickezi.globals.codec;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.Map;
+
+/**
+ * Kafka value deserializer reading the event records written by {@link BinaryEventSerializer}.
+ * <p>
+ * Payloads that do not carry the {@link EventCodec} magic byte are handed to a {@link JsonDeserializer}, so
+ * records produced before the switch still drain during a rolling deployment. That fallback is configured from the
+ * same consumer properties as before ({@code spring.json.trusted.packages}).
+ * <pre>
+ * spring.kafka.consumer.value-deserializer=com.vickezi.globals.codec.BinaryEventDeserializer
+ * </pre>
+ */
+public class BinaryEventDeserializer implements Deserializer<Object> {
+    private final JsonDeserializer<Object> legacyDeserializer = new JsonDeserializer<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        legacyDeserializer.configure(configs, isKey);
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (!EventCodec.isEncoded(data)) {
+            return legacyDeserializer.deserialize(topic, headers, data);
+        }
+        try {
+            return EventCodec.decode(data);
+        } catch (IllegalArgumentException ex) {
+            throw new SerializationException("Cannot deserialize record from topic " + topic, ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        legacyDeserializer.close();
+    }
+}
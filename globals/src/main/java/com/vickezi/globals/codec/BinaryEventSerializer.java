@@ -0,0 +1,24 @@
+package com.vickezi.globals.codec;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka value serializer writing the event records with {@link EventCodec}.
+ * <pre>
+ * spring.kafka.producer.value-serializer=com.vickezi.globals.codec.BinaryEventSerializer
+ * </pre>
+ */
+public class BinaryEventSerializer implements Serializer<Object> {
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return EventCodec.encode(data);
+        } catch (IllegalArgumentException ex) {
+            throw new SerializationException("Cannot serialize record for topic " + topic, ex);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.vickezi.globals.codec;
+
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Versioned binary encoding of the event records exchanged over Kafka.
+ * <p>
+ * Layout: a magic byte, the format version, the type id, the number of fields, then every field in declaration
+ * order. String fields are written as a varint of {@code length + 1} ({@code 0} for null) followed by UTF-8 bytes.
+ * Each type is encoded by hand, so nothing is resolved by reflection on the hot path.
+ * <p>
+ * Schema evolution rules:
+ * <ul>
+ *   <li>Type ids are never reused or renumbered; a new event type takes the next free id.</li>
+ *   <li>Fields are only ever appended. A retired field keeps its slot and is written as null.</li>
+ *   <li>Readers skip fields past the ones they know and read missing trailing fields as null, so old and new
+ *   versions of a record can be exchanged both ways during a rolling deployment.</li>
+ *   <li>{@link #FORMAT_VERSION} only changes if the framing itself changes; readers reject versions they do not
+ *   know.</li>
+ * </ul>
+ */
+public final class EventCodec {
+    /** Never the first byte of a JSON document, which lets readers tell both formats apart. */
+    static final byte MAGIC = (byte) 0xB1;
+    static final byte FORMAT_VERSION = 1;
+    static final byte EMAIL_REGISTRATION_EVENT = 1;
+    static final byte EMAIL_VERIFICATION_EVENT = 2;
+    static final byte REGISTRATION_MESSAGE = 3;
+    private static final int HEADER_LENGTH = 3;
+
+    private EventCodec() {
+    }
+
+    /**
+     * Encodes a supported event record.
+     *
+     * @param event the record to encode
+     * @return the encoded bytes
+     * @throws IllegalArgumentException if the type has no binary encoding
+     */
+    public static byte[] encode(Object event) {
+        return switch (event) {
+            case EmailRegistrationEvent e -> write(EMAIL_REGISTRATION_EVENT, e.email());
+            case EmailVerificationEvent e -> write(EMAIL_VERIFICATION_EVENT, e.token(), e.messageId());
+            case RegistrationMessage m -> write(REGISTRATION_MESSAGE, m.messageId(), m.token(), m.status(), m.email());
+            default -> throw new IllegalArgumentException("No binary encoding for " + event.getClass().getName());
+        };
+    }
+
+    /**
+     * @param data a serialized payload
+     * @return true if the payload was written by {@link #encode(Object)}
+     */
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length > HEADER_LENGTH && data[0] == MAGIC;
+    }
+
+    /**
+     * Decodes a payload written by {@link #encode(Object)}.
+     *
+     * @param data the encoded bytes
+     * @return the decoded record
+     * @throws IllegalArgumentException if the payload is truncated or of an unknown version or type
+     */
+    public static Object decode(byte[] data) {
+        if (!isEncoded(data)) {
+            throw new IllegalArgumentException("Payload is not a binary encoded event");
+        }
+        if (data[1] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported binary event format version " + data[1]);
+        }
+        Reader reader = new Reader(data, HEADER_LENGTH);
+        int fieldCount = reader.readVarint();
+        return switch (data[2]) {
+            case EMAIL_REGISTRATION_EVENT -> {
+                String email = reader.readField(fieldCount);
+                reader.skipRemaining(fieldCount);
+                yield new EmailRegistrationEvent(email);
+            }
+            case EMAIL_VERIFICATION_EVENT -> {
+                String token = reader.readField(fieldCount);
+                String messageId = reader.readField(fieldCount);
+                reader.skipRemaining(fieldCount);
+                yield new EmailVerificationEvent(token, messageId);
+            }
+            case REGISTRATION_MESSAGE -> {
+                String messageId = reader.readField(fieldCount);
+                String token = reader.readField(fieldCount);
+                String status = reader.readField(fieldCount);
+                String email = reader.readField(fieldCount);
+                reader.skipRemaining(fieldCount);
+                yield new RegistrationMessage(messageId, token, status, email);
+            }
+            default -> throw new IllegalArgumentException("Unknown binary event type " + data[2]);
+        };
+    }
+
+    private static byte[] write(byte type, String... fields) {
+        int size = HEADER_LENGTH + varintLength(fields.length);
+        for (String field : fields) {
+            int length = field == null ? -1 : utf8Length(field);
+            size += varintLength(length + 1) + Math.max(length, 0);
+        }
+        byte[] out = new byte[size];
+        out[0] = MAGIC;
+        out[1] = FORMAT_VERSION;
+        out[2] = type;
+        int position = writeVarint(out, HEADER_LENGTH, fields.length);
+        for (String field : fields) {
+            if (field == null) {
+                position = writeVarint(out, position, 0);
+            } else {
+                position = writeVarint(out, position, utf8Length(field) + 1);
+                position = writeUtf8(out, position, field);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Counts the UTF-8 bytes of a string as {@link String#getBytes} would produce them, unpaired surrogates
+     * included (replaced by {@code '?'}).
+     */
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int writeUtf8(byte[] out, int position, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out[position++] = (byte) c;
+            } else if (c < 0x800) {
+                out[position++] = (byte) (0xC0 | (c >> 6));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out[position++] = (byte) (0xF0 | (codePoint >> 18));
+                out[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                out[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                out[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out[position++] = '?';
+            } else {
+                out[position++] = (byte) (0xE0 | (c >> 12));
+                out[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return position;
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static int writeVarint(byte[] out, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Cursor over an encoded payload that keeps track of how many fields have been consumed.
+     */
+    private static final class Reader {
+        private final byte[] data;
+        private int position;
+        private int fieldsRead;
+
+        Reader(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        /**
+         * Reads the next field, or returns null if the writer knew fewer fields than the reader.
+         */
+        String readField(int fieldCount) {
+            if (fieldsRead >= fieldCount) {
+                return null;
+            }
+            fieldsRead++;
+            int length = readVarint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            checkAvailable(length);
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        /**
+         * Skips the fields appended by a newer writer.
+         */
+        void skipRemaining(int fieldCount) {
+            while (fieldsRead < fieldCount) {
+                fieldsRead++;
+                int length = readVarint() - 1;
+                if (length > 0) {
+                    checkAvailable(length);
+                    position += length;
+                }
+            }
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                checkAvailable(1);
+                byte b = data[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in binary event");
+        }
+
+        private void checkAvailable(int length) {
+            if (length > data.length - position) {
+                throw new IllegalArgumentException("Truncated binary event");
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.vickezi.globals.consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Decides how many consumers a listener container should run, from samples of its consumer group's lag, the
+ * arrival rate of its topics and the time its consumers spend per record.
+ * <p>
+ * The needed consumers follow from Little's law: the records arriving per second plus those needed to drain the
+ * current lag within {@code drainTarget}, times the seconds one consumer spends per record, divided by the
+ * {@code targetUtilization} left as headroom. The result is bounded by {@code minConcurrency}, {@code maxConcurrency}
+ * and the partition count, since consumers beyond it get no partitions. When no consumer time is known, because
+ * nothing was processed or it was not measured, the lag alone steers: growing lag adds a consumer and no lag drops
+ * to the minimum.
+ * <p>
+ * Every change restarts the consumers and rebalances the group, so changes are damped: scaling up takes
+ * {@code scaleUpSamples} consecutive samples asking for more and goes straight to the needed count, while scaling
+ * down takes {@code scaleDownSamples} consecutive samples asking for fewer and steps down one consumer at a time.
+ * <p>
+ * Published meters, tagged {@code listener=<name>}: {@code vickezi.consumer.concurrency} and
+ * {@code vickezi.consumer.concurrency.desired} gauges, the sampled {@code vickezi.consumer.lag}, and
+ * {@code vickezi.consumer.scaling} counting the changes by {@code direction}, up or down.
+ * <p>
+ * Not thread-safe: samples are expected from one scheduler thread.
+ */
+public final class ConcurrencyController {
+    private static final String PREFIX = "vickezi.consumer.";
+
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final double drainTargetSeconds;
+    private final double targetUtilization;
+    private final int scaleUpSamples;
+    private final int scaleDownSamples;
+    private final Counter scaledUp;
+    private final Counter scaledDown;
+    private volatile int current;
+    private volatile int desired;
+    private volatile long lag;
+    private long previousLag = -1;
+    private int upStreak;
+    private int downStreak;
+
+    private ConcurrencyController(Builder builder) {
+        if (builder.minConcurrency < 1 || builder.maxConcurrency < builder.minConcurrency
+                || builder.initialConcurrency < 1 || builder.targetUtilization <= 0 || builder.targetUtilization > 1
+                || builder.scaleUpSamples < 1 || builder.scaleDownSamples < 1 || builder.drainTarget.isZero()
+                || builder.drainTarget.isNegative()) {
+            throw new IllegalArgumentException("Concurrency must satisfy 1 <= min <= max, the utilization must be " +
+                    "in (0, 1], the sample counts at least 1 and the drain target positive");
+        }
+        this.minConcurrency = builder.minConcurrency;
+        this.maxConcurrency = builder.maxConcurrency;
+        this.drainTargetSeconds = builder.drainTarget.toNanos() / 1e9;
+        this.targetUtilization = builder.targetUtilization;
+        this.scaleUpSamples = builder.scaleUpSamples;
+        this.scaleDownSamples = builder.scaleDownSamples;
+        this.current = builder.initialConcurrency;
+        this.desired = builder.initialConcurrency;
+
+        MeterRegistry registry = builder.meterRegistry;
+        String name = builder.name;
+        this.scaledUp = Counter.builder(PREFIX + "scaling").tags("listener", name, "direction", "up")
+                .register(registry);
+        this.scaledDown = Counter.builder(PREFIX + "scaling").tags("listener", name, "direction", "down")
+                .register(registry);
+        Gauge.builder(PREFIX + "concurrency", this, ConcurrencyController::current).tag("listener", name)
+                .register(registry);
+        Gauge.builder(PREFIX + "concurrency.desired", this, controller -> controller.desired).tag("listener", name)
+                .register(registry);
+        Gauge.builder(PREFIX + "lag", this, controller -> controller.lag).tag("listener", name).register(registry);
+    }
+
+    /**
+     * @param name identifies the listener in meter tags
+     */
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * @return the consumers the container runs, as last decided
+     */
+    public int current() {
+        return current;
+    }
+
+    /**
+     * Takes in one sample and decides the concurrency.
+     *
+     * @param sample the state of the consumer group since the previous sample
+     * @return the concurrency to run, {@link #current()} if it should not change
+     */
+    public int evaluate(Sample sample) {
+        lag = sample.lag();
+        int upperBound = Math.max(minConcurrency, Math.min(maxConcurrency, sample.partitions()));
+        int needed = Math.max(minConcurrency, Math.min(upperBound, needed(sample)));
+        desired = needed;
+        previousLag = sample.lag();
+
+        int next = current;
+        if (current > upperBound) {
+            // Fewer partitions than consumers, the extra ones would sit idle
+            next = upperBound;
+        } else if (needed > current) {
+            downStreak = 0;
+            if (++upStreak >= scaleUpSamples) {
+                next = needed;
+            }
+        } else if (needed < current) {
+            upStreak = 0;
+            if (++downStreak >= scaleDownSamples) {
+                next = current - 1;
+            }
+        } else {
+            upStreak = 0;
+            downStreak = 0;
+        }
+        if (next != current) {
+            (next > current ? scaledUp : scaledDown).increment();
+            current = next;
+            upStreak = 0;
+            downStreak = 0;
+        }
+        return next;
+    }
+
+    private int needed(Sample sample) {
+        if (Double.isNaN(sample.secondsPerRecord())) {
+            if (sample.lag() == 0) {
+                return minConcurrency;
+            }
+            return previousLag >= 0 && sample.lag() > previousLag ? current + 1 : current;
+        }
+        double demand = sample.arrivalRate() + sample.lag() / drainTargetSeconds;
+        return (int) Math.min(Integer.MAX_VALUE,
+                Math.ceil(demand * sample.secondsPerRecord() / targetUtilization));
+    }
+
+    /**
+     * The state of a consumer group over one sampling interval.
+     *
+     * @param lag              the records not yet committed, over all partitions
+     * @param arrivalRate      the records appended to the topics per second
+     * @param secondsPerRecord the consumer time spent per record, or NaN if unknown
+     * @param partitions       the partitions the consumers share
+     */
+    public record Sample(long lag, double arrivalRate, double secondsPerRecord, int partitions) {
+    }
+
+    public static final class Builder {
+        private final String name;
+        private int minConcurrency = 1;
+        private int maxConcurrency = 12;
+        private int initialConcurrency = 1;
+        private Duration drainTarget = Duration.ofMinutes(1);
+        private double targetUtilization = 0.75;
+        private int scaleUpSamples = 2;
+        private int scaleDownSamples = 8;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+        private Builder(String name) {
+            this.name = Objects.requireNonNull(name, "name");
+        }
+
+        /**
+         * @param minConcurrency the fewest consumers, 1 by default
+         * @return this builder
+         */
+        public Builder minConcurrency(int minConcurrency) {
+            this.minConcurrency = minConcurrency;
+            return this;
+        }
+
+        /**
+         * @param maxConcurrency the most consumers, 12 by default
+         * @return this builder
+         */
+        public Builder maxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        /**
+         * @param initialConcurrency the consumers the container starts with, 1 by default
+         * @return this builder
+         */
+        public Builder initialConcurrency(int initialConcurrency) {
+            this.initialConcurrency = initialConcurrency;
+            return this;
+        }
+
+        /**
+         * @param drainTarget how long the lag should take to drain on top of the arriving records, 1 min by default
+         * @return this builder
+         */
+        public Builder drainTarget(Duration drainTarget) {
+            this.drainTarget = Objects.requireNonNull(drainTarget, "drainTarget");
+            return this;
+        }
+
+        /**
+         * @param targetUtilization the busy share of consumer time aimed for, 0.75 by default
+         * @return this builder
+         */
+        public Builder targetUtilization(double targetUtilization) {
+            this.targetUtilization = targetUtilization;
+            return this;
+        }
+
+        /**
+         * @param scaleUpSamples the consecutive samples needing more consumers before adding them, 2 by default
+         * @return this builder
+         */
+        public Builder scaleUpSamples(int scaleUpSamples) {
+            this.scaleUpSamples = scaleUpSamples;
+            return this;
+        }
+
+        /**
+         * @param scaleDownSamples the consecutive samples needing fewer consumers before removing one, 8 by default
+         * @return this builder
+         */
+        public Builder scaleDownSamples(int scaleDownSamples) {
+            this.scaleDownSamples = scaleDownSamples;
+            return this;
+        }
+
+        /**
+         * @param meterRegistry where the controller meters are published, the global registry by default
+         * @return this builder
+         */
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = Objects.requireNonNull(meterRegistry, "meterRegistry");
+            return this;
+        }
+
+        public ConcurrencyController build() {
+            return new ConcurrencyController(this);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.vickezi.globals.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Processes the records of a poll in parallel while keeping the order of records that share a key.
+ * <p>
+ * The records are split into lanes by partition and key. A lane handles its records one at a time in offset order,
+ * and up to {@code maxConcurrency} lanes run at once, so records of different keys progress in parallel even
+ * within one partition. Records without a key have no order to keep and each get their own lane.
+ * <p>
+ * When a handler fails, the rest of its lane is left unprocessed: handling them would overtake the failed record.
+ * The caller finds them neither completed nor failed in the {@link Result}, and {@link OffsetTracker} keeps the
+ * committed offset below them until they are.
+ */
+public final class KeyOrderedDispatcher {
+    private final Executor executor;
+    private final Semaphore permits;
+
+    /**
+     * @param executor runs the lanes; a virtual thread per task suits handlers that block
+     * @param maxConcurrency the most lanes running at once
+     */
+    public KeyOrderedDispatcher(Executor executor, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.executor = Objects.requireNonNull(executor, "executor");
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Handles the records and waits until every lane has finished.
+     *
+     * @param records the records of one poll, in the order they were polled
+     * @param handler the processing of one record; it is done with the record when it returns
+     * @param <K> the record key type
+     * @param <V> the record value type
+     * @return the records that completed and those that failed
+     * @throws InterruptedException if interrupted while waiting; lanes already started keep running
+     */
+    public <K, V> Result<K, V> dispatch(List<ConsumerRecord<K, V>> records, RecordHandler<K, V> handler)
+            throws InterruptedException {
+        Map<Object, List<ConsumerRecord<K, V>>> lanes = new LinkedHashMap<>();
+        for (ConsumerRecord<K, V> record : records) {
+            Object lane = record.key() == null ? record : new Lane(record.topic(), record.partition(), record.key());
+            lanes.computeIfAbsent(lane, ignored -> new ArrayList<>()).add(record);
+        }
+        Set<ConsumerRecord<K, V>> completed = ConcurrentHashMap.newKeySet(records.size());
+        Map<ConsumerRecord<K, V>, RuntimeException> failed = new ConcurrentHashMap<>();
+        CountDownLatch finished = new CountDownLatch(lanes.size());
+        for (List<ConsumerRecord<K, V>> lane : lanes.values()) {
+            permits.acquire();
+            try {
+                executor.execute(() -> {
+                    try {
+                        for (ConsumerRecord<K, V> record : lane) {
+                            try {
+                                handler.handle(record);
+                                completed.add(record);
+                            } catch (RuntimeException ex) {
+                                failed.put(record, ex);
+                                break;
+                            }
+                        }
+                    } finally {
+                        permits.release();
+                        finished.countDown();
+                    }
+                });
+            } catch (RuntimeException ex) {
+                permits.release();
+                finished.countDown();
+                failed.put(lane.get(0), ex);
+            }
+        }
+        finished.await();
+        return new Result<>(Set.copyOf(completed), Map.copyOf(failed));
+    }
+
+    /**
+     * Processes one record; any exception marks it failed.
+     *
+     * @param <K> the record key type
+     * @param <V> the record value type
+     */
+    @FunctionalInterface
+    public interface RecordHandler<K, V> {
+        void handle(ConsumerRecord<K, V> record);
+    }
+
+    /**
+     * The outcome of a dispatch. Records in neither collection followed a failure in their lane.
+     *
+     * @param completed the records whose handler returned
+     * @param failed the records whose handler threw, with the exception
+     * @param <K> the record key type
+     * @param <V> the record value type
+     */
+    public record Result<K, V>(Set<ConsumerRecord<K, V>> completed,
+                               Map<ConsumerRecord<K, V>, RuntimeException> failed) {
+    }
+
+    private record Lane(String topic, int partition, Object key) {
+    }
+}
@@ -0,0 +1,250 @@
+package com.vickezi.globals.consumer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Scales the consumers of the listener containers reading the configured topics with the load, enabled with
+ * {@code vickezi.kafka.listener.scaling.enabled=true}, see {@link ListenerScalingProperties}.
+ * <p>
+ * Every interval each running container is sampled over the partitions currently assigned to it: their lag and end
+ * offsets come from the Kafka admin client, and the time its consumers spent in the listener from the
+ * {@code spring.kafka.listener} timers Spring Kafka publishes per consumer, divided by the records committed
+ * meanwhile. Sampling only the assigned partitions lets each replica of a service size its consumers for its own
+ * share of the group's lag, rather than every replica scaling for all of it. A {@link ConcurrencyController} per
+ * container turns the samples into a consumer count; when it changes, the container is stopped, given the new
+ * concurrency and started again, which rebalances its group. The first sample of a container, the first after a
+ * restart and the first after its assignment changes only set the baseline.
+ */
+@Component
+@ConditionalOnProperty(name = "vickezi.kafka.listener.scaling.enabled", havingValue = "true")
+@EnableConfigurationProperties(ListenerScalingProperties.class)
+public class ListenerConcurrencyScaler implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(ListenerConcurrencyScaler.class);
+    static final String LISTENER_TIMER = "spring.kafka.listener";
+    private static final Duration ADMIN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final KafkaListenerEndpointRegistry endpointRegistry;
+    private final KafkaAdmin kafkaAdmin;
+    private final ListenerScalingProperties properties;
+    private final MeterRegistry meterRegistry;
+    /** Only touched by the scheduler thread. */
+    private final Map<String, Tracked> tracked = new HashMap<>();
+    private ScheduledExecutorService scheduler;
+    private Admin admin;
+    private volatile boolean running;
+
+    public ListenerConcurrencyScaler(KafkaListenerEndpointRegistry endpointRegistry, KafkaAdmin kafkaAdmin,
+                                     ListenerScalingProperties properties,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        this.endpointRegistry = endpointRegistry;
+        this.kafkaAdmin = kafkaAdmin;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    @Override
+    public synchronized void start() {
+        admin = Admin.create(kafkaAdmin.getConfigurationProperties());
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "listener-scaler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::sampleAll, interval, interval, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        scheduler.shutdownNow();
+        admin.close(ADMIN_TIMEOUT);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts after the listener containers and stops before them.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    private void sampleAll() {
+        for (MessageListenerContainer container : endpointRegistry.getAllListenerContainers()) {
+            if (container instanceof ConcurrentMessageListenerContainer<?, ?> concurrent && container.isRunning()
+                    && !scaledTopics(concurrent).isEmpty()) {
+                try {
+                    sample(concurrent);
+                } catch (Exception ex) {
+                    logger.warn("Could not sample listener {}: {}", container.getListenerId(), ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private List<String> scaledTopics(ConcurrentMessageListenerContainer<?, ?> container) {
+        String[] topics = container.getContainerProperties().getTopics();
+        if (topics == null) {
+            return List.of();
+        }
+        List<String> scaled = new ArrayList<>();
+        for (String topic : topics) {
+            if (properties.getTopics().contains(topic)) {
+                scaled.add(topic);
+            }
+        }
+        return scaled;
+    }
+
+    private void sample(ConcurrentMessageListenerContainer<?, ?> container) throws Exception {
+        String listenerId = container.getListenerId();
+        List<String> scaledTopics = scaledTopics(container);
+        Set<TopicPartition> partitions = new HashSet<>();
+        Collection<TopicPartition> assigned = container.getAssignedPartitions();
+        if (assigned != null) {
+            assigned.stream().filter(partition -> scaledTopics.contains(partition.topic())).forEach(partitions::add);
+        }
+        if (partitions.isEmpty()) {
+            // Nothing assigned, for instance during a rebalance
+            Tracked state = tracked.get(listenerId);
+            if (state != null) {
+                state.baselined = false;
+            }
+            return;
+        }
+        int maxPartitions = (int) partitions.stream()
+                .collect(Collectors.groupingBy(TopicPartition::topic, Collectors.counting()))
+                .values().stream().mapToLong(Long::longValue).max().orElse(0);
+        Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(container.getGroupId())
+                .partitionsToOffsetAndMetadata().get(ADMIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = admin.listOffsets(partitions.stream()
+                        .collect(Collectors.toMap(Function.identity(), ignored -> OffsetSpec.latest())))
+                .all().get(ADMIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+
+        long endSum = 0;
+        long committedSum = 0;
+        long lag = 0;
+        for (TopicPartition partition : partitions) {
+            long end = ends.get(partition).offset();
+            OffsetAndMetadata offset = committed.get(partition);
+            long position = offset == null ? 0 : offset.offset();
+            endSum += end;
+            committedSum += position;
+            lag += Math.max(0, end - position);
+        }
+        long busyNanos = busyNanos(listenerId);
+        long now = System.nanoTime();
+
+        Tracked state = tracked.computeIfAbsent(listenerId, id -> new Tracked(ConcurrencyController.builder(id)
+                .minConcurrency(properties.getMinConcurrency())
+                .maxConcurrency(properties.getMaxConcurrency())
+                .initialConcurrency(container.getConcurrency())
+                .drainTarget(properties.getDrainTarget())
+                .targetUtilization(properties.getTargetUtilization())
+                .scaleUpSamples(properties.getScaleUpSamples())
+                .scaleDownSamples(properties.getScaleDownSamples())
+                .meterRegistry(meterRegistry)
+                .build()));
+        if (!state.baselined || !partitions.equals(state.partitions)) {
+            // Offsets summed over another set of partitions cannot be compared
+            state.partitions = partitions;
+            state.baseline(now, endSum, committedSum, busyNanos);
+            return;
+        }
+        double seconds = (now - state.sampledAt) / 1e9;
+        long processed = committedSum - state.committedSum;
+        long busy = busyNanos - state.busyNanos;
+        double secondsPerRecord = processed > 0 && busy > 0 ? busy / 1e9 / processed : Double.NaN;
+        int next = state.controller.evaluate(new ConcurrencyController.Sample(lag,
+                Math.max(0, endSum - state.endSum) / seconds, secondsPerRecord, maxPartitions));
+        state.baseline(now, endSum, committedSum, busyNanos);
+
+        if (next != container.getConcurrency()) {
+            logger.info("Scaling listener {} from {} to {} consumers, lag {}", listenerId,
+                    container.getConcurrency(), next, lag);
+            // The listener timers of the stopped consumers go away with them
+            state.baselined = false;
+            container.setConcurrency(next);
+            container.stop(() -> scheduler.execute(() -> {
+                if (running) {
+                    container.start();
+                }
+            }));
+        }
+    }
+
+    /**
+     * The time the consumers of a container spent in the listener, from the timers tagged with their bean names,
+     * {@code <listenerId>-<index>}.
+     */
+    private long busyNanos(String listenerId) {
+        long busy = 0;
+        for (Timer timer : meterRegistry.find(LISTENER_TIMER).timers()) {
+            String name = timer.getId().getTag("name");
+            if (name != null && name.startsWith(listenerId + "-")) {
+                busy += (long) timer.totalTime(TimeUnit.NANOSECONDS);
+            }
+        }
+        return busy;
+    }
+
+    private static final class Tracked {
+        private final ConcurrencyController controller;
+        private boolean baselined;
+        private Set<TopicPartition> partitions = Set.of();
+        private long sampledAt;
+        private long endSum;
+        private long committedSum;
+        private long busyNanos;
+
+        private Tracked(ConcurrencyController controller) {
+            this.controller = controller;
+        }
+
+        private void baseline(long sampledAt, long endSum, long committedSum, long busyNanos) {
+            this.baselined = true;
+            this.sampledAt = sampledAt;
+            this.endSum = endSum;
+            this.committedSum = committedSum;
+            this.busyNanos = busyNanos;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.vickezi.globals.consumer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings of the {@link ListenerConcurrencyScaler}.
+ * <pre>
+ * vickezi.kafka.listener.scaling.enabled=true
+ * vickezi.kafka.listener.scaling.topics=user_email_registered_event
+ * vickezi.kafka.listener.scaling.min-concurrency=1
+ * vickezi.kafka.listener.scaling.max-concurrency=12
+ * vickezi.kafka.listener.scaling.interval=15s
+ * vickezi.kafka.listener.scaling.drain-target=1m
+ * vickezi.kafka.listener.scaling.target-utilization=0.75
+ * vickezi.kafka.listener.scaling.scale-up-samples=2
+ * vickezi.kafka.listener.scaling.scale-down-samples=8
+ * </pre>
+ * The containers scaled are those listening to one of the topics; each is further capped by its partition count.
+ */
+@ConfigurationProperties(prefix = "vickezi.kafka.listener.scaling")
+public class ListenerScalingProperties {
+    private boolean enabled;
+    private List<String> topics = new ArrayList<>();
+    private int minConcurrency = 1;
+    private int maxConcurrency = 12;
+    private Duration interval = Duration.ofSeconds(15);
+    private Duration drainTarget = Duration.ofMinutes(1);
+    private double targetUtilization = 0.75;
+    private int scaleUpSamples = 2;
+    private int scaleDownSamples = 8;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<String> getTopics() {
+        return topics;
+    }
+
+    public void setTopics(List<String> topics) {
+        this.topics = topics;
+    }
+
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    public void setMinConcurrency(int minConcurrency) {
+        this.minConcurrency = minConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Duration interval) {
+        this.interval = interval;
+    }
+
+    public Duration getDrainTarget() {
+        return drainTarget;
+    }
+
+    public void setDrainTarget(Duration drainTarget) {
+        this.drainTarget = drainTarget;
+    }
+
+    public double getTargetUtilization() {
+        return targetUtilization;
+    }
+
+    public void setTargetUtilization(double targetUtilization) {
+        this.targetUtilization = targetUtilization;
+    }
+
+    public int getScaleUpSamples() {
+        return scaleUpSamples;
+    }
+
+    public void setScaleUpSamples(int scaleUpSamples) {
+        this.scaleUpSamples = scaleUpSamples;
+    }
+
+    public int getScaleDownSamples() {
+        return scaleDownSamples;
+    }
+
+    public void setScaleDownSamples(int scaleDownSamples) {
+        this.scaleDownSamples = scaleDownSamples;
+    }
+}
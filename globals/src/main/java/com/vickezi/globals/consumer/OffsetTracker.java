@@ -0,0 +1,122 @@
+package com.vickezi.globals.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which offsets of each partition are done when records complete out of order, as with
+ * {@link KeyOrderedDispatcher}.
+ * <p>
+ * The offset to commit for a partition is its lowest incomplete offset, so a restart never skips a record that was
+ * not processed. Offsets completed above it are remembered, so when the records from the lowest incomplete offset
+ * on are delivered again, the ones already done can be skipped with {@link #isCompleted}. Failed attempts are
+ * counted per offset so the caller can give up on a record that keeps failing.
+ * <p>
+ * A partition is only ever handled by the consumer it is assigned to, so its state is not shared between threads;
+ * the map of partitions is. Partitions a consumer gives up in a rebalance are dropped with {@link #forget}.
+ */
+public final class OffsetTracker {
+    private final Map<TopicPartition, PartitionState> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * @param record a polled record
+     * @return whether the record was completed in an earlier delivery
+     */
+    public boolean isCompleted(ConsumerRecord<?, ?> record) {
+        PartitionState state = partitions.get(partitionOf(record));
+        return state != null && state.completed.contains(record.offset());
+    }
+
+    /**
+     * Marks a record done.
+     *
+     * @param record the record
+     */
+    public void completed(ConsumerRecord<?, ?> record) {
+        PartitionState state = state(record);
+        state.completed.add(record.offset());
+        state.attempts.remove(record.offset());
+    }
+
+    /**
+     * Counts a failed attempt at a record.
+     *
+     * @param record the record
+     * @return the attempts that failed so far, this one included
+     */
+    public int failed(ConsumerRecord<?, ?> record) {
+        return state(record).attempts.merge(record.offset(), 1, Integer::sum);
+    }
+
+    /**
+     * Forgets partitions revoked from or lost by the consumer. Whichever consumer is assigned them next resumes from
+     * their committed offset, so the offsets completed above it and the attempts counted here no longer apply.
+     *
+     * @param revoked the partitions
+     */
+    public void forget(Collection<TopicPartition> revoked) {
+        revoked.forEach(partitions::remove);
+    }
+
+    /**
+     * Works out how far each partition of a poll can be committed, and forgets the offsets below that point.
+     *
+     * @param records the records of the poll, in the order they were polled
+     * @return the offsets to commit and the partitions to read again from their lowest incomplete offset
+     */
+    public Progress progress(Collection<? extends ConsumerRecord<?, ?>> records) {
+        Map<TopicPartition, OffsetAndMetadata> commits = new HashMap<>();
+        Map<TopicPartition, Long> rewinds = new HashMap<>();
+        for (ConsumerRecord<?, ?> record : records) {
+            TopicPartition partition = partitionOf(record);
+            if (rewinds.containsKey(partition)) {
+                continue;
+            }
+            if (isCompleted(record)) {
+                commits.put(partition, new OffsetAndMetadata(record.offset() + 1));
+            } else {
+                commits.put(partition, new OffsetAndMetadata(record.offset()));
+                rewinds.put(partition, record.offset());
+            }
+        }
+        // Nothing below the committed offset is delivered again
+        commits.forEach((partition, offset) -> {
+            PartitionState state = partitions.get(partition);
+            if (state != null) {
+                state.completed.headSet(offset.offset()).clear();
+            }
+        });
+        return new Progress(Map.copyOf(commits), Map.copyOf(rewinds));
+    }
+
+    private PartitionState state(ConsumerRecord<?, ?> record) {
+        return partitions.computeIfAbsent(partitionOf(record), ignored -> new PartitionState());
+    }
+
+    private static TopicPartition partitionOf(ConsumerRecord<?, ?> record) {
+        return new TopicPartition(record.topic(), record.partition());
+    }
+
+    /**
+     * How far a poll got.
+     *
+     * @param commits the offset to commit per partition: its lowest incomplete offset, or the one after the last
+     *        polled record when all are done
+     * @param rewinds the lowest incomplete offset of the partitions that have one, to seek back to
+     */
+    public record Progress(Map<TopicPartition, OffsetAndMetadata> commits, Map<TopicPartition, Long> rewinds) {
+    }
+
+    private static final class PartitionState {
+        private final NavigableSet<Long> completed = new TreeSet<>();
+        private final Map<Long, Integer> attempts = new HashMap<>();
+    }
+}
@@ -0,0 +1,244 @@
+package com.vickezi.globals.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOptions;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Consumes Kafka records as a {@link Flux} with backpressure between polling and processing.
+ * <p>
+ * Records are spread over {@code concurrency} lanes by partition. A lane handles one record at a time, so records of
+ * a partition are processed in order while different partitions progress in parallel. Handlers run on the given
+ * {@link Scheduler}, bounded elastic by default, so they may block.
+ * <p>
+ * Each record is acknowledged once its handler, or the error handler, completes. Acknowledged offsets are committed
+ * in batches of {@code commitBatchSize} records or every {@code commitInterval}, whichever comes first. At most
+ * {@code prefetch} records are buffered per lane; once the lanes stop requesting, the receiver pauses the assigned
+ * partitions and resumes them when demand returns, so a slow handler holds back polling instead of filling memory.
+ * <p>
+ * If the error handler fails too, the record is left unacknowledged and the consumer restarts from the last
+ * committed offset, with exponential backoff.
+ * <pre>
+ * ReactiveKafkaConsumer.builder(ReceiverOptions.&lt;String, Object&gt;create(props).subscription(List.of(topic)))
+ *         .handler(record -&gt; Mono.fromRunnable(() -&gt; process(record.value())))
+ *         .concurrency(6)
+ *         .build()
+ *         .start();
+ * </pre>
+ *
+ * @param <K> the record key type
+ * @param <V> the record value type
+ */
+public final class ReactiveKafkaConsumer<K, V> implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveKafkaConsumer.class);
+
+    private final ReceiverOptions<K, V> options;
+    private final Function<ConsumerRecord<K, V>, Mono<Void>> handler;
+    private final BiFunction<ConsumerRecord<K, V>, Throwable, Mono<Void>> errorHandler;
+    private final int concurrency;
+    private final int prefetch;
+    private final Scheduler scheduler;
+    private final Retry restart;
+    private volatile Disposable subscription;
+
+    private ReactiveKafkaConsumer(Builder<K, V> builder) {
+        this.options = builder.options
+                .commitBatchSize(builder.commitBatchSize)
+                .commitInterval(builder.commitInterval);
+        this.handler = Objects.requireNonNull(builder.handler, "handler");
+        this.errorHandler = builder.errorHandler;
+        this.concurrency = builder.concurrency;
+        this.prefetch = builder.prefetch;
+        this.scheduler = builder.scheduler;
+        this.restart = Retry.backoff(Long.MAX_VALUE, builder.minRestartBackoff)
+                .maxBackoff(builder.maxRestartBackoff)
+                .transientErrors(true)
+                .doBeforeRetry(signal -> logger.warn("Restarting Kafka receiver for {} after: {}",
+                        options.subscriptionTopics(), signal.failure().getMessage()));
+    }
+
+    public static <K, V> Builder<K, V> builder(ReceiverOptions<K, V> options) {
+        return new Builder<>(options);
+    }
+
+    /**
+     * Subscribes to the topics of the receiver options. Does nothing if the consumer is already running.
+     */
+    @Override
+    public synchronized void start() {
+        if (isRunning()) {
+            return;
+        }
+        subscription = Flux.defer(() -> process(KafkaReceiver.create(options).receive(prefetch)))
+                .retryWhen(restart)
+                .subscribe(null, ex -> logger.error("Kafka receiver for {} stopped", options.subscriptionTopics(), ex));
+    }
+
+    /**
+     * Cancels the subscription, which closes the Kafka consumer after committing the acknowledged offsets.
+     */
+    @Override
+    public synchronized void stop() {
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+            subscription = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        Disposable current = subscription;
+        return current != null && !current.isDisposed();
+    }
+
+    /**
+     * Runs the handlers over a stream of records, one lane per partition group.
+     *
+     * @param records the received records
+     * @return the records, in per-lane order, after they were acknowledged
+     */
+    Flux<ReceiverRecord<K, V>> process(Flux<ReceiverRecord<K, V>> records) {
+        // At most concurrency groups exist, so flatMap never leaves a group unsubscribed
+        return records
+                .groupBy(record -> lane(record.receiverOffset().topicPartition()), prefetch)
+                .flatMap(lane -> lane.concatMap(this::handle, 1), concurrency);
+    }
+
+    private Mono<ReceiverRecord<K, V>> handle(ReceiverRecord<K, V> record) {
+        return Mono.defer(() -> handler.apply(record))
+                .subscribeOn(scheduler)
+                .onErrorResume(ex -> errorHandler.apply(record, ex))
+                .then(Mono.fromRunnable(() -> record.receiverOffset().acknowledge()))
+                .thenReturn(record);
+    }
+
+    private int lane(TopicPartition partition) {
+        return Math.floorMod(partition.hashCode(), concurrency);
+    }
+
+    private static <K, V> Mono<Void> logAndSkip(ConsumerRecord<K, V> record, Throwable ex) {
+        logger.error("❌ Failed to process record {}-{}@{}, skipping it", record.topic(), record.partition(),
+                record.offset(), ex);
+        return Mono.empty();
+    }
+
+    public static final class Builder<K, V> {
+        private final ReceiverOptions<K, V> options;
+        private Function<ConsumerRecord<K, V>, Mono<Void>> handler;
+        private BiFunction<ConsumerRecord<K, V>, Throwable, Mono<Void>> errorHandler = ReactiveKafkaConsumer::logAndSkip;
+        private int concurrency = Runtime.getRuntime().availableProcessors();
+        private int prefetch = 64;
+        private int commitBatchSize = 100;
+        private Duration commitInterval = Duration.ofSeconds(5);
+        private Scheduler scheduler = Schedulers.boundedElastic();
+        private Duration minRestartBackoff = Duration.ofSeconds(1);
+        private Duration maxRestartBackoff = Duration.ofMinutes(1);
+
+        private Builder(ReceiverOptions<K, V> options) {
+            this.options = Objects.requireNonNull(options, "options");
+        }
+
+        /**
+         * @param handler processes one record, completing when it is done
+         * @return this builder
+         */
+        public Builder<K, V> handler(Function<ConsumerRecord<K, V>, Mono<Void>> handler) {
+            this.handler = handler;
+            return this;
+        }
+
+        /**
+         * @param errorHandler called with a record whose handler failed, for example to dead-letter it. The record
+         *                     is acknowledged once it completes. Logs and skips the record by default.
+         * @return this builder
+         */
+        public Builder<K, V> onError(BiFunction<ConsumerRecord<K, V>, Throwable, Mono<Void>> errorHandler) {
+            this.errorHandler = Objects.requireNonNull(errorHandler, "errorHandler");
+            return this;
+        }
+
+        /**
+         * @param concurrency the number of records processed at the same time, the number of processors by default
+         * @return this builder
+         */
+        public Builder<K, V> concurrency(int concurrency) {
+            this.concurrency = requirePositive(concurrency, "concurrency");
+            return this;
+        }
+
+        /**
+         * @param prefetch the number of records buffered ahead of each lane, 64 by default
+         * @return this builder
+         */
+        public Builder<K, V> prefetch(int prefetch) {
+            this.prefetch = requirePositive(prefetch, "prefetch");
+            return this;
+        }
+
+        /**
+         * @param commitBatchSize the number of acknowledged records that triggers a commit, 100 by default
+         * @return this builder
+         */
+        public Builder<K, V> commitBatchSize(int commitBatchSize) {
+            this.commitBatchSize = requirePositive(commitBatchSize, "commitBatchSize");
+            return this;
+        }
+
+        /**
+         * @param commitInterval the longest time acknowledged offsets wait for a commit, 5 seconds by default
+         * @return this builder
+         */
+        public Builder<K, V> commitInterval(Duration commitInterval) {
+            this.commitInterval = Objects.requireNonNull(commitInterval, "commitInterval");
+            return this;
+        }
+
+        /**
+         * @param scheduler where handlers are subscribed, {@link Schedulers#boundedElastic()} by default
+         * @return this builder
+         */
+        public Builder<K, V> scheduler(Scheduler scheduler) {
+            this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+            return this;
+        }
+
+        /**
+         * @param min the delay before the first restart after a receiver failure
+         * @param max the longest delay between restarts
+         * @return this builder
+         */
+        public Builder<K, V> restartBackoff(Duration min, Duration max) {
+            this.minRestartBackoff = Objects.requireNonNull(min, "min");
+            this.maxRestartBackoff = Objects.requireNonNull(max, "max");
+            return this;
+        }
+
+        public ReactiveKafkaConsumer<K, V> build() {
+            return new ReactiveKafkaConsumer<>(this);
+        }
+
+        private static int requirePositive(int value, String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " must be positive");
+            }
+            return value;
+        }
+    }
+}
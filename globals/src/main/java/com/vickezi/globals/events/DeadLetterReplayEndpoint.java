@@ -0,0 +1,65 @@
+package com.vickezi.globals.events;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Actuator endpoint ({@code /actuator/dlqreplay}) driving the {@link DeadLetterReplayService}.
+ * <pre>
+ * POST   /actuator/dlqreplay {"types": "EmailRegistrationEvent", "from": "2025-03-01T00:00:00Z", "rate": 50, "dryRun": true}
+ * GET    /actuator/dlqreplay
+ * DELETE /actuator/dlqreplay
+ * </pre>
+ */
+@Endpoint(id = "dlqreplay")
+public class DeadLetterReplayEndpoint {
+    private static final double DEFAULT_RATE = 100;
+
+    private final DeadLetterReplayService replayService;
+
+    public DeadLetterReplayEndpoint(DeadLetterReplayService replayService) {
+        this.replayService = replayService;
+    }
+
+    @ReadOperation
+    public ReplayProgress progress() {
+        return replayService.progress();
+    }
+
+    /**
+     * Starts a replay.
+     *
+     * @param types comma-separated event types to replay, every type if absent
+     * @param from ISO-8601 instant of the earliest record to replay
+     * @param to ISO-8601 instant the records must be older than
+     * @param rate records sent per second, 100 if absent
+     * @param dryRun only count the records that would be replayed
+     * @return the progress of the new replay
+     */
+    @WriteOperation
+    public ReplayProgress start(@Nullable String types, @Nullable String from, @Nullable String to,
+                                @Nullable Double rate, @Nullable Boolean dryRun) {
+        Set<String> eventTypes = types == null ? Set.of() : Arrays.stream(types.split(","))
+                .map(String::trim)
+                .filter(type -> !type.isEmpty())
+                .collect(Collectors.toSet());
+        return replayService.start(new ReplayRequest(eventTypes,
+                from == null ? null : Instant.parse(from),
+                to == null ? null : Instant.parse(to),
+                rate == null ? DEFAULT_RATE : rate,
+                Boolean.TRUE.equals(dryRun)));
+    }
+
+    @DeleteOperation
+    public ReplayProgress cancel() {
+        return replayService.cancel();
+    }
+}
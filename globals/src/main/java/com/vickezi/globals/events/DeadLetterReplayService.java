@@ -0,0 +1,280 @@
+package com.vickezi.globals.events;
+
+import com.vickezi.globals.util.TokenBucket;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordDeserializationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.vickezi.globals.util.Constants.DEAD_LETTER_REPLAYED_FROM_HEADER;
+import static com.vickezi.globals.util.Constants.DEAD_LETTER_TOPIC;
+
+/**
+ * Streams {@link com.vickezi.globals.util.Constants#DEAD_LETTER_TOPIC} back to the topics its records came from.
+ * <p>
+ * A replay reads every partition from the start of the requested time range up to the end offsets found when it
+ * started, so records dead-lettered again during the replay are not picked up twice. Selected records are sent to
+ * the topic named by their original topic header, or to the topic their event type is normally sent to, through a
+ * {@link TokenBucket} so the replay cannot crowd out live traffic. A dry run only counts what would be replayed.
+ * <p>
+ * The replay does not join a consumer group or commit offsets: it can be repeated, and consumers should treat the
+ * {@link com.vickezi.globals.util.Constants#DEAD_LETTER_REPLAYED_FROM_HEADER} header as a hint that a record may
+ * have been seen before. One replay runs at a time, on its own thread.
+ */
+@Service
+public class DeadLetterReplayService implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(DeadLetterReplayService.class);
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final long PROGRESS_LOG_INTERVAL = 1000;
+    /** Bounds how long the permits for one batch take to gather when throttled. */
+    private static final int MAX_POLL_RECORDS = 100;
+
+    private final ConsumerFactory<String, Object> consumerFactory;
+    private final KafkaTemplate<String, Object> template;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "dlq-replay"));
+    private volatile Run current;
+
+    public DeadLetterReplayService(ConsumerFactory<String, Object> consumerFactory,
+                                   KafkaTemplate<String, Object> template) {
+        this.consumerFactory = consumerFactory;
+        this.template = template;
+    }
+
+    /**
+     * Starts a replay in the background.
+     *
+     * @param request the records to replay and how fast
+     * @return the progress of the new replay
+     * @throws IllegalStateException if a replay is already running
+     */
+    public synchronized ReplayProgress start(ReplayRequest request) {
+        if (current != null && current.state == ReplayProgress.State.RUNNING) {
+            throw new IllegalStateException("A dead-letter replay is already running");
+        }
+        Run run = new Run(request);
+        current = run;
+        // Taken before the replay thread can finish the run
+        ReplayProgress started = run.snapshot();
+        executor.execute(() -> replay(run));
+        logger.info("Dead-letter replay started: {}", request);
+        return started;
+    }
+
+    /**
+     * @return the progress of the current or last replay
+     */
+    public ReplayProgress progress() {
+        Run run = current;
+        return run == null ? ReplayProgress.idle() : run.snapshot();
+    }
+
+    /**
+     * Asks the running replay to stop after the batch in progress.
+     *
+     * @return the progress of the replay
+     */
+    public ReplayProgress cancel() {
+        Run run = current;
+        if (run != null) {
+            run.cancelled = true;
+        }
+        return progress();
+    }
+
+    private void replay(Run run) {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(MAX_POLL_RECORDS));
+        // Dead letters are written in the transactions of the listeners that failed, which may still abort
+        overrides.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        try (Consumer<String, Object> consumer = consumerFactory.createConsumer("dlq-replay", "dlq-replay", null,
+                overrides)) {
+            List<TopicPartition> partitions = consumer.partitionsFor(DEAD_LETTER_TOPIC).stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> endOffsets = new HashMap<>(consumer.endOffsets(partitions));
+            seekToStart(consumer, partitions, endOffsets, run.request.from());
+            TokenBucket bucket = new TokenBucket(run.request.ratePerSecond(), Math.max(1, run.request.ratePerSecond()));
+            endOffsets.entrySet().removeIf(end -> consumer.position(end.getKey()) >= end.getValue());
+            long nextProgressLog = PROGRESS_LOG_INTERVAL;
+
+            while (!endOffsets.isEmpty() && !run.cancelled && !Thread.currentThread().isInterrupted()) {
+                ConsumerRecords<String, Object> records;
+                try {
+                    records = consumer.poll(POLL_TIMEOUT);
+                } catch (RecordDeserializationException ex) {
+                    logger.warn("Skipping unreadable dead-letter record {}@{}: {}", ex.topicPartition(), ex.offset(),
+                            ex.getMessage());
+                    run.failed.incrementAndGet();
+                    consumer.seek(ex.topicPartition(), ex.offset() + 1);
+                    continue;
+                }
+                List<ProducerRecord<String, Object>> batch = select(records, endOffsets, run);
+                if (!run.request.dryRun()) {
+                    send(batch, bucket, run);
+                }
+                endOffsets.entrySet().removeIf(end -> consumer.position(end.getKey()) >= end.getValue());
+                if (run.scanned.get() >= nextProgressLog) {
+                    logger.info("Dead-letter replay progress: {}", run.snapshot());
+                    nextProgressLog = run.scanned.get() + PROGRESS_LOG_INTERVAL;
+                }
+            }
+            run.finish(endOffsets.isEmpty() ? ReplayProgress.State.COMPLETED : ReplayProgress.State.CANCELLED);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            run.finish(ReplayProgress.State.CANCELLED);
+        } catch (RuntimeException ex) {
+            logger.error("❌ Dead-letter replay failed: {}", ex.getMessage(), ex);
+            run.finish(ReplayProgress.State.FAILED);
+        }
+        logger.info("Dead-letter replay finished: {}", run.snapshot());
+    }
+
+    private static void seekToStart(Consumer<String, Object> consumer, List<TopicPartition> partitions,
+                                    Map<TopicPartition, Long> endOffsets, Instant from) {
+        if (from == null) {
+            consumer.seekToBeginning(partitions);
+            return;
+        }
+        Map<TopicPartition, Long> timestamps = new HashMap<>();
+        partitions.forEach(partition -> timestamps.put(partition, from.toEpochMilli()));
+        Map<TopicPartition, OffsetAndTimestamp> offsets = consumer.offsetsForTimes(timestamps);
+        for (TopicPartition partition : partitions) {
+            OffsetAndTimestamp offset = offsets.get(partition);
+            consumer.seek(partition, offset == null ? endOffsets.get(partition) : offset.offset());
+        }
+    }
+
+    /**
+     * Filters a poll down to the records to send back, counting what was read and selected.
+     */
+    private static List<ProducerRecord<String, Object>> select(ConsumerRecords<String, Object> records,
+                                                               Map<TopicPartition, Long> endOffsets, Run run) {
+        List<ProducerRecord<String, Object>> batch = new ArrayList<>();
+        for (ConsumerRecord<String, Object> record : records) {
+            Long end = endOffsets.get(new TopicPartition(record.topic(), record.partition()));
+            if (end == null || record.offset() >= end) {
+                continue;
+            }
+            run.scanned.incrementAndGet();
+            String eventType = DeadLetters.eventType(record.headers(), record.value());
+            if (!run.request.matches(eventType, record.timestamp())) {
+                continue;
+            }
+            run.matched.incrementAndGet();
+            String topic = DeadLetters.originalTopic(record.headers(), eventType);
+            if (topic == null) {
+                run.unroutable.incrementAndGet();
+                continue;
+            }
+            ProducerRecord<String, Object> replay = new ProducerRecord<>(topic, record.key(), record.value());
+            replay.headers().add(DEAD_LETTER_REPLAYED_FROM_HEADER,
+                    (record.partition() + "@" + record.offset()).getBytes(StandardCharsets.UTF_8));
+            batch.add(replay);
+        }
+        return batch;
+    }
+
+    /**
+     * Sends a batch at the replay rate and waits for the acknowledgements, so the replay never runs ahead of the
+     * brokers. A transactional template sends the whole batch in one transaction, opened once the permits for the
+     * batch are taken, so a slow replay rate never holds a transaction open past its timeout.
+     */
+    private void send(List<ProducerRecord<String, Object>> batch, TokenBucket bucket, Run run)
+            throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>(batch.size());
+        try {
+            if (template.isTransactional()) {
+                for (int i = 0; i < batch.size(); i++) {
+                    bucket.acquire();
+                }
+                template.executeInTransaction(operations -> {
+                    batch.forEach(record -> sends.add(operations.send(record)));
+                    return null;
+                });
+            } else {
+                for (ProducerRecord<String, Object> record : batch) {
+                    bucket.acquire();
+                    sends.add(template.send(record));
+                }
+            }
+        } catch (RuntimeException ex) {
+            logger.error("❌ Dead-letter replay batch of {} records failed: {}", batch.size(), ex.getMessage(), ex);
+            run.failed.addAndGet(batch.size());
+            return;
+        }
+        for (CompletableFuture<SendResult<String, Object>> sent : sends) {
+            try {
+                sent.join();
+                run.replayed.incrementAndGet();
+            } catch (RuntimeException ex) {
+                run.failed.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    /**
+     * State of one replay, updated by the replay thread and read by {@link #progress()}.
+     */
+    private static final class Run {
+        private final ReplayRequest request;
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong matched = new AtomicLong();
+        private final AtomicLong replayed = new AtomicLong();
+        private final AtomicLong unroutable = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile ReplayProgress.State state = ReplayProgress.State.RUNNING;
+        private volatile Instant finishedAt;
+
+        Run(ReplayRequest request) {
+            this.request = request;
+        }
+
+        void finish(ReplayProgress.State finalState) {
+            finishedAt = Instant.now();
+            state = finalState;
+        }
+
+        ReplayProgress snapshot() {
+            return new ReplayProgress(state, request, scanned.get(), matched.get(), replayed.get(), unroutable.get(),
+                    failed.get(), startedAt, finishedAt);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.vickezi.globals.events;
+
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static com.vickezi.globals.util.Constants.*;
+
+/**
+ * Builds the records written to {@link com.vickezi.globals.util.Constants#DEAD_LETTER_TOPIC} and reads their
+ * routing headers back. Every producer of dead letters goes through {@link #record}, so the replay can send each
+ * record back to where it came from.
+ */
+public final class DeadLetters {
+    /**
+     * Where records dead-lettered without an original topic header are replayed to.
+     */
+    private static final Map<String, String> TOPICS_BY_EVENT_TYPE = Map.of(
+            EmailRegistrationEvent.class.getSimpleName(), USER_EMAIL_REGISTERED_EVENT_TOPIC,
+            EmailVerificationEvent.class.getSimpleName(), EMAIL_VERIFICATION_MESSAGE_TOPIC,
+            RegistrationMessage.class.getSimpleName(), USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC);
+
+    private DeadLetters() {
+    }
+
+    /**
+     * Builds a dead-letter record carrying the original topic and the event type as headers.
+     *
+     * @param originalTopic the topic the message was read from or meant for, may be null if unknown
+     * @param key the record key, may be null
+     * @param message the message that failed
+     * @param <V> the message type
+     * @return the record to send to the dead-letter topic
+     */
+    public static <V> ProducerRecord<String, V> record(String originalTopic, String key, V message) {
+        ProducerRecord<String, V> record = new ProducerRecord<>(DEAD_LETTER_TOPIC, key, message);
+        if (originalTopic != null) {
+            record.headers().add(DEAD_LETTER_ORIGINAL_TOPIC_HEADER, originalTopic.getBytes(StandardCharsets.UTF_8));
+        }
+        if (message != null) {
+            record.headers().add(DEAD_LETTER_EVENT_TYPE_HEADER,
+                    message.getClass().getSimpleName().getBytes(StandardCharsets.UTF_8));
+        }
+        return record;
+    }
+
+    /**
+     * @param headers the headers of a dead-letter record
+     * @param value the deserialized value, used when the record predates the event type header
+     * @return the simple class name of the event, or null if unknown
+     */
+    public static String eventType(Headers headers, Object value) {
+        String header = lastHeader(headers, DEAD_LETTER_EVENT_TYPE_HEADER);
+        if (header != null) {
+            return header;
+        }
+        return value == null ? null : value.getClass().getSimpleName();
+    }
+
+    /**
+     * Resolves the topic a dead-letter record is replayed to: the original topic header when present, otherwise
+     * the topic its event type is normally sent to.
+     *
+     * @param headers the headers of a dead-letter record
+     * @param eventType the event type of the record, may be null
+     * @return the destination topic, or null if the record cannot be routed
+     */
+    public static String originalTopic(Headers headers, String eventType) {
+        String header = lastHeader(headers, DEAD_LETTER_ORIGINAL_TOPIC_HEADER);
+        if (header != null) {
+            return header;
+        }
+        return eventType == null ? null : TOPICS_BY_EVENT_TYPE.get(eventType);
+    }
+
+    private static String lastHeader(Headers headers, String name) {
+        Header header = headers == null ? null : headers.lastHeader(name);
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+}
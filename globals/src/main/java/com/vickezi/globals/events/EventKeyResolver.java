@@ -0,0 +1,81 @@
+package com.vickezi.globals.events;
+
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Resolves the Kafka record key of an event from its type.
+ * <p>
+ * The default partitioner hashes the key, so records sharing a key land on the same partition and are consumed in
+ * order, while distinct keys spread across all partitions of the topic. Extractors are looked up by the exact class
+ * of the event; events without one are sent without a key.
+ * <p>
+ * {@link MessageProducerService} uses {@link #defaults()} unless the application declares its own
+ * {@code EventKeyResolver} bean.
+ */
+public final class EventKeyResolver {
+    private final Map<Class<?>, Function<Object, String>> extractors;
+
+    private EventKeyResolver(Map<Class<?>, Function<Object, String>> extractors) {
+        this.extractors = Map.copyOf(extractors);
+    }
+
+    /**
+     * Keys registrations by email and every later step of a registration by its messageId, so the events of one
+     * user are never reordered.
+     *
+     * @return the resolver for the globals event records
+     */
+    public static EventKeyResolver defaults() {
+        return builder()
+                .key(EmailRegistrationEvent.class, EmailRegistrationEvent::email)
+                .key(EmailVerificationEvent.class, EmailVerificationEvent::messageId)
+                .key(RegistrationMessage.class, RegistrationMessage::messageId)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param event the event about to be sent, may be null
+     * @return the record key, or null to let the producer spread the records
+     */
+    public String keyFor(Object event) {
+        if (event == null) {
+            return null;
+        }
+        Function<Object, String> extractor = extractors.get(event.getClass());
+        return extractor == null ? null : extractor.apply(event);
+    }
+
+    public static final class Builder {
+        private final Map<Class<?>, Function<Object, String>> extractors = new HashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Registers the key extractor of an event type, replacing any previous one.
+         *
+         * @param type the event class
+         * @param extractor derives the record key from an event
+         * @param <E> the event type
+         * @return this builder
+         */
+        public <E> Builder key(Class<E> type, Function<? super E, String> extractor) {
+            extractors.put(type, event -> extractor.apply(type.cast(event)));
+            return this;
+        }
+
+        public EventKeyResolver build() {
+            return new EventKeyResolver(extractors);
+        }
+    }
+}
@@ -1,35 +1,76 @@
 package com.vickezi.globals.events;
 
+import com.vickezi.globals.logging.SampledLogger;
+import com.vickezi.globals.tracing.TraceContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Import;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 /**
  * Service for producing messages to a Kafka queue.
+ * <p>
+ * Topics configured in {@link ProducerIsolationProperties} are sent through a dedicated producer instance, so a
+ * burst on one topic cannot fill the record accumulator used by another. All other topics share the
+ * application-wide {@link KafkaTemplate}.
+ * <p>
+ * Records are keyed by the {@link EventKeyResolver} so the events of one entity stay ordered on one partition while
+ * different entities are consumed in parallel. The resulting spread is reported by {@link PartitionSkewEndpoint}.
+ * <p>
+ * Send latency, in-flight sends, record sizes, retries, batch fill and failures are published as Micrometer meters,
+ * see {@link ProducerMetrics}. A {@link TraceContext} bound to the sending thread is copied onto the record.
  *
  * @param <T> the type of the message
  */
 @Service
-public class MessageProducerService<T> {
+@EnableConfigurationProperties(ProducerIsolationProperties.class)
+@Import(PartitionSkewEndpoint.class)
+public class MessageProducerService<T> implements DisposableBean {
     private static final Logger logger = LoggerFactory.getLogger(MessageProducerService.class);
+    private static final SampledLogger sampledLogger = SampledLogger.perSecond(logger, 10);
 
     private final KafkaTemplate<String, T> template;
+    private final Map<String, KafkaTemplate<String, T>> isolatedTemplates;
+    private final EventKeyResolver keyResolver;
+    private final PartitionSkewTracker skewTracker = new PartitionSkewTracker();
+    private final ProducerMetrics metrics;
     /**
      * Constructs a new MessageProducerService with the given KafkaTemplate.
      *
      * @param template the KafkaTemplate to use for sending messages
+     * @param isolationProperties the topics that get a dedicated producer instance
+     * @param keyResolver the record key extractors, {@link EventKeyResolver#defaults()} if none is declared
+     * @param meterRegistry the registry to publish the producer meters to, if any
      */
-    public MessageProducerService(KafkaTemplate<String, T> template) {
+    public MessageProducerService(KafkaTemplate<String, T> template, ProducerIsolationProperties isolationProperties,
+                                  ObjectProvider<EventKeyResolver> keyResolver,
+                                  ObjectProvider<MeterRegistry> meterRegistry) {
         this.template = template;
+        this.isolatedTemplates = createIsolatedTemplates(template, isolationProperties);
+        this.keyResolver = keyResolver.getIfAvailable(EventKeyResolver::defaults);
+        this.metrics = new ProducerMetrics(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+        // Bound after the isolated copies are made, so each factory reports against its own batch.size
+        metrics.bind(template.getProducerFactory());
+        isolatedTemplates.values().forEach(isolated -> metrics.bind(isolated.getProducerFactory()));
     }
     /**
      * Asynchronously sends a message to the specified Kafka topic and handles both success and failure cases.
+     * The record key is taken from the {@link EventKeyResolver}, see {@link #addMessageToQueue(String, String, Object)}.
      * This method leverages the {@link KafkaTemplate#send(String, Object)} method to send a message to a Kafka topic.
      * It returns a {@link CompletableFuture} that allows the caller to track the message sending result asynchronously.
      * Steps:
@@ -59,10 +100,34 @@ public class MessageProducerService<T> {
      * </pre>
      */
     public CompletableFuture<SendResult<String, T>> addMessageToQueue(String topic, T message) {
-        return template.send(topic, message)
+        return addMessageToQueue(topic, keyResolver.keyFor(message), message);
+    }
+
+    /**
+     * Asynchronously sends a keyed message to the specified Kafka topic. Messages with the same key are written to
+     * the same partition, in the order they are sent.
+     *
+     * @param topic The Kafka topic to which the message is sent.
+     * @param key The record key, or null to let the producer pick the partition.
+     * @param message The message payload to be sent to the Kafka topic.
+     * @return A {@link CompletableFuture} completed as described in {@link #addMessageToQueue(String, Object)}.
+     */
+    public CompletableFuture<SendResult<String, T>> addMessageToQueue(String topic, String key, T message) {
+        long start = metrics.sendStarted(topic);
+        CompletableFuture<SendResult<String, T>> sent;
+        try {
+            sent = templateFor(topic).send(tracedRecord(topic, key, message));
+        } catch (RuntimeException ex) {
+            metrics.sendCompleted(topic, start, null, ex);
+            throw ex;
+        }
+        return sent
+                .whenComplete((result, ex) -> metrics.sendCompleted(topic, start,
+                        result == null ? null : result.getRecordMetadata(), ex))
                 .thenApply(result -> {
                     RecordMetadata metadata = result.getRecordMetadata();
-                    logger.info("✅ Message sent successfully to topic: {} | partition: {} | offset: {}",
+                    skewTracker.record(metadata.topic(), metadata.partition());
+                    sampledLogger.info("✅ Message sent successfully to topic: {} | partition: {} | offset: {}",
                             metadata.topic(), metadata.partition(), metadata.offset());
                     return result;
                 })
@@ -71,7 +136,106 @@ public class MessageProducerService<T> {
                     return CompletableFuture.failedFuture(new RuntimeException("Gateway message sending failed", ex));
                 });
     }
+    /**
+     * Builds the record to send, carrying the trace bound to the current thread if there is one.
+     */
+    private static <T> ProducerRecord<String, T> tracedRecord(String topic, String key, T message) {
+        ProducerRecord<String, T> record = new ProducerRecord<>(topic, key, message);
+        TraceContext trace = TraceContext.current();
+        if (trace != null) {
+            trace.inject(record.headers());
+        }
+        return record;
+    }
+
     public void sendToDeadLetterTopic(T message){
-        template.send("dead-letter-topic", message);
+        sendToDeadLetterTopic(null, message);
+    }
+
+    /**
+     * Sends a message that could not be processed to the dead-letter topic, recording where it came from so
+     * {@link DeadLetterReplayService} can send it back.
+     *
+     * @param originalTopic the topic the message was read from or meant for, null if unknown
+     * @param message the message that failed
+     */
+    public void sendToDeadLetterTopic(String originalTopic, T message) {
+        template.send(DeadLetters.record(originalTopic, keyResolver.keyFor(message), message));
+    }
+
+    /**
+     * Reports how the records acknowledged so far spread over the partitions of each topic.
+     *
+     * @return the skew report per topic
+     */
+    public Map<String, PartitionSkew> partitionSkew() {
+        return skewTracker.report(this::partitionCount);
+    }
+
+    /**
+     * Reads the partition count of a topic from the producer metadata. A transactional template cannot be used
+     * outside a transaction, in which case only the partitions that received records are reported.
+     */
+    private int partitionCount(String topic) {
+        try {
+            return templateFor(topic).partitionsFor(topic).size();
+        } catch (RuntimeException ex) {
+            logger.debug("Partition count of topic {} unavailable: {}", topic, ex.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the template that owns the given topic: its dedicated producer when one is configured,
+     * otherwise the shared template.
+     *
+     * @param topic the destination topic
+     * @return the KafkaTemplate to send with
+     */
+    private KafkaTemplate<String, T> templateFor(String topic) {
+        return isolatedTemplates.getOrDefault(topic, template);
+    }
+
+    /**
+     * Creates one KafkaTemplate per configured topic by copying the shared producer factory with the topic's
+     * overrides. The copied factories keep the shared serializers and producer listeners, so the Micrometer
+     * binding registered by Spring Boot reports each producer under its own {@code client.id}.
+     * <p>
+     * Transactional templates are left shared: a send issued inside {@code executeInTransaction} has to go through
+     * the producer bound to that transaction, which a separate instance would not join.
+     */
+    private static <T> Map<String, KafkaTemplate<String, T>> createIsolatedTemplates(
+            KafkaTemplate<String, T> template, ProducerIsolationProperties isolationProperties) {
+        Map<String, KafkaTemplate<String, T>> templates = new HashMap<>();
+        if (isolationProperties == null || isolationProperties.getTopics().isEmpty()) {
+            return templates;
+        }
+        if (template.isTransactional()) {
+            logger.warn("Per-topic producers are not supported for transactional templates, topics {} will share " +
+                    "the default producer", isolationProperties.getTopics().keySet());
+            return templates;
+        }
+        Object baseClientId = template.getProducerFactory().getConfigurationProperties()
+                .getOrDefault(ProducerConfig.CLIENT_ID_CONFIG, "producer");
+        isolationProperties.getTopics().forEach((topic, settings) -> {
+            KafkaTemplate<String, T> isolated = new KafkaTemplate<>(template.getProducerFactory(),
+                    settings.toOverrides(baseClientId + "-" + topic));
+            isolated.setDefaultTopic(topic);
+            templates.put(topic, isolated);
+            logger.info("Using a dedicated producer for topic: {}", topic);
+        });
+        return Map.copyOf(templates);
+    }
+
+    /**
+     * Closes the producers created for isolated topics. The shared template is owned by the application context.
+     */
+    @Override
+    public void destroy() throws Exception {
+        for (KafkaTemplate<String, T> isolated : isolatedTemplates.values()) {
+            if (isolated.getProducerFactory() instanceof DisposableBean disposable) {
+                disposable.destroy();
+            }
+        }
     }
 }
@@ -0,0 +1,15 @@
+package com.vickezi.globals.events;
+
+import java.util.Map;
+
+/**
+ * Distribution of the records sent to one topic over its partitions.
+ *
+ * @param records the records acknowledged per partition, including partitions that received none
+ * @param total   the records acknowledged across the topic
+ * @param max     the records on the busiest partition
+ * @param skew    {@code max} divided by the mean per partition: 1.0 is an even spread, the partition count means
+ *                every record went to the same partition
+ */
+public record PartitionSkew(Map<Integer, Long> records, long total, long max, double skew) {
+}
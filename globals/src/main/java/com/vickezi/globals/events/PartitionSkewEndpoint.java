@@ -0,0 +1,24 @@
+package com.vickezi.globals.events;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint ({@code /actuator/partitionskew}) reporting how the records sent by
+ * {@link MessageProducerService} spread over the partitions of each topic.
+ */
+@Endpoint(id = "partitionskew")
+public class PartitionSkewEndpoint {
+    private final MessageProducerService<?> messageProducerService;
+
+    public PartitionSkewEndpoint(MessageProducerService<?> messageProducerService) {
+        this.messageProducerService = messageProducerService;
+    }
+
+    @ReadOperation
+    public Map<String, PartitionSkew> partitionSkew() {
+        return messageProducerService.partitionSkew();
+    }
+}
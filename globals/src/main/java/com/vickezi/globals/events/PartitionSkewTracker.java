@@ -0,0 +1,53 @@
+package com.vickezi.globals.events;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Counts acknowledged records per topic and partition, to check that record keys spread evenly.
+ */
+public final class PartitionSkewTracker {
+    private final Map<String, Map<Integer, LongAdder>> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Counts one record acknowledged by the broker.
+     *
+     * @param topic     the topic the record was written to
+     * @param partition the partition the record was written to
+     */
+    public void record(String topic, int partition) {
+        counts.computeIfAbsent(topic, ignored -> new ConcurrentHashMap<>())
+                .computeIfAbsent(partition, ignored -> new LongAdder())
+                .increment();
+    }
+
+    /**
+     * Builds the skew report of every topic seen so far.
+     *
+     * @param partitionCounts the partition count of a topic, or 0 if unknown; partitions that never received a
+     *                        record are only reported when the count is known
+     * @return the report per topic, sorted by topic
+     */
+    public Map<String, PartitionSkew> report(ToIntFunction<String> partitionCounts) {
+        Map<String, PartitionSkew> report = new TreeMap<>();
+        counts.forEach((topic, partitions) -> {
+            Map<Integer, Long> records = new TreeMap<>();
+            for (int partition = 0; partition < partitionCounts.applyAsInt(topic); partition++) {
+                records.put(partition, 0L);
+            }
+            partitions.forEach((partition, count) -> records.put(partition, count.sum()));
+            long total = 0;
+            long max = 0;
+            for (long count : records.values()) {
+                total += count;
+                max = Math.max(max, count);
+            }
+            double skew = total == 0 ? 0.0 : (double) max * records.size() / total;
+            report.put(topic, new PartitionSkew(records, total, max, skew));
+        });
+        return report;
+    }
+}
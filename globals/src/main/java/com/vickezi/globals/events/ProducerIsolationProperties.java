@@ -0,0 +1,111 @@
+package com.vickezi.globals.events;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-topic producer settings for {@link MessageProducerService}.
+ * <p>
+ * Every topic listed under {@code vickezi.kafka.producer.topics} gets its own Kafka producer, with its own
+ * record accumulator, batching and linger settings, instead of sharing the application-wide {@code KafkaTemplate}.
+ * A burst on one topic can then only exhaust that topic's buffer memory. Topics that are not listed keep using
+ * the shared template.
+ * <pre>
+ * vickezi.kafka.producer.topics.user_registration_confirmation.linger-ms=0
+ * vickezi.kafka.producer.topics.user_registration_confirmation.buffer-memory=8388608
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "vickezi.kafka.producer")
+public class ProducerIsolationProperties {
+    private Map<String, TopicProducer> topics = new HashMap<>();
+
+    public Map<String, TopicProducer> getTopics() {
+        return topics;
+    }
+
+    public void setTopics(Map<String, TopicProducer> topics) {
+        this.topics = topics;
+    }
+
+    /**
+     * Producer overrides for a single topic. Unset values fall back to the shared {@code spring.kafka.producer}
+     * configuration.
+     */
+    public static class TopicProducer {
+        private Long bufferMemory;
+        private Integer batchSize;
+        private Long lingerMs;
+        private Long maxBlockMs;
+        private String compressionType;
+
+        public Long getBufferMemory() {
+            return bufferMemory;
+        }
+
+        public void setBufferMemory(Long bufferMemory) {
+            this.bufferMemory = bufferMemory;
+        }
+
+        public Integer getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(Integer batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Long getLingerMs() {
+            return lingerMs;
+        }
+
+        public void setLingerMs(Long lingerMs) {
+            this.lingerMs = lingerMs;
+        }
+
+        public Long getMaxBlockMs() {
+            return maxBlockMs;
+        }
+
+        public void setMaxBlockMs(Long maxBlockMs) {
+            this.maxBlockMs = maxBlockMs;
+        }
+
+        public String getCompressionType() {
+            return compressionType;
+        }
+
+        public void setCompressionType(String compressionType) {
+            this.compressionType = compressionType;
+        }
+
+        /**
+         * Builds the producer configuration overrides for this topic.
+         *
+         * @param clientId the client id of the dedicated producer, so its Kafka metrics are reported separately
+         * @return the overrides to apply on top of the shared producer configuration
+         */
+        Map<String, Object> toOverrides(String clientId) {
+            Map<String, Object> overrides = new HashMap<>();
+            overrides.put(ProducerConfig.CLIENT_ID_CONFIG, clientId);
+            if (bufferMemory != null) {
+                overrides.put(ProducerConfig.BUFFER_MEMORY_CONFIG, bufferMemory);
+            }
+            if (batchSize != null) {
+                overrides.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+            }
+            if (lingerMs != null) {
+                overrides.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+            }
+            if (maxBlockMs != null) {
+                overrides.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
+            }
+            if (compressionType != null) {
+                overrides.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+            }
+            return overrides;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.vickezi.globals.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer meters of {@link MessageProducerService}, all prefixed {@code vickezi.producer}:
+ * <ul>
+ *   <li>{@code send} - send latency per topic and outcome, published as a histogram</li>
+ *   <li>{@code in.flight} - sends issued and not yet acknowledged, per topic</li>
+ *   <li>{@code record.size} - serialized key and value bytes per acknowledged record, per topic</li>
+ *   <li>{@code send.failures} - failed sends per topic and exception</li>
+ *   <li>{@code record.retries} - records retried by each producer instance</li>
+ *   <li>{@code batch.fill.ratio} - average batch size of each producer instance over its {@code batch.size}</li>
+ * </ul>
+ * The last two are read from the Kafka client of every producer the factories create, tagged by its
+ * {@code client.id}, and removed when the producer is closed.
+ */
+class ProducerMetrics {
+    private static final String PREFIX = "vickezi.producer.";
+    private static final String PRODUCER_METRICS_GROUP = "producer-metrics";
+    private static final int DEFAULT_BATCH_SIZE = 16384;
+
+    private final MeterRegistry registry;
+    private final Map<String, TopicMeters> topics = new ConcurrentHashMap<>();
+
+    ProducerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Counts a send as in flight.
+     *
+     * @param topic the destination topic
+     * @return the start time to pass to {@link #sendCompleted}
+     */
+    long sendStarted(String topic) {
+        meters(topic).inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the outcome of a send started with {@link #sendStarted(String)}.
+     *
+     * @param topic the destination topic
+     * @param startNanos the value returned by {@link #sendStarted(String)}
+     * @param metadata the broker acknowledgement, null if the send failed
+     * @param failure the failure, null if the send succeeded
+     */
+    void sendCompleted(String topic, long startNanos, RecordMetadata metadata, Throwable failure) {
+        long elapsed = System.nanoTime() - startNanos;
+        TopicMeters meters = meters(topic);
+        meters.inFlight.decrementAndGet();
+        if (failure == null) {
+            meters.success.record(elapsed, TimeUnit.NANOSECONDS);
+            meters.recordSize.record(Math.max(metadata.serializedKeySize(), 0)
+                    + Math.max(metadata.serializedValueSize(), 0));
+        } else {
+            meters.failure.record(elapsed, TimeUnit.NANOSECONDS);
+            Counter.builder(PREFIX + "send.failures")
+                    .tags("topic", topic, "exception", rootCause(failure).getClass().getSimpleName())
+                    .register(registry)
+                    .increment();
+        }
+    }
+
+    /**
+     * Binds the retry and batch meters of every producer the factory creates from now on.
+     *
+     * @param factory the producer factory to observe
+     */
+    <K, V> void bind(ProducerFactory<K, V> factory) {
+        int batchSize = batchSize(factory.getConfigurationProperties().get(ProducerConfig.BATCH_SIZE_CONFIG));
+        factory.addListener(new ClientMetricsListener<>(batchSize));
+    }
+
+    private TopicMeters meters(String topic) {
+        return topics.computeIfAbsent(topic, TopicMeters::new);
+    }
+
+    private static Throwable rootCause(Throwable failure) {
+        Throwable cause = failure;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static int batchSize(Object configured) {
+        if (configured instanceof Number number) {
+            return number.intValue();
+        }
+        return configured == null ? DEFAULT_BATCH_SIZE : Integer.parseInt(configured.toString());
+    }
+
+    private static double clientMetric(Producer<?, ?> producer, String name) {
+        for (Map.Entry<MetricName, ? extends Metric> entry : producer.metrics().entrySet()) {
+            MetricName metricName = entry.getKey();
+            if (metricName.name().equals(name) && metricName.group().equals(PRODUCER_METRICS_GROUP)) {
+                Object value = entry.getValue().metricValue();
+                return value instanceof Number number ? number.doubleValue() : Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Per-topic meters, resolved once so the send path does not look them up in the registry.
+     */
+    private final class TopicMeters {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Timer success;
+        private final Timer failure;
+        private final DistributionSummary recordSize;
+
+        TopicMeters(String topic) {
+            this.success = sendTimer(topic, "success");
+            this.failure = sendTimer(topic, "failure");
+            this.recordSize = DistributionSummary.builder(PREFIX + "record.size")
+                    .baseUnit("bytes")
+                    .tag("topic", topic)
+                    .register(registry);
+            Gauge.builder(PREFIX + "in.flight", inFlight, AtomicInteger::get)
+                    .tag("topic", topic)
+                    .register(registry);
+        }
+
+        private Timer sendTimer(String topic, String outcome) {
+            return Timer.builder(PREFIX + "send")
+                    .tags("topic", topic, "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Registers the client-level meters of a producer when it is created and removes them when it is closed.
+     */
+    private final class ClientMetricsListener<K, V> implements ProducerFactory.Listener<K, V> {
+        private final int batchSize;
+        private final Map<String, List<Meter>> meters = new ConcurrentHashMap<>();
+
+        ClientMetricsListener(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void producerAdded(String id, Producer<K, V> producer) {
+            Tags tags = Tags.of("client.id", id);
+            meters.put(id, List.of(
+                    FunctionCounter.builder(PREFIX + "record.retries", producer,
+                                    p -> clientMetric(p, "record-retry-total"))
+                            .tags(tags)
+                            .register(registry),
+                    Gauge.builder(PREFIX + "batch.fill.ratio", producer,
+                                    p -> clientMetric(p, "batch-size-avg") / batchSize)
+                            .tags(tags)
+                            .register(registry)));
+        }
+
+        @Override
+        public void producerRemoved(String id, Producer<K, V> producer) {
+            List<Meter> removed = meters.remove(id);
+            if (removed != null) {
+                removed.forEach(registry::remove);
+            }
+        }
+    }
+}
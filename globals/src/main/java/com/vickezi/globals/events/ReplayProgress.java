@@ -0,0 +1,27 @@
+package com.vickezi.globals.events;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of a dead-letter replay.
+ *
+ * @param state      the replay state
+ * @param request    the replay selection, null if no replay was started
+ * @param scanned    dead-letter records read so far
+ * @param matched    records selected by the request
+ * @param replayed   records acknowledged on their original topic
+ * @param unroutable selected records without an original topic
+ * @param failed     records that could not be read or sent
+ * @param startedAt  when the replay started
+ * @param finishedAt when the replay ended, null while running
+ */
+public record ReplayProgress(State state, ReplayRequest request, long scanned, long matched, long replayed,
+                             long unroutable, long failed, Instant startedAt, Instant finishedAt) {
+    public enum State {
+        IDLE, RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    static ReplayProgress idle() {
+        return new ReplayProgress(State.IDLE, null, 0, 0, 0, 0, 0, null, null);
+    }
+}
@@ -0,0 +1,36 @@
+package com.vickezi.globals.events;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Selects the dead-letter records to replay and how fast.
+ *
+ * @param eventTypes     simple class names of the events to replay, every type if empty
+ * @param from           the earliest record timestamp to replay, inclusive, or null for the start of the topic
+ * @param to             the latest record timestamp to replay, exclusive, or null for no bound
+ * @param ratePerSecond  the most records sent back per second
+ * @param dryRun         count the matching records without sending them
+ */
+public record ReplayRequest(Set<String> eventTypes, Instant from, Instant to, double ratePerSecond, boolean dryRun) {
+    public ReplayRequest {
+        eventTypes = eventTypes == null ? Set.of() : Set.copyOf(eventTypes);
+        if (!(ratePerSecond > 0)) {
+            throw new IllegalArgumentException("Replay rate must be positive");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Replay time range is empty");
+        }
+    }
+
+    /**
+     * @param eventType the event type of a record, may be null
+     * @param timestamp the record timestamp in epoch milliseconds
+     * @return true if the record is selected
+     */
+    public boolean matches(String eventType, long timestamp) {
+        return (eventTypes.isEmpty() || eventTypes.contains(eventType))
+                && (from == null || timestamp >= from.toEpochMilli())
+                && (to == null || timestamp < to.toEpochMilli());
+    }
+}
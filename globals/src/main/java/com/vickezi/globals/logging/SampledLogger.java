@@ -0,0 +1,273 @@
+package com.vickezi.globals.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rate-limited view of a {@link Logger} for messages written once per event.
+ * <p>
+ * At most {@code permits} messages are written per interval; the rest are counted and dropped, and the first
+ * message of the next interval that gets through reports how many were dropped. A disabled level or a dropped
+ * message costs a check and the arguments are never formatted; as with SLF4J's own overloads, the methods taking
+ * one or two arguments allocate nothing until a message is written, and only the varargs ones build an array at
+ * the call site. Sample warnings and errors only where they repeat per event; others should keep going to the
+ * logger itself.
+ * <pre>
+ * private static final SampledLogger sampled = SampledLogger.perSecond(logger, 10);
+ * sampled.info("Message sent to topic: {} | partition: {}", topic, partition);
+ * </pre>
+ */
+public final class SampledLogger {
+    private static final String SUPPRESSED = " [{} similar messages suppressed]";
+
+    private final Logger logger;
+    private final int permits;
+    private final long intervalNanos;
+    private final AtomicLong windowStart;
+    private final AtomicLong windowCount = new AtomicLong();
+    private final LongAdder suppressed = new LongAdder();
+
+    private SampledLogger(Logger logger, int permits, Duration interval) {
+        if (permits < 1 || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Sampling needs at least one permit per positive interval");
+        }
+        this.logger = logger;
+        this.permits = permits;
+        this.intervalNanos = interval.toNanos();
+        this.windowStart = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * @param logger the logger to write to
+     * @param permits the messages written per second
+     * @return the sampled logger
+     */
+    public static SampledLogger perSecond(Logger logger, int permits) {
+        return new SampledLogger(logger, permits, Duration.ofSeconds(1));
+    }
+
+    /**
+     * @param logger the logger to write to
+     * @param permits the messages written per interval
+     * @param interval the sampling interval
+     * @return the sampled logger
+     */
+    public static SampledLogger of(Logger logger, int permits, Duration interval) {
+        return new SampledLogger(logger, permits, interval);
+    }
+
+    public void trace(String format) {
+        log(Level.TRACE, format);
+    }
+
+    public void trace(String format, Object argument) {
+        log(Level.TRACE, format, argument);
+    }
+
+    public void trace(String format, Object first, Object second) {
+        log(Level.TRACE, format, first, second);
+    }
+
+    public void trace(String format, Object... arguments) {
+        log(Level.TRACE, format, arguments);
+    }
+
+    public void debug(String format) {
+        log(Level.DEBUG, format);
+    }
+
+    public void debug(String format, Object argument) {
+        log(Level.DEBUG, format, argument);
+    }
+
+    public void debug(String format, Object first, Object second) {
+        log(Level.DEBUG, format, first, second);
+    }
+
+    public void debug(String format, Object... arguments) {
+        log(Level.DEBUG, format, arguments);
+    }
+
+    public void info(String format) {
+        log(Level.INFO, format);
+    }
+
+    public void info(String format, Object argument) {
+        log(Level.INFO, format, argument);
+    }
+
+    public void info(String format, Object first, Object second) {
+        log(Level.INFO, format, first, second);
+    }
+
+    public void info(String format, Object... arguments) {
+        log(Level.INFO, format, arguments);
+    }
+
+    public void warn(String format) {
+        log(Level.WARN, format);
+    }
+
+    public void warn(String format, Object argument) {
+        log(Level.WARN, format, argument);
+    }
+
+    public void warn(String format, Object first, Object second) {
+        log(Level.WARN, format, first, second);
+    }
+
+    public void warn(String format, Object... arguments) {
+        log(Level.WARN, format, arguments);
+    }
+
+    public void error(String format) {
+        log(Level.ERROR, format);
+    }
+
+    public void error(String format, Object argument) {
+        log(Level.ERROR, format, argument);
+    }
+
+    public void error(String format, Object first, Object second) {
+        log(Level.ERROR, format, first, second);
+    }
+
+    public void error(String format, Object... arguments) {
+        log(Level.ERROR, format, arguments);
+    }
+
+    /**
+     * Writes a message without arguments if the level is enabled and the interval still has a permit.
+     *
+     * @param level the level to log at
+     * @param format the message
+     */
+    public void log(Level level, String format) {
+        if (!admit(level)) {
+            return;
+        }
+        long dropped = suppressed.sumThenReset();
+        if (dropped != 0) {
+            logger.atLevel(level).log(format + SUPPRESSED, dropped);
+            return;
+        }
+        switch (level) {
+            case ERROR -> logger.error(format);
+            case WARN -> logger.warn(format);
+            case INFO -> logger.info(format);
+            case DEBUG -> logger.debug(format);
+            case TRACE -> logger.trace(format);
+        }
+    }
+
+    /**
+     * Writes a message with one argument if the level is enabled and the interval still has a permit.
+     *
+     * @param level the level to log at
+     * @param format the SLF4J message format
+     * @param argument the format argument
+     */
+    public void log(Level level, String format, Object argument) {
+        if (!admit(level)) {
+            return;
+        }
+        long dropped = suppressed.sumThenReset();
+        if (dropped != 0) {
+            logger.atLevel(level).log(format + SUPPRESSED, argument, dropped);
+            return;
+        }
+        switch (level) {
+            case ERROR -> logger.error(format, argument);
+            case WARN -> logger.warn(format, argument);
+            case INFO -> logger.info(format, argument);
+            case DEBUG -> logger.debug(format, argument);
+            case TRACE -> logger.trace(format, argument);
+        }
+    }
+
+    /**
+     * Writes a message with two arguments if the level is enabled and the interval still has a permit.
+     *
+     * @param level the level to log at
+     * @param format the SLF4J message format
+     * @param first the first format argument
+     * @param second the second format argument
+     */
+    public void log(Level level, String format, Object first, Object second) {
+        if (!admit(level)) {
+            return;
+        }
+        long dropped = suppressed.sumThenReset();
+        if (dropped != 0) {
+            logger.atLevel(level).log(format + SUPPRESSED, first, second, dropped);
+            return;
+        }
+        switch (level) {
+            case ERROR -> logger.error(format, first, second);
+            case WARN -> logger.warn(format, first, second);
+            case INFO -> logger.info(format, first, second);
+            case DEBUG -> logger.debug(format, first, second);
+            case TRACE -> logger.trace(format, first, second);
+        }
+    }
+
+    /**
+     * Writes the message if the level is enabled and the interval still has a permit.
+     *
+     * @param level the level to log at
+     * @param format the SLF4J message format
+     * @param arguments the format arguments
+     */
+    public void log(Level level, String format, Object... arguments) {
+        if (!admit(level)) {
+            return;
+        }
+        long dropped = suppressed.sumThenReset();
+        if (dropped == 0) {
+            logger.atLevel(level).log(format, arguments);
+        } else {
+            logger.atLevel(level).log(format + SUPPRESSED, append(arguments, dropped));
+        }
+    }
+
+    /**
+     * @return the messages dropped since the last one written
+     */
+    public long suppressedCount() {
+        return suppressed.sum();
+    }
+
+    /**
+     * Checks the level, then takes a permit or counts the message as dropped.
+     */
+    private boolean admit(Level level) {
+        if (!logger.isEnabledForLevel(level)) {
+            return false;
+        }
+        if (!tryAcquire()) {
+            suppressed.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean tryAcquire() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= intervalNanos && windowStart.compareAndSet(start, now)) {
+            windowCount.set(0);
+        }
+        return windowCount.incrementAndGet() <= permits;
+    }
+
+    private static Object[] append(Object[] arguments, Object last) {
+        Object[] extended = new Object[arguments.length + 1];
+        System.arraycopy(arguments, 0, extended, 0, arguments.length);
+        extended[arguments.length] = last;
+        return extended;
+    }
+}
@@ -0,0 +1,88 @@
+package com.vickezi.globals.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long sampled traces spend in each stage of the registration flow, as Micrometer histograms tagged by
+ * {@code service} and {@code stage}:
+ * <ul>
+ *   <li>{@code vickezi.stage.queue.wait} - from a record being produced, or a task being queued, until it is
+ *   picked up</li>
+ *   <li>{@code vickezi.stage.processing} - handling a record or request</li>
+ *   <li>{@code vickezi.stage.send} - handing the result to the next system, until it is acknowledged</li>
+ *   <li>{@code vickezi.trace.elapsed} - from the gateway accepting the request until a stage completes</li>
+ * </ul>
+ * Traces are sampled with probability {@code vickezi.tracing.sample-rate}, 0.1 by default. Unsampled traces and
+ * records without a trace cost a null check.
+ */
+@Component
+public class StageTracer {
+    private final MeterRegistry registry;
+    private final double sampleRate;
+    private final String service;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public StageTracer(ObjectProvider<MeterRegistry> meterRegistry,
+                       @Value("${vickezi.tracing.sample-rate:0.1}") double sampleRate,
+                       @Value("${spring.application.name:unknown}") String service) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("vickezi.tracing.sample-rate must be between 0 and 1");
+        }
+        this.registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.sampleRate = sampleRate;
+        this.service = service;
+    }
+
+    /**
+     * Starts the trace of a newly accepted request, sampled at the configured rate.
+     *
+     * @return the new trace
+     */
+    public TraceContext start() {
+        return TraceContext.start(sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    public void recordQueueWait(String stage, TraceContext trace, long waitNanos) {
+        record("vickezi.stage.queue.wait", stage, trace, waitNanos);
+    }
+
+    public void recordProcessing(String stage, TraceContext trace, long startNanos) {
+        record("vickezi.stage.processing", stage, trace, System.nanoTime() - startNanos);
+    }
+
+    public void recordSend(String stage, TraceContext trace, long startNanos) {
+        record("vickezi.stage.send", stage, trace, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records the time since the gateway accepted the request. Measured across hosts, so it is only as accurate as
+     * their clock synchronisation.
+     */
+    public void recordEndToEnd(String stage, TraceContext trace) {
+        if (trace != null && trace.sampled()) {
+            record("vickezi.trace.elapsed", stage, trace,
+                    TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - trace.originEpochMillis()));
+        }
+    }
+
+    private void record(String name, String stage, TraceContext trace, long nanos) {
+        if (trace == null || !trace.sampled()) {
+            return;
+        }
+        timers.computeIfAbsent(name + '/' + stage, ignored -> Timer.builder(name)
+                        .tags("service", service, "stage", stage)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(Math.max(nanos, 0), TimeUnit.NANOSECONDS);
+    }
+}
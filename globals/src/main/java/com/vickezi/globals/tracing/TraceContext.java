@@ -0,0 +1,111 @@
+package com.vickezi.globals.tracing;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.vickezi.globals.util.Constants.TRACE_CONTEXT_HEADER;
+
+/**
+ * Identity of one registration as it moves from the gateway through Kafka to the email handoff.
+ * <p>
+ * The context is created once, when the gateway accepts the request. It travels between services in the
+ * {@link com.vickezi.globals.util.Constants#TRACE_CONTEXT_HEADER} record header, encoded as
+ * {@code traceId;originEpochMillis;sampled}. Inside a service it is bound to the thread handling the record, which
+ * lets {@link com.vickezi.globals.events.MessageProducerService} copy it onto every record sent on that thread.
+ * <p>
+ * Whether a trace is sampled is decided once at the origin, so every stage records the same traces.
+ *
+ * @param traceId           random 64-bit id in hex
+ * @param originEpochMillis when the gateway accepted the request
+ * @param sampled           whether stages record timings for this trace
+ */
+public record TraceContext(String traceId, long originEpochMillis, boolean sampled) {
+    private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Creates the context of a new request.
+     *
+     * @param sampled whether the stages should record this trace
+     * @return the new context
+     */
+    public static TraceContext start(boolean sampled) {
+        return new TraceContext(Long.toHexString(ThreadLocalRandom.current().nextLong()),
+                System.currentTimeMillis(), sampled);
+    }
+
+    /**
+     * @return the context bound to the current thread, or null
+     */
+    public static TraceContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds this context to the current thread until the returned scope is closed, which restores the context
+     * bound before.
+     *
+     * @return the scope to close
+     */
+    public Scope bind() {
+        TraceContext previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * @return the header value carrying this context
+     */
+    public byte[] encode() {
+        return (traceId + ';' + originEpochMillis + ';' + (sampled ? '1' : '0')).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Reads the context carried by a record.
+     *
+     * @param headers the record headers, may be null
+     * @return the context, or null if the record carries none or a malformed one
+     */
+    public static TraceContext fromHeaders(Headers headers) {
+        Header header = headers == null ? null : headers.lastHeader(TRACE_CONTEXT_HEADER);
+        if (header == null || header.value() == null) {
+            return null;
+        }
+        String[] parts = new String(header.value(), StandardCharsets.US_ASCII).split(";");
+        if (parts.length != 3 || parts[0].isEmpty()) {
+            return null;
+        }
+        try {
+            return new TraceContext(parts[0], Long.parseLong(parts[1]), "1".equals(parts[2]));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Copies this context onto an outgoing record, replacing any context it already carries.
+     *
+     * @param headers the headers of the outgoing record
+     */
+    public void inject(Headers headers) {
+        headers.remove(TRACE_CONTEXT_HEADER);
+        headers.add(TRACE_CONTEXT_HEADER, encode());
+    }
+
+    /**
+     * Binding of a context to a thread.
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
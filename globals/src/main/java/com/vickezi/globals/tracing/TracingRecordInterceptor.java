@@ -0,0 +1,67 @@
+package com.vickezi.globals.tracing;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks up the {@link TraceContext} of every record a listener receives: records the time the record waited in the
+ * topic and the time the listener spent on it, under a stage named after the topic, and binds the context to the
+ * listener thread for the duration of the call.
+ * <p>
+ * Spring Boot applies a single {@code RecordInterceptor} bean to the auto-configured listener container factory.
+ */
+@Component
+public class TracingRecordInterceptor implements RecordInterceptor<Object, Object> {
+    private final StageTracer tracer;
+    private final ThreadLocal<Active> active = new ThreadLocal<>();
+
+    public TracingRecordInterceptor(StageTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public ConsumerRecord<Object, Object> intercept(ConsumerRecord<Object, Object> record,
+                                                    Consumer<Object, Object> consumer) {
+        TraceContext trace = TraceContext.fromHeaders(record.headers());
+        if (trace != null) {
+            tracer.recordQueueWait(record.topic(), trace,
+                    TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - record.timestamp()));
+            active.set(new Active(trace, trace.bind(), System.nanoTime()));
+        }
+        return record;
+    }
+
+    @Override
+    public void success(ConsumerRecord<Object, Object> record, Consumer<Object, Object> consumer) {
+        recordProcessing(record);
+    }
+
+    @Override
+    public void failure(ConsumerRecord<Object, Object> record, Exception exception,
+                        Consumer<Object, Object> consumer) {
+        recordProcessing(record);
+    }
+
+    @Override
+    public void afterRecord(ConsumerRecord<Object, Object> record, Consumer<Object, Object> consumer) {
+        Active current = active.get();
+        if (current != null) {
+            active.remove();
+            current.scope.close();
+        }
+    }
+
+    private void recordProcessing(ConsumerRecord<Object, Object> record) {
+        Active current = active.get();
+        if (current != null) {
+            tracer.recordProcessing(record.topic(), current.trace, current.startNanos);
+        }
+    }
+
+    private record Active(TraceContext trace, TraceContext.Scope scope, long startNanos) {
+    }
+}
@@ -1,5 +1,6 @@
 package com.vickezi.globals.util;
 
+import java.util.List;
 import java.util.regex.Pattern;
 /**
  * Utility class containing constants used throughout the application.
@@ -20,6 +21,17 @@ public class Constants {
      */
     // Pattern to detect HTML tags
     public static final Pattern HTML_TAG_PATTERN = Pattern.compile("<[^>]+>", Pattern.CASE_INSENSITIVE);
+    /**
+     * Literal alternatives of {@link #SQL_INJECTION_PATTERN} and {@link #XSS_PATTERN} that match anywhere in the
+     * input, used by {@link InputScanner}. Keep in sync with the patterns above.
+     */
+    public static final List<String> SUSPICIOUS_LITERALS = List.of(
+            "select", "update", "delete", "insert", "drop", "alter", "create", "exec", "union",
+            "--", "#", ";", "javascript:", "alert(");
+    /**
+     * Alternatives of {@link #SQL_INJECTION_PATTERN} that only match as whole words ({@code \bOR\b}).
+     */
+    public static final List<String> SUSPICIOUS_WORDS = List.of("or", "and");
     /**
      * Topic name for user registered events.
      */
@@ -29,6 +41,30 @@ public class Constants {
      */
     public static final String USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC = "user_registration_confirmation";
     public static final String EMAIL_VERIFICATION_MESSAGE_TOPIC ="email_registration_topic";
+    /**
+     * Topic name for the outcomes of registrations that no other topic records, such as a confirmed email.
+     */
+    public static final String REGISTRATION_STATUS_TOPIC = "registration_status";
+    /**
+     * Topic receiving the records that could not be processed, read back by the dead-letter replay.
+     */
+    public static final String DEAD_LETTER_TOPIC = "dead-letter-topic";
+    /**
+     * Header carrying the topic a dead-lettered record was originally sent to.
+     */
+    public static final String DEAD_LETTER_ORIGINAL_TOPIC_HEADER = "vickezi_dlt_original_topic";
+    /**
+     * Header carrying the simple class name of a dead-lettered event.
+     */
+    public static final String DEAD_LETTER_EVENT_TYPE_HEADER = "vickezi_dlt_event_type";
+    /**
+     * Header marking a replayed record with the dead-letter partition and offset it was read from.
+     */
+    public static final String DEAD_LETTER_REPLAYED_FROM_HEADER = "vickezi_dlt_replayed_from";
+    /**
+     * Header carrying the trace context of the registration a record belongs to.
+     */
+    public static final String TRACE_CONTEXT_HEADER = "vickezi_trace";
     /**
      *  Basic email pattern, can be more strict based on requirements
      */
@@ -0,0 +1,69 @@
+package com.vickezi.globals.util;
+
+/**
+ * Linear-time, allocation-free email syntax check with the same acceptance set as
+ * {@link Constants#EMAIL_PATTERN}:
+ * <pre>
+ * ^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\.[A-Za-z]{2,}$
+ * </pre>
+ * The local part and the domain are checked in one pass. Neither part may contain {@code @}, so the first one
+ * separates them. The pattern backtracks to find a dot followed only by letters; that can only be the last dot
+ * of the domain, so the parser tracks the last dot and the letters seen after it.
+ */
+public final class EmailSyntax {
+    private static final int MIN_TOP_LEVEL_DOMAIN_LENGTH = 2;
+
+    private EmailSyntax() {
+    }
+
+    /**
+     * Checks whether the input is a syntactically valid email address.
+     *
+     * @param email the characters to check, may be null
+     * @return true if {@link Constants#EMAIL_PATTERN} would match the whole input
+     */
+    public static boolean isValid(CharSequence email) {
+        if (email == null) {
+            return false;
+        }
+        final int length = email.length();
+        int i = 0;
+        while (i < length && isLocalPartCharacter(email.charAt(i))) {
+            i++;
+        }
+        if (i == 0 || i == length || email.charAt(i) != '@') {
+            return false;
+        }
+        final int domainStart = ++i;
+        int lastDot = -1;
+        boolean lettersOnlySinceDot = true;
+        for (; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                lastDot = i;
+                lettersOnlySinceDot = true;
+            } else if (isLetter(c)) {
+                // still a candidate top-level domain
+            } else if (isDigit(c) || c == '-') {
+                lettersOnlySinceDot = false;
+            } else {
+                return false;
+            }
+        }
+        return lastDot > domainStart
+                && lettersOnlySinceDot
+                && length - lastDot - 1 >= MIN_TOP_LEVEL_DOMAIN_LENGTH;
+    }
+
+    private static boolean isLocalPartCharacter(char c) {
+        return isLetter(c) || isDigit(c) || c == '+' || c == '_' || c == '.' || c == '-';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
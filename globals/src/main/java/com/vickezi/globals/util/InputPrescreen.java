@@ -0,0 +1,82 @@
+package com.vickezi.globals.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Predicate;
+
+/**
+ * Character-class pre-screen run by {@link InputScanner} before its keyword analysis.
+ * <p>
+ * Reports whether the input contains any character that can start an HTML tag, a script marker or a SQL
+ * terminator, or that is outside ASCII: {@code < ; - # ' "} and anything from {@code \u0080} up. A scalar table
+ * lookup is used unless globals was built with the {@code vector} Maven profile and the
+ * {@code jdk.incubator.vector} module is enabled ({@code --add-modules jdk.incubator.vector}); whole vector lanes
+ * are then compared at once, unless {@code vickezi.validator.vector.disabled} is set.
+ */
+public final class InputPrescreen {
+    private static final Logger logger = LoggerFactory.getLogger(InputPrescreen.class);
+    private static final boolean[] SUSPICIOUS_ASCII = new boolean[128];
+    private static final String VECTOR_IMPLEMENTATION = "com.vickezi.globals.util.VectorInputPrescreen";
+    /** The Vector API implementation, or null when the scalar one is used. */
+    private static final Predicate<String> VECTOR;
+
+    static {
+        for (char c : new char[]{'<', ';', '-', '#', '\'', '"'}) {
+            SUSPICIOUS_ASCII[c] = true;
+        }
+        VECTOR = vectorImplementation();
+        logger.info("Input pre-screen uses the {} implementation", VECTOR != null ? "vector" : "scalar");
+    }
+
+    private InputPrescreen() {
+    }
+
+    /**
+     * @param input the input to screen
+     * @return true if the input contains a character from one of the screened classes
+     */
+    public static boolean hasSuspiciousCharacters(String input) {
+        if (VECTOR != null) {
+            return VECTOR.test(input);
+        }
+        return hasSuspiciousCharactersScalar(input);
+    }
+
+    /**
+     * @return true if the Vector API implementation is in use
+     */
+    public static boolean isVectorized() {
+        return VECTOR != null;
+    }
+
+    /**
+     * Loads the Vector API implementation by name, as it is only compiled with the {@code vector} profile.
+     */
+    @SuppressWarnings("unchecked")
+    private static Predicate<String> vectorImplementation() {
+        if (Boolean.getBoolean("vickezi.validator.vector.disabled")
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (Predicate<String>) Class.forName(VECTOR_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return null;
+        }
+    }
+
+    static boolean hasSuspiciousCharactersScalar(CharSequence input) {
+        final int length = input.length();
+        for (int i = 0; i < length; i++) {
+            if (isSuspiciousCharacter(input.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isSuspiciousCharacter(char c) {
+        return c >= SUSPICIOUS_ASCII.length || SUSPICIOUS_ASCII[c];
+    }
+}
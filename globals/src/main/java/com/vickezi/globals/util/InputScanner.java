@@ -0,0 +1,225 @@
+package com.vickezi.globals.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+import static com.vickezi.globals.util.Constants.*;
+
+/**
+ * Single-pass scanner that reports whether an input could be matched by {@link Constants#SQL_INJECTION_PATTERN},
+ * {@link Constants#XSS_PATTERN} or {@link Constants#HTML_TAG_PATTERN}.
+ * <p>
+ * The literal alternatives ({@link Constants#SUSPICIOUS_LITERALS} and {@link Constants#SUSPICIOUS_WORDS}) are
+ * compiled into one case-insensitive Aho-Corasick automaton over ASCII; {@code <\s*script} and {@code <[^>]+>}
+ * are tracked by two small state machines alongside it. Every character is read once and nothing is allocated.
+ * <p>
+ * The scanner never reports a clean result for input one of the patterns would find. Any non-ASCII character is
+ * reported as suspicious so the caller falls back to the regular expressions, whose word boundaries and case
+ * folding are only mirrored here for ASCII.
+ * <p>
+ * Strings first go through {@link InputPrescreen}. The SQL keywords are plain letters, so a clean pre-screen does
+ * not clear the input by itself, but it rules out both state machines and non-ASCII characters, leaving only the
+ * automaton to run.
+ */
+public final class InputScanner {
+    private static final int ALPHABET = 128;
+    private static final String SCRIPT = "script";
+    /** Transition table of the automaton, indexed by {@code state * ALPHABET + character}. */
+    private static final int[] TRANSITIONS;
+    /** Whether reaching a state completes a literal that matches anywhere. */
+    private static final boolean[] LITERAL_MATCH;
+    /** Length of the whole-word alternative completed by reaching a state, or 0. */
+    private static final int[] WORD_MATCH;
+
+    static {
+        List<String> literals = SUSPICIOUS_LITERALS;
+        List<String> words = SUSPICIOUS_WORDS;
+        int maxStates = 1;
+        for (String keyword : literals) {
+            maxStates += keyword.length();
+        }
+        for (String keyword : words) {
+            maxStates += keyword.length();
+        }
+        int[] transitions = new int[maxStates * ALPHABET];
+        Arrays.fill(transitions, -1);
+        boolean[] literalMatch = new boolean[maxStates];
+        int[] wordMatch = new int[maxStates];
+        int states = 1;
+        for (String keyword : literals) {
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int index = state * ALPHABET + checkedCharacter(keyword, i);
+                if (transitions[index] == -1) {
+                    transitions[index] = states++;
+                }
+                state = transitions[index];
+            }
+            literalMatch[state] = true;
+        }
+        for (String keyword : words) {
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int index = state * ALPHABET + checkedCharacter(keyword, i);
+                if (transitions[index] == -1) {
+                    transitions[index] = states++;
+                }
+                state = transitions[index];
+            }
+            wordMatch[state] = keyword.length();
+        }
+        // Breadth-first pass turning the trie into a complete automaton and merging outputs along failure links
+        int[] failure = new int[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = transitions[c];
+            if (next == -1) {
+                transitions[c] = 0;
+            } else {
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int fallback = failure[state];
+            literalMatch[state] |= literalMatch[fallback];
+            if (wordMatch[state] == 0) {
+                wordMatch[state] = wordMatch[fallback];
+            } else if (wordMatch[fallback] != 0) {
+                throw new IllegalStateException("Whole-word alternatives must not be suffixes of each other");
+            }
+            for (int c = 0; c < ALPHABET; c++) {
+                int index = state * ALPHABET + c;
+                int next = transitions[index];
+                if (next == -1) {
+                    transitions[index] = transitions[fallback * ALPHABET + c];
+                } else {
+                    failure[next] = transitions[fallback * ALPHABET + c];
+                    queue.add(next);
+                }
+            }
+        }
+        TRANSITIONS = Arrays.copyOf(transitions, states * ALPHABET);
+        LITERAL_MATCH = Arrays.copyOf(literalMatch, states);
+        WORD_MATCH = Arrays.copyOf(wordMatch, states);
+    }
+
+    private InputScanner() {
+    }
+
+    /**
+     * Scans the input once for SQL keywords, XSS markers and HTML tags.
+     *
+     * @param input the input to scan
+     * @return false only if none of the validation patterns can find a match in the input
+     */
+    public static boolean isSuspicious(CharSequence input) {
+        if (input instanceof String string && !InputPrescreen.hasSuspiciousCharacters(string)) {
+            return containsKeyword(string);
+        }
+        return scan(input);
+    }
+
+    /**
+     * Runs the automaton alone, for ASCII input without {@code <}.
+     */
+    private static boolean containsKeyword(String input) {
+        final int length = input.length();
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            char folded = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+            state = TRANSITIONS[state * ALPHABET + folded];
+            if (LITERAL_MATCH[state]) {
+                return true;
+            }
+            int wordLength = WORD_MATCH[state];
+            if (wordLength != 0 && isWordStart(input, i - wordLength + 1) && isWordEnd(input, i + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean scan(CharSequence input) {
+        final int length = input.length();
+        int state = 0;
+        int scriptProgress = -1;
+        boolean previousWasOpeningBracket = false;
+        boolean tagOpen = false;
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (c >= ALPHABET) {
+                return true;
+            }
+            char folded = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+
+            state = TRANSITIONS[state * ALPHABET + folded];
+            if (LITERAL_MATCH[state]) {
+                return true;
+            }
+            int wordLength = WORD_MATCH[state];
+            if (wordLength != 0 && isWordStart(input, i - wordLength + 1) && isWordEnd(input, i + 1)) {
+                return true;
+            }
+
+            // <[^>]+> : an opening bracket followed by anything but '>', closed by any later '>'
+            if (c == '>') {
+                if (tagOpen) {
+                    return true;
+                }
+            } else if (previousWasOpeningBracket) {
+                tagOpen = true;
+            }
+            previousWasOpeningBracket = c == '<';
+
+            // <\s*script
+            if (c == '<') {
+                scriptProgress = 0;
+            } else if (scriptProgress == 0 && isPatternWhitespace(c)) {
+                continue;
+            } else if (scriptProgress >= 0 && folded == SCRIPT.charAt(scriptProgress)) {
+                if (++scriptProgress == SCRIPT.length()) {
+                    return true;
+                }
+            } else {
+                scriptProgress = -1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks for a {@code \b} right before {@code start}, the first character of a whole-word alternative.
+     */
+    private static boolean isWordStart(CharSequence input, int start) {
+        return start == 0 || !isWordCharacter(input.charAt(start - 1));
+    }
+
+    /**
+     * Checks for a {@code \b} right before {@code end}, the position after a whole-word alternative.
+     */
+    private static boolean isWordEnd(CharSequence input, int end) {
+        return end == input.length() || !isWordCharacter(input.charAt(end));
+    }
+
+    private static boolean isWordCharacter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /** The characters matched by {@code \s} without UNICODE_CHARACTER_CLASS. */
+    private static boolean isPatternWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private static char checkedCharacter(String keyword, int index) {
+        char c = keyword.charAt(index);
+        if (c >= ALPHABET || (c >= 'A' && c <= 'Z')) {
+            throw new IllegalStateException("Scanner keywords must be lower-case ASCII: " + keyword);
+        }
+        return c;
+    }
+}
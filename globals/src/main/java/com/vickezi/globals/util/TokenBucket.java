@@ -0,0 +1,72 @@
+package com.vickezi.globals.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket rate limiter: tokens refill continuously at a fixed rate up to a burst capacity and every permit
+ * takes one.
+ */
+public final class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier nanoClock;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param permitsPerSecond the sustained rate
+     * @param burst the most permits that can be taken at once after an idle period, at least 1
+     */
+    public TokenBucket(double permitsPerSecond, double burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    TokenBucket(double permitsPerSecond, double burst, LongSupplier nanoClock) {
+        if (!(permitsPerSecond > 0) || !(burst >= 1)) {
+            throw new IllegalArgumentException("Rate must be positive and burst at least 1");
+        }
+        this.capacity = burst;
+        this.tokensPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.nanoClock = nanoClock;
+        this.tokens = burst;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    /**
+     * Takes a permit if one is available.
+     *
+     * @return true if a permit was taken
+     */
+    public boolean tryAcquire() {
+        return reserve() == 0;
+    }
+
+    /**
+     * Takes a permit, waiting for the bucket to refill if it is empty.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long wait;
+        while ((wait = reserve()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Takes a permit if available.
+     *
+     * @return 0 if a permit was taken, otherwise the nanoseconds until one will be
+     */
+    private synchronized long reserve() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+}
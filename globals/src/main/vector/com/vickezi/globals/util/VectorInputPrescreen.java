@@ -0,0 +1,62 @@
+package com.vickezi.globals.util;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.function.Predicate;
+
+import static jdk.incubator.vector.VectorOperators.EQ;
+import static jdk.incubator.vector.VectorOperators.NE;
+
+/**
+ * Vector API implementation of {@link InputPrescreen}, only compiled with the {@code vector} Maven profile. Loaded
+ * by {@link InputPrescreen} once the {@code jdk.incubator.vector} module is known to be present.
+ * <p>
+ * Characters are copied chunk by chunk into a per-thread buffer and compared a full vector of lanes at a time;
+ * the tail shorter than one vector is checked with the scalar table.
+ */
+final class VectorInputPrescreen implements Predicate<String> {
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    /** Inputs shorter than one vector gain nothing from the copy into the buffer. */
+    static final int MIN_LENGTH = SPECIES.length();
+    private static final int CHUNK = 1024;
+    private static final short NON_ASCII_BITS = (short) 0xFF80;
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[CHUNK]);
+
+    VectorInputPrescreen() {
+    }
+
+    @Override
+    public boolean test(String input) {
+        if (input.length() < MIN_LENGTH) {
+            return InputPrescreen.hasSuspiciousCharactersScalar(input);
+        }
+        final char[] buffer = BUFFER.get();
+        final int length = input.length();
+        for (int start = 0; start < length; start += CHUNK) {
+            int count = Math.min(CHUNK, length - start);
+            input.getChars(start, start + count, buffer, 0);
+            int i = 0;
+            for (int bound = SPECIES.loopBound(count); i < bound; i += SPECIES.length()) {
+                ShortVector lanes = ShortVector.fromCharArray(SPECIES, buffer, i);
+                VectorMask<Short> suspicious = lanes.and(NON_ASCII_BITS).compare(NE, (short) 0)
+                        .or(lanes.compare(EQ, (short) '<'))
+                        .or(lanes.compare(EQ, (short) ';'))
+                        .or(lanes.compare(EQ, (short) '-'))
+                        .or(lanes.compare(EQ, (short) '#'))
+                        .or(lanes.compare(EQ, (short) '\''))
+                        .or(lanes.compare(EQ, (short) '"'));
+                if (suspicious.anyTrue()) {
+                    return true;
+                }
+            }
+            for (; i < count; i++) {
+                if (InputPrescreen.isSuspiciousCharacter(buffer[i])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
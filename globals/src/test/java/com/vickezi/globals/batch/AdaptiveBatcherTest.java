@@ -0,0 +1,183 @@
+package com.vickezi.globals.batch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveBatcherTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    @Test
+    void completesEachItemWithItsResult() throws Exception {
+        try (AdaptiveBatcher<Integer, String> batcher = builder(batch -> {
+            batchSizes.add(batch.size());
+            return CompletableFuture.completedFuture(batch.stream().map(item -> "item-" + item).toList());
+        }).build()) {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                futures.add(batcher.submit(i));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals("item-" + i, futures.get(i).get(5, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(1000, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void flushesAnIdleItemImmediately() throws Exception {
+        try (AdaptiveBatcher<Integer, Void> batcher = builder(this::write)
+                .latencyBudget(Duration.ofSeconds(10))
+                .build()) {
+            long start = System.nanoTime();
+            batcher.submit(1).get(5, TimeUnit.SECONDS);
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+            assertEquals(List.of(1), batchSizes);
+        }
+    }
+
+    @Test
+    void growsBatchesUnderLoad() throws Exception {
+        try (AdaptiveBatcher<Integer, Void> batcher = builder(this::write)
+                .maxBatchSize(256)
+                .latencyBudget(Duration.ofMillis(200))
+                .build()) {
+            submitAll(batcher, 5000);
+            assertEquals(256, batchSizes.stream().mapToInt(Integer::intValue).max().orElse(0));
+            assertTrue(batcher.targetBatchSize() > 1);
+        }
+    }
+
+    @Test
+    void shrinksBatchesWhenAFlushExceedsTheBudget() throws Exception {
+        AtomicBoolean slow = new AtomicBoolean();
+        try (AdaptiveBatcher<Integer, Void> batcher = builder(batch -> {
+            sleepMillis(slow.get() ? 150 : 1);
+            return CompletableFuture.<List<Void>>completedFuture(null);
+        })
+                .maxBatchSize(256)
+                .latencyBudget(Duration.ofMillis(100))
+                .build()) {
+            submitAll(batcher, 5000);
+            int grown = batcher.targetBatchSize();
+            assertTrue(grown > 1);
+
+            slow.set(true);
+            batcher.submit(1).get(5, TimeUnit.SECONDS);
+            assertEquals(grown / 2, batcher.targetBatchSize());
+        }
+    }
+
+    @Test
+    void failsEveryItemOfAFailedBatch() throws Exception {
+        try (AdaptiveBatcher<Integer, Void> batcher = this.<Void>builder(batch -> {
+            throw new IllegalStateException("database down");
+        }).build()) {
+            ExecutionException failure = assertThrows(ExecutionException.class,
+                    () -> batcher.submit(1).get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, failure.getCause());
+        }
+        try (AdaptiveBatcher<Integer, String> batcher = builder(batch ->
+                CompletableFuture.completedFuture(List.of("one", "two", "too many"))).build()) {
+            ExecutionException failure = assertThrows(ExecutionException.class,
+                    () -> batcher.submit(1).get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, failure.getCause());
+        }
+    }
+
+    @Test
+    void rejectsItemsBeyondTheQueueBound() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (AdaptiveBatcher<Integer, Void> batcher = this.<Void>builder(batch -> CompletableFuture
+                .runAsync(() -> await(release))
+                .thenApply(ignored -> null))
+                .maxBatchSize(2)
+                .maxPending(2)
+                .build()) {
+            List<CompletableFuture<Void>> accepted = new ArrayList<>();
+            CompletableFuture<Void> rejected = null;
+            for (int i = 0; i < 10 && rejected == null; i++) {
+                CompletableFuture<Void> future = batcher.submit(i);
+                if (future.isCompletedExceptionally()) {
+                    rejected = future;
+                } else {
+                    accepted.add(future);
+                }
+            }
+            assertNotNull(rejected);
+            ExecutionException failure = assertThrows(ExecutionException.class, rejected::get);
+            assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+            assertEquals(1.0, registry.get("vickezi.batcher.rejected").tag("batcher", "test").counter().count());
+
+            release.countDown();
+            CompletableFuture.allOf(accepted.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void flushesQueuedItemsOnCloseAndRejectsLaterOnes() throws Exception {
+        AdaptiveBatcher<Integer, Void> batcher = builder(this::write).build();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(batcher.submit(i));
+        }
+        batcher.close();
+
+        for (CompletableFuture<Void> future : futures) {
+            assertTrue(future.isDone());
+            assertFalse(future.isCompletedExceptionally());
+        }
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> batcher.submit(1).get());
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+    }
+
+    private <R> AdaptiveBatcher.Builder<Integer, R> builder(AdaptiveBatcher.Handler<Integer, R> handler) {
+        return AdaptiveBatcher.builder("test", handler).meterRegistry(registry);
+    }
+
+    private static void submitAll(AdaptiveBatcher<Integer, Void> batcher, int count) throws Exception {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            futures.add(batcher.submit(i));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Simulates a write with a fixed round trip of 1 ms.
+     */
+    private CompletableFuture<List<Void>> write(List<Integer> batch) {
+        batchSizes.add(batch.size());
+        sleepMillis(1);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
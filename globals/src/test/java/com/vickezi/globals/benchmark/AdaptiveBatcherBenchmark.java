@@ -0,0 +1,76 @@
+package com.vickezi.globals.benchmark;
+
+import com.vickezi.globals.batch.AdaptiveBatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Throughput and per-item latency of {@link AdaptiveBatcher} against its latency budget, for 16 threads each waiting
+ * on one item at a time. The simulated write costs a 200 µs round trip plus 2 µs per item.
+ * <p>
+ * A budget of 0 keeps the target size at {@code minBatchSize}, which approximates writing every item on its own;
+ * a {@code maxBatchSize} of 1 is the unbatched baseline. Reading {@code thrpt} and the {@code sample} percentiles
+ * across the budgets gives the throughput/latency curve.
+ * <p>
+ * Run {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class AdaptiveBatcherBenchmark {
+    private static final long ROUND_TRIP_NANOS = 200_000;
+    private static final long PER_ITEM_NANOS = 2_000;
+
+    @Param({"0", "250", "1000", "5000"})
+    public long latencyBudgetMicros;
+
+    @Param({"1", "512"})
+    public int maxBatchSize;
+
+    private AdaptiveBatcher<Integer, Void> batcher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        batcher = AdaptiveBatcher.<Integer, Void>builder("benchmark", AdaptiveBatcherBenchmark::write)
+                .maxBatchSize(maxBatchSize)
+                .maxPending(65_536)
+                .latencyBudget(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(latencyBudgetMicros)))
+                .meterRegistry(new SimpleMeterRegistry())
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        batcher.close();
+    }
+
+    @Benchmark
+    public Void submitAndWait() {
+        return batcher.submit(1).join();
+    }
+
+    private static CompletionStage<List<Void>> write(List<Integer> batch) {
+        LockSupport.parkNanos(ROUND_TRIP_NANOS + PER_ITEM_NANOS * batch.size());
+        return CompletableFuture.completedFuture(null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AdaptiveBatcherBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
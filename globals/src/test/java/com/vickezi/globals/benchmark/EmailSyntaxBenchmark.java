@@ -0,0 +1,57 @@
+package com.vickezi.globals.benchmark;
+
+import com.vickezi.globals.util.EmailSyntax;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.vickezi.globals.util.Constants.EMAIL_PATTERN;
+
+/**
+ * Compares {@link EmailSyntax#isValid(CharSequence)} with {@link com.vickezi.globals.util.Constants#EMAIL_PATTERN}
+ * on valid addresses and on inputs that make the pattern backtrack.
+ * <p>
+ * Run {@link #main(String[])} from the test classpath, with {@code -prof gc} to confirm the parser allocates nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailSyntaxBenchmark {
+    @Param({"valid", "validLong", "invalidTopLevelDomain", "pathologicalDomain"})
+    public String shape;
+
+    private String email;
+
+    @Setup
+    public void setUp() {
+        email = switch (shape) {
+            case "valid" -> "john.doe@university.edu";
+            case "validLong" -> "first.middle.last+registration@faculty.engineering.university.example.edu";
+            case "invalidTopLevelDomain" -> "john.doe@university.ed1";
+            case "pathologicalDomain" -> "x@" + "a.".repeat(2_000) + "1";
+            default -> throw new IllegalArgumentException(shape);
+        };
+    }
+
+    @Benchmark
+    public boolean parser() {
+        return EmailSyntax.isValid(email);
+    }
+
+    @Benchmark
+    public boolean pattern() {
+        return EMAIL_PATTERN.matcher(email).matches();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EmailSyntaxBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,105 @@
+package com.vickezi.globals.benchmark;
+
+import com.vickezi.globals.codec.BinaryEventDeserializer;
+import com.vickezi.globals.codec.BinaryEventSerializer;
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the binary event serde with the Spring JSON serde it replaced, in serde CPU time per record.
+ * {@link #main(String[])} also prints the payload and header bytes each format puts on the wire per record.
+ * <p>
+ * Run {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventCodecBenchmark {
+    private static final String TOPIC = "user_email_registered_event";
+    private static final Map<String, Object> EVENTS = Map.of(
+            "EmailRegistrationEvent", new EmailRegistrationEvent("john.doe@university.edu"),
+            "EmailVerificationEvent", new EmailVerificationEvent(
+                    "eyJhbGciOiJFUzI1NiJ9.eyJzdWIiOiJqb2huLmRvZUB1bml2ZXJzaXR5LmVkdSJ9.MEUCIQDx",
+                    "550e8400-e29b-41d4-a716-446655440000"),
+            "RegistrationMessage", new RegistrationMessage("550e8400-e29b-41d4-a716-446655440000",
+                    "eyJhbGciOiJFUzI1NiJ9.eyJzdWIiOiJqb2huLmRvZUB1bml2ZXJzaXR5LmVkdSJ9.MEUCIQDx", "pending",
+                    "john.doe@university.edu"));
+
+    @Param({"EmailRegistrationEvent", "EmailVerificationEvent", "RegistrationMessage"})
+    public String eventType;
+
+    private Object event;
+    private JsonSerializer<Object> jsonSerializer;
+    private JsonDeserializer<Object> jsonDeserializer;
+    private BinaryEventSerializer binarySerializer;
+    private BinaryEventDeserializer binaryDeserializer;
+    private RecordHeaders jsonHeaders;
+    private byte[] jsonPayload;
+    private byte[] binaryPayload;
+
+    @Setup
+    public void setUp() {
+        event = EVENTS.get(eventType);
+        jsonSerializer = new JsonSerializer<>();
+        jsonDeserializer = new JsonDeserializer<>();
+        jsonDeserializer.configure(Map.of(JsonDeserializer.TRUSTED_PACKAGES, "com.vickezi.globals.model"), false);
+        binarySerializer = new BinaryEventSerializer();
+        binaryDeserializer = new BinaryEventDeserializer();
+        jsonHeaders = new RecordHeaders();
+        jsonPayload = jsonSerializer.serialize(TOPIC, jsonHeaders, event);
+        binaryPayload = binarySerializer.serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize() {
+        return jsonSerializer.serialize(TOPIC, new RecordHeaders(), event);
+    }
+
+    @Benchmark
+    public Object jsonDeserialize() {
+        return jsonDeserializer.deserialize(TOPIC, jsonHeaders, jsonPayload);
+    }
+
+    @Benchmark
+    public byte[] binarySerialize() {
+        return binarySerializer.serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public Object binaryDeserialize() {
+        return binaryDeserializer.deserialize(TOPIC, null, binaryPayload);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        try (JsonSerializer<Object> json = new JsonSerializer<>();
+             BinaryEventSerializer binary = new BinaryEventSerializer()) {
+            EVENTS.forEach((type, event) -> {
+                RecordHeaders headers = new RecordHeaders();
+                int jsonBytes = json.serialize(TOPIC, headers, event).length;
+                int headerBytes = 0;
+                for (var header : headers) {
+                    headerBytes += header.key().length() + header.value().length;
+                }
+                System.out.printf("%-24s json: %4d bytes + %3d header bytes | binary: %4d bytes%n",
+                        type, jsonBytes, headerBytes, binary.serialize(TOPIC, event).length);
+            });
+        }
+        new Runner(new OptionsBuilder()
+                .include(EventCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
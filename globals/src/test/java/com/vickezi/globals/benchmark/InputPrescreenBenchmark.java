@@ -0,0 +1,67 @@
+package com.vickezi.globals.benchmark;
+
+import com.vickezi.globals.util.InputPrescreen;
+import com.vickezi.globals.util.InputScanner;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the input pre-screen and of the full {@link InputScanner} pass over clean ASCII of increasing
+ * length. The {@code vector} fork enables {@code jdk.incubator.vector}; the {@code scalar} fork disables it, so
+ * both implementations are measured on the same inputs.
+ * <p>
+ * Run {@link #main(String[])} from the test classpath of a build with {@code -Pvector}; without it both forks use
+ * the scalar implementation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class InputPrescreenBenchmark {
+    private static final String CLEAN = "john.doe.university.registration.portal.0123456789@";
+
+    @Param({"8", "16", "32", "64", "256", "1024", "8192"})
+    public int length;
+
+    private String input;
+
+    @Setup
+    public void setUp() {
+        input = CLEAN.repeat(length / CLEAN.length() + 1).substring(0, length);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public boolean prescreenVector() {
+        return InputPrescreen.hasSuspiciousCharacters(input);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dvickezi.validator.vector.disabled=true")
+    public boolean prescreenScalar() {
+        return InputPrescreen.hasSuspiciousCharacters(input);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public boolean scannerVector() {
+        return InputScanner.isSuspicious(input);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dvickezi.validator.vector.disabled=true")
+    public boolean scannerScalar() {
+        return InputScanner.isSuspicious(input);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InputPrescreenBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
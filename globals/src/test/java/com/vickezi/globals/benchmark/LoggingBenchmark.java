@@ -0,0 +1,100 @@
+package com.vickezi.globals.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.vickezi.globals.logging.SampledLogger;
+import com.vickezi.globals.model.RegistrationMessage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the per-message log line of a listener thread under the logging setups compared for
+ * {@code vickezi-logback.xml}: the synchronous console appender used before, the bounded async appender, and the
+ * async appender behind a {@link SampledLogger}. Output goes to a discarding stream with the Spring Boot console
+ * pattern, so the numbers reflect formatting and appender overhead rather than terminal speed. As in production,
+ * the async setups drop events rather than block once the queue is full.
+ * <p>
+ * Run {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+    private static final String PATTERN = "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p [%t] %-40.40logger{39} : %m%n";
+
+    @Param({"sync", "async", "async-sampled"})
+    public String setup;
+
+    private LoggerContext context;
+    private Logger logger;
+    private SampledLogger sampledLogger;
+    private final RegistrationMessage message = new RegistrationMessage("550e8400-e29b-41d4-a716-446655440000",
+            "eyJhbGciOiJFUzI1NiJ9.eyJzdWIiOiJqb2huLmRvZUB1bml2ZXJzaXR5LmVkdSJ9.MEUCIQDx", "pending",
+            "john.doe@university.edu");
+
+    @Setup
+    public void setUp() {
+        context = new LoggerContext();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> console = new OutputStreamAppender<>();
+        console.setContext(context);
+        console.setEncoder(encoder);
+        console.setOutputStream(OutputStream.nullOutputStream());
+        console.start();
+
+        Appender<ILoggingEvent> appender = console;
+        if (!setup.equals("sync")) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(8192);
+            async.setNeverBlock(true);
+            async.setIncludeCallerData(false);
+            async.addAppender(console);
+            async.start();
+            appender = async;
+        }
+        logger = context.getLogger(LoggingBenchmark.class);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+        sampledLogger = SampledLogger.perSecond(logger, 10);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.stop();
+    }
+
+    @Benchmark
+    public void perMessageLine() {
+        if (setup.equals("async-sampled")) {
+            sampledLogger.info("✅ Message sent successfully: {} | partition: {} | offset: {}", message, 3, 1024L);
+        } else {
+            logger.info("✅ Message sent successfully: {} | partition: {} | offset: {}", message, 3, 1024L);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LoggingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
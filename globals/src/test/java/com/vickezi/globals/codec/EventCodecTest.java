@@ -0,0 +1,127 @@
+package com.vickezi.globals.codec;
+
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventCodecTest {
+
+    @Test
+    void roundTripsEveryEventType() {
+        assertRoundTrip(new EmailRegistrationEvent("john.doe@university.edu"));
+        assertRoundTrip(new EmailVerificationEvent("eyJhbGciOiJFUzI1NiJ9.e30.c2ln", "550e8400-e29b-41d4-a716-446655440000"));
+        assertRoundTrip(new RegistrationMessage("550e8400-e29b-41d4-a716-446655440000", "token", "pending",
+                "john.doe@university.edu"));
+    }
+
+    @Test
+    void roundTripsNullAndEmptyFields() {
+        assertRoundTrip(new EmailRegistrationEvent(null));
+        assertRoundTrip(new EmailVerificationEvent("", null));
+        assertRoundTrip(new RegistrationMessage(null, null, "failed", ""));
+    }
+
+    @Test
+    void encodesUtf8LikeString() {
+        String[] values = {"café", "naïve€", "𝔘niversity 🎓", "lone\uD800high", "lone\uDC00low", "end\uD83D"};
+        for (String value : values) {
+            String expected = new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+            EmailRegistrationEvent decoded = (EmailRegistrationEvent) EventCodec.decode(
+                    EventCodec.encode(new EmailRegistrationEvent(value)));
+            assertEquals(expected, decoded.email());
+        }
+    }
+
+    @Test
+    void roundTripsFieldsLongerThanOneVarintByte() {
+        String email = "a".repeat(300) + "@example.com";
+        assertRoundTrip(new EmailRegistrationEvent(email));
+    }
+
+    @Test
+    void skipsFieldsAppendedByNewerWriters() {
+        byte[] current = EventCodec.encode(new EmailVerificationEvent("token", "id"));
+        // Same record with a third field appended, as a future version would write it
+        byte[] newer = Arrays.copyOf(current, current.length + 4);
+        newer[3] = 3;
+        newer[current.length] = 4;
+        newer[current.length + 1] = 'n';
+        newer[current.length + 2] = 'e';
+        newer[current.length + 3] = 'w';
+        assertEquals(new EmailVerificationEvent("token", "id"), EventCodec.decode(newer));
+    }
+
+    @Test
+    void readsFieldsMissingFromOlderWritersAsNull() {
+        byte[] current = EventCodec.encode(new EmailVerificationEvent("token", "id"));
+        // Only the token, as a version predating messageId would have written it
+        byte[] older = Arrays.copyOf(current, 3 + 1 + 1 + "token".length());
+        older[3] = 1;
+        assertEquals(new EmailVerificationEvent("token", null), EventCodec.decode(older));
+    }
+
+    @Test
+    void rejectsUnknownVersionsTypesAndTruncatedPayloads() {
+        byte[] encoded = EventCodec.encode(new EmailRegistrationEvent("john.doe@university.edu"));
+        byte[] unknownVersion = encoded.clone();
+        unknownVersion[1] = 2;
+        byte[] unknownType = encoded.clone();
+        unknownType[2] = 99;
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 1);
+
+        assertThrows(IllegalArgumentException.class, () -> EventCodec.decode(unknownVersion));
+        assertThrows(IllegalArgumentException.class, () -> EventCodec.decode(unknownType));
+        assertThrows(IllegalArgumentException.class, () -> EventCodec.decode(truncated));
+        assertThrows(IllegalArgumentException.class, () -> EventCodec.encode("plain string"));
+    }
+
+    @Test
+    void isSmallerThanJson() {
+        RegistrationMessage message = new RegistrationMessage("550e8400-e29b-41d4-a716-446655440000", "token",
+                "pending", "john.doe@university.edu");
+        try (JsonSerializer<Object> json = new JsonSerializer<>()) {
+            assertTrue(EventCodec.encode(message).length < json.serialize("topic", message).length);
+        }
+    }
+
+    @Test
+    void deserializerFallsBackToJsonForLegacyRecords() {
+        EmailVerificationEvent event = new EmailVerificationEvent("token", "id");
+        RecordHeaders headers = new RecordHeaders();
+        try (JsonSerializer<Object> json = new JsonSerializer<>();
+             BinaryEventDeserializer deserializer = new BinaryEventDeserializer()) {
+            byte[] legacy = json.serialize("topic", headers, event);
+            deserializer.configure(Map.of(JsonDeserializer.TRUSTED_PACKAGES, "com.vickezi.globals.model"), false);
+
+            assertEquals(event, deserializer.deserialize("topic", headers, legacy));
+            assertEquals(event, deserializer.deserialize("topic", headers, EventCodec.encode(event)));
+        }
+    }
+
+    @Test
+    void serdeWrapsCodecErrors() {
+        try (BinaryEventSerializer serializer = new BinaryEventSerializer();
+             BinaryEventDeserializer deserializer = new BinaryEventDeserializer()) {
+            byte[] corrupt = {EventCodec.MAGIC, EventCodec.FORMAT_VERSION, 99, 0};
+
+            assertNull(serializer.serialize("topic", null));
+            assertThrows(SerializationException.class, () -> serializer.serialize("topic", 42));
+            assertThrows(SerializationException.class, () -> deserializer.deserialize("topic", corrupt));
+        }
+    }
+
+    private static void assertRoundTrip(Object event) {
+        assertEquals(event, EventCodec.decode(EventCodec.encode(event)));
+    }
+}
@@ -0,0 +1,118 @@
+package com.vickezi.globals.consumer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyControllerTest {
+    private static final double UNKNOWN = Double.NaN;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void scalesStraightToTheNeededConsumersOnceTheLoadHolds() {
+        ConcurrencyController controller = controller(1);
+        // 1000 records/s arriving plus 60000 behind to drain in a minute, at 2 ms a record: 4 busy consumers, 6 at 75%
+        ConcurrencyController.Sample peak = new ConcurrencyController.Sample(60_000, 1_000, 0.002, 12);
+
+        assertEquals(1, controller.evaluate(peak), "a single sample is not enough");
+        assertEquals(6, controller.evaluate(peak));
+        assertEquals(1.0, scalings("up"));
+    }
+
+    @Test
+    void neverRunsMoreConsumersThanPartitionsOrTheMaximum() {
+        ConcurrencyController controller = controller(1);
+        ConcurrencyController.Sample flood = new ConcurrencyController.Sample(10_000_000, 50_000, 0.01, 6);
+
+        controller.evaluate(flood);
+        assertEquals(6, controller.evaluate(flood));
+
+        ConcurrencyController wide = controller(1);
+        ConcurrencyController.Sample manyPartitions = new ConcurrencyController.Sample(10_000_000, 50_000, 0.01, 48);
+        wide.evaluate(manyPartitions);
+        assertEquals(8, wide.evaluate(manyPartitions));
+    }
+
+    @Test
+    void dropsExtraConsumersAtOnceWhenThereAreFewerPartitions() {
+        ConcurrencyController controller = controller(6);
+
+        assertEquals(3, controller.evaluate(new ConcurrencyController.Sample(0, 0, 0.001, 3)));
+    }
+
+    @Test
+    void scalesDownOneConsumerAtATimeAfterALongQuietSpell() {
+        ConcurrencyController controller = controller(6);
+        ConcurrencyController.Sample quiet = new ConcurrencyController.Sample(0, 10, 0.002, 12);
+
+        for (int sample = 1; sample < 4; sample++) {
+            assertEquals(6, controller.evaluate(quiet));
+        }
+        assertEquals(5, controller.evaluate(quiet));
+        for (int sample = 1; sample < 4; sample++) {
+            assertEquals(5, controller.evaluate(quiet));
+        }
+        assertEquals(4, controller.evaluate(quiet));
+        assertEquals(2.0, scalings("down"));
+    }
+
+    @Test
+    void ignoresShortBurstsAndDips() {
+        ConcurrencyController controller = controller(3);
+        ConcurrencyController.Sample steady = new ConcurrencyController.Sample(0, 1_000, 0.002, 12);
+        ConcurrencyController.Sample burst = new ConcurrencyController.Sample(300_000, 1_000, 0.002, 12);
+        ConcurrencyController.Sample dip = new ConcurrencyController.Sample(0, 0, 0.002, 12);
+
+        for (int sample = 0; sample < 10; sample++) {
+            assertEquals(3, controller.evaluate(sample % 3 == 0 ? burst : sample % 3 == 1 ? dip : steady));
+        }
+        assertEquals(0.0, scalings("up"));
+        assertEquals(0.0, scalings("down"));
+    }
+
+    @Test
+    void followsTheLagWhenTheConsumerTimeIsUnknown() {
+        ConcurrencyController controller = controller(2);
+
+        controller.evaluate(new ConcurrencyController.Sample(100, 0, UNKNOWN, 12));
+        controller.evaluate(new ConcurrencyController.Sample(500, 0, UNKNOWN, 12));
+        assertEquals(3, controller.evaluate(new ConcurrencyController.Sample(900, 0, UNKNOWN, 12)));
+
+        for (int sample = 0; sample < 3; sample++) {
+            assertEquals(3, controller.evaluate(new ConcurrencyController.Sample(0, 0, UNKNOWN, 12)));
+        }
+        assertEquals(2, controller.evaluate(new ConcurrencyController.Sample(0, 0, UNKNOWN, 12)));
+    }
+
+    @Test
+    void rejectsInconsistentBounds() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ConcurrencyController.builder("listener").minConcurrency(4).maxConcurrency(2).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> ConcurrencyController.builder("listener").targetUtilization(1.5).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> ConcurrencyController.builder("listener").drainTarget(Duration.ZERO).build());
+    }
+
+    private ConcurrencyController controller(int initialConcurrency) {
+        return ConcurrencyController.builder("listener")
+                .minConcurrency(1)
+                .maxConcurrency(8)
+                .initialConcurrency(initialConcurrency)
+                .drainTarget(Duration.ofMinutes(1))
+                .targetUtilization(0.75)
+                .scaleUpSamples(2)
+                .scaleDownSamples(4)
+                .meterRegistry(registry)
+                .build();
+    }
+
+    private double scalings(String direction) {
+        return registry.get("vickezi.consumer.scaling").tag("listener", "listener").tag("direction", direction)
+                .counter().count();
+    }
+}
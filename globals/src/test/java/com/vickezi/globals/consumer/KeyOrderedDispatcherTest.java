@@ -0,0 +1,127 @@
+package com.vickezi.globals.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyOrderedDispatcherTest {
+    private static final String TOPIC = "topic";
+
+    @Test
+    void runsDifferentKeysOfOnePartitionConcurrently() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            KeyOrderedDispatcher dispatcher = new KeyOrderedDispatcher(executor, 4);
+            // Every handler waits for all four keys to be in flight, which only happens if they run at once
+            CountDownLatch allStarted = new CountDownLatch(4);
+            List<ConsumerRecord<String, Integer>> records = List.of(
+                    record(0, "a"), record(1, "b"), record(2, "c"), record(3, "d"));
+
+            KeyOrderedDispatcher.Result<String, Integer> result = dispatcher.dispatch(records, record -> {
+                allStarted.countDown();
+                try {
+                    assertTrue(allStarted.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+
+            assertEquals(4, result.completed().size());
+            assertTrue(result.failed().isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void keepsTheOrderOfRecordsWithTheSameKey() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            KeyOrderedDispatcher dispatcher = new KeyOrderedDispatcher(executor, 8);
+            List<ConsumerRecord<String, Integer>> records = new ArrayList<>();
+            for (int offset = 0; offset < 400; offset++) {
+                records.add(record(offset, "key-" + offset % 8));
+            }
+            Map<String, List<Long>> handled = new ConcurrentHashMap<>();
+
+            dispatcher.dispatch(records, record -> handled
+                    .computeIfAbsent(record.key(), ignored -> new ArrayList<>())
+                    .add(record.offset()));
+
+            assertEquals(8, handled.size());
+            handled.values().forEach(offsets -> {
+                assertEquals(50, offsets.size());
+                for (int i = 1; i < offsets.size(); i++) {
+                    assertTrue(offsets.get(i - 1) < offsets.get(i));
+                }
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void stopsALaneAtItsFirstFailure() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            KeyOrderedDispatcher dispatcher = new KeyOrderedDispatcher(executor, 2);
+            ConsumerRecord<String, Integer> poison = record(1, "a");
+            ConsumerRecord<String, Integer> queuedBehind = record(2, "a");
+            ConsumerRecord<String, Integer> otherKey = record(3, "b");
+            AtomicInteger calls = new AtomicInteger();
+
+            KeyOrderedDispatcher.Result<String, Integer> result = dispatcher.dispatch(
+                    List.of(record(0, "a"), poison, queuedBehind, otherKey), record -> {
+                        calls.incrementAndGet();
+                        if (record == poison) {
+                            throw new IllegalStateException("poison");
+                        }
+                    });
+
+            assertEquals(3, calls.get());
+            assertTrue(result.completed().contains(otherKey));
+            assertFalse(result.completed().contains(queuedBehind));
+            assertFalse(result.failed().containsKey(queuedBehind));
+            assertInstanceOf(IllegalStateException.class, result.failed().get(poison));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void givesRecordsWithoutAKeyTheirOwnLane() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            KeyOrderedDispatcher dispatcher = new KeyOrderedDispatcher(executor, 2);
+            ConsumerRecord<String, Integer> failing = record(0, null);
+            ConsumerRecord<String, Integer> next = record(1, null);
+
+            KeyOrderedDispatcher.Result<String, Integer> result = dispatcher.dispatch(List.of(failing, next),
+                    record -> {
+                        if (record == failing) {
+                            throw new IllegalStateException("failed");
+                        }
+                    });
+
+            assertEquals(1, result.failed().size());
+            assertTrue(result.completed().contains(next));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ConsumerRecord<String, Integer> record(long offset, String key) {
+        return new ConsumerRecord<>(TOPIC, 0, offset, key, (int) offset);
+    }
+}
@@ -0,0 +1,92 @@
+package com.vickezi.globals.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffsetTrackerTest {
+    private static final TopicPartition FIRST = new TopicPartition("topic", 0);
+    private static final TopicPartition SECOND = new TopicPartition("topic", 1);
+
+    private final OffsetTracker tracker = new OffsetTracker();
+
+    @Test
+    void commitsAfterTheLastRecordWhenAllAreDone() {
+        List<ConsumerRecord<String, String>> poll = List.of(record(0, 10), record(0, 11), record(1, 4));
+        poll.forEach(tracker::completed);
+
+        OffsetTracker.Progress progress = tracker.progress(poll);
+
+        assertEquals(Map.of(FIRST, new OffsetAndMetadata(12), SECOND, new OffsetAndMetadata(5)), progress.commits());
+        assertTrue(progress.rewinds().isEmpty());
+    }
+
+    @Test
+    void commitsUpToTheLowestIncompleteOffsetAndRemembersTheRest() {
+        ConsumerRecord<String, String> done = record(0, 10);
+        ConsumerRecord<String, String> incomplete = record(0, 11);
+        ConsumerRecord<String, String> doneAbove = record(0, 12);
+        tracker.completed(done);
+        tracker.completed(doneAbove);
+
+        OffsetTracker.Progress progress = tracker.progress(List.of(done, incomplete, doneAbove));
+
+        assertEquals(Map.of(FIRST, new OffsetAndMetadata(11)), progress.commits());
+        assertEquals(Map.of(FIRST, 11L), progress.rewinds());
+        // Delivered again from offset 11
+        assertFalse(tracker.isCompleted(incomplete));
+        assertTrue(tracker.isCompleted(doneAbove));
+        assertFalse(tracker.isCompleted(done), "offsets below the commit are forgotten");
+
+        tracker.completed(incomplete);
+        progress = tracker.progress(List.of(incomplete, doneAbove));
+        assertEquals(Map.of(FIRST, new OffsetAndMetadata(13)), progress.commits());
+        assertFalse(tracker.isCompleted(doneAbove));
+    }
+
+    @Test
+    void skipsGapsInTheOffsets() {
+        // Transaction markers take up offsets that are never delivered
+        ConsumerRecord<String, String> first = record(0, 10);
+        ConsumerRecord<String, String> afterMarker = record(0, 12);
+        tracker.completed(first);
+        tracker.completed(afterMarker);
+
+        assertEquals(Map.of(FIRST, new OffsetAndMetadata(13)), tracker.progress(List.of(first, afterMarker)).commits());
+    }
+
+    @Test
+    void countsFailedAttemptsUntilTheRecordCompletes() {
+        ConsumerRecord<String, String> record = record(1, 7);
+
+        assertEquals(1, tracker.failed(record));
+        assertEquals(2, tracker.failed(record));
+        tracker.completed(record);
+        assertEquals(1, tracker.failed(record));
+    }
+
+    @Test
+    void forgetsRevokedPartitionsOnly() {
+        ConsumerRecord<String, String> revoked = record(0, 10);
+        ConsumerRecord<String, String> kept = record(1, 4);
+        tracker.completed(revoked);
+        tracker.completed(kept);
+        tracker.failed(record(0, 11));
+
+        tracker.forget(List.of(FIRST));
+
+        assertFalse(tracker.isCompleted(revoked));
+        assertTrue(tracker.isCompleted(kept));
+        assertEquals(1, tracker.failed(record(0, 11)));
+    }
+
+    private static ConsumerRecord<String, String> record(int partition, long offset) {
+        return new ConsumerRecord<>("topic", partition, offset, "key", "value");
+    }
+}
@@ -0,0 +1,149 @@
+package com.vickezi.globals.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.kafka.receiver.ReceiverOffset;
+import reactor.kafka.receiver.ReceiverOptions;
+import reactor.kafka.receiver.ReceiverRecord;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReactiveKafkaConsumerTest {
+    private static final String TOPIC = "registration";
+
+    private final Map<Integer, List<Long>> processed = new ConcurrentHashMap<>();
+    private final List<Long> acknowledged = new CopyOnWriteArrayList<>();
+
+    @Test
+    void keepsPartitionOrderWithBoundedConcurrency() {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        ReactiveKafkaConsumer<String, String> consumer = builder()
+                .handler(record -> Mono.fromRunnable(() -> {
+                    peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    sleepMillis(ThreadLocalRandom.current().nextInt(3));
+                    processed.computeIfAbsent(record.partition(), ignored -> new CopyOnWriteArrayList<>())
+                            .add(record.offset());
+                    active.decrementAndGet();
+                }))
+                .concurrency(3)
+                .build();
+
+        List<ReceiverRecord<String, String>> records = records(6, 40);
+        consumer.process(Flux.fromIterable(records)).blockLast(Duration.ofSeconds(30));
+
+        assertEquals(records.size(), acknowledged.size());
+        assertTrue(peak.get() <= 3, () -> "peak concurrency " + peak.get());
+        for (int partition = 0; partition < 6; partition++) {
+            List<Long> offsets = processed.get(partition);
+            for (int i = 0; i < offsets.size(); i++) {
+                assertEquals(i, offsets.get(i));
+            }
+        }
+    }
+
+    @Test
+    void acknowledgesFailedRecordsOnceTheErrorHandlerCompletes() {
+        List<Long> failed = new ArrayList<>();
+        ReactiveKafkaConsumer<String, String> consumer = builder()
+                .handler(record -> record.offset() % 2 == 0
+                        ? Mono.error(new IllegalStateException("boom"))
+                        : Mono.empty())
+                .onError((record, ex) -> Mono.fromRunnable(() -> failed.add(record.offset())))
+                .concurrency(1)
+                .build();
+
+        consumer.process(Flux.fromIterable(records(1, 6))).blockLast(Duration.ofSeconds(5));
+
+        assertEquals(List.of(0L, 2L, 4L), failed);
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L), acknowledged);
+    }
+
+    @Test
+    void leavesRecordUnacknowledgedWhenTheErrorHandlerFails() {
+        ReactiveKafkaConsumer<String, String> consumer = builder()
+                .handler(record -> record.offset() == 1 ? Mono.error(new IllegalStateException("boom")) : Mono.empty())
+                .onError((record, ex) -> Mono.error(ex))
+                .concurrency(1)
+                .build();
+
+        assertThrows(IllegalStateException.class,
+                () -> consumer.process(Flux.fromIterable(records(1, 3))).blockLast(Duration.ofSeconds(5)));
+        assertEquals(List.of(0L), acknowledged);
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> builder().concurrency(0));
+        assertThrows(NullPointerException.class, () -> builder().build());
+    }
+
+    private static ReactiveKafkaConsumer.Builder<String, String> builder() {
+        return ReactiveKafkaConsumer.<String, String>builder(ReceiverOptions.create())
+                .scheduler(Schedulers.parallel());
+    }
+
+    private List<ReceiverRecord<String, String>> records(int partitions, int perPartition) {
+        List<ReceiverRecord<String, String>> records = new ArrayList<>();
+        for (int offset = 0; offset < perPartition; offset++) {
+            for (int partition = 0; partition < partitions; partition++) {
+                ConsumerRecord<String, String> record =
+                        new ConsumerRecord<>(TOPIC, partition, offset, "key-" + partition, "value");
+                records.add(new ReceiverRecord<>(record, new Offset(new TopicPartition(TOPIC, partition), offset)));
+            }
+        }
+        return records;
+    }
+
+    private static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Offset implements ReceiverOffset {
+        private final TopicPartition partition;
+        private final long offset;
+
+        private Offset(TopicPartition partition, long offset) {
+            this.partition = partition;
+            this.offset = offset;
+        }
+
+        @Override
+        public TopicPartition topicPartition() {
+            return partition;
+        }
+
+        @Override
+        public long offset() {
+            return offset;
+        }
+
+        @Override
+        public void acknowledge() {
+            acknowledged.add(offset);
+        }
+
+        @Override
+        public Mono<Void> commit() {
+            acknowledge();
+            return Mono.empty();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.vickezi.globals.events;
+
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static com.vickezi.globals.util.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DeadLetterReplayServiceTest {
+    private static final TopicPartition PARTITION = new TopicPartition(DEAD_LETTER_TOPIC, 0);
+
+    @Test
+    void routesSelectedRecordsBackToTheirOriginalTopics() throws Exception {
+        KafkaTemplate<String, Object> template = template();
+        DeadLetterReplayService service = new DeadLetterReplayService(factory(deadLetters()), template);
+
+        ReplayProgress progress = await(service, service.start(new ReplayRequest(Set.of(), null, null, 1000, false)));
+
+        ArgumentCaptor<ProducerRecord<String, Object>> sent = recordCaptor();
+        verify(template, times(3)).send(sent.capture());
+        assertEquals(List.of(EMAIL_VERIFICATION_MESSAGE_TOPIC, USER_EMAIL_REGISTERED_EVENT_TOPIC,
+                        USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC),
+                sent.getAllValues().stream().map(ProducerRecord::topic).toList());
+        assertEquals("0@0", new String(sent.getAllValues().get(0).headers()
+                .lastHeader(DEAD_LETTER_REPLAYED_FROM_HEADER).value(), StandardCharsets.UTF_8));
+        assertEquals(ReplayProgress.State.COMPLETED, progress.state());
+        assertEquals(4, progress.scanned());
+        assertEquals(4, progress.matched());
+        assertEquals(3, progress.replayed());
+        assertEquals(1, progress.unroutable());
+        service.destroy();
+    }
+
+    @Test
+    void filtersByTypeAndTime() throws Exception {
+        KafkaTemplate<String, Object> template = template();
+        DeadLetterReplayService service = new DeadLetterReplayService(factory(deadLetters()), template);
+
+        ReplayProgress progress = await(service, service.start(new ReplayRequest(
+                Set.of("EmailRegistrationEvent", "RegistrationMessage"), null, Instant.ofEpochMilli(3_000), 1000,
+                false)));
+
+        ArgumentCaptor<ProducerRecord<String, Object>> sent = recordCaptor();
+        verify(template).send(sent.capture());
+        assertEquals(new EmailRegistrationEvent("john@university.edu"), sent.getValue().value());
+        assertEquals(1, progress.matched());
+        assertEquals(1, progress.replayed());
+        service.destroy();
+    }
+
+    @Test
+    void dryRunOnlyCounts() throws Exception {
+        KafkaTemplate<String, Object> template = template();
+        DeadLetterReplayService service = new DeadLetterReplayService(factory(deadLetters()), template);
+
+        ReplayProgress progress = await(service, service.start(new ReplayRequest(Set.of(), null, null, 1, true)));
+
+        verify(template, never()).send(any(ProducerRecord.class));
+        assertEquals(4, progress.matched());
+        assertEquals(0, progress.replayed());
+        service.destroy();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendsEachBatchInOneTransaction() throws Exception {
+        KafkaTemplate<String, Object> template = template();
+        when(template.isTransactional()).thenReturn(true);
+        when(template.executeInTransaction(any())).thenAnswer(invocation ->
+                invocation.<KafkaOperations.OperationsCallback<String, Object, Object>>getArgument(0)
+                        .doInOperations(template));
+        DeadLetterReplayService service = new DeadLetterReplayService(factory(deadLetters()), template);
+
+        ReplayProgress progress = await(service, service.start(new ReplayRequest(Set.of(), null, null, 1000, false)));
+
+        verify(template).executeInTransaction(any());
+        verify(template, times(3)).send(any(ProducerRecord.class));
+        assertEquals(3, progress.replayed());
+        service.destroy();
+    }
+
+    @Test
+    void readsOnlyCommittedDeadLetters() throws Exception {
+        ConsumerFactory<String, Object> factory = factory(deadLetters());
+        DeadLetterReplayService service = new DeadLetterReplayService(factory, template());
+
+        await(service, service.start(new ReplayRequest(Set.of(), null, null, 1, true)));
+
+        ArgumentCaptor<Properties> overrides = ArgumentCaptor.forClass(Properties.class);
+        verify(factory).createConsumer(any(), any(), any(), overrides.capture());
+        assertEquals("read_committed", overrides.getValue().get(ConsumerConfig.ISOLATION_LEVEL_CONFIG));
+        service.destroy();
+    }
+
+    /**
+     * Four dead letters: one tagged with its original topic, two routed by type, one untyped string.
+     */
+    private static MockConsumer<String, Object> deadLetters() {
+        MockConsumer<String, Object> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.updatePartitions(DEAD_LETTER_TOPIC, List.of(new PartitionInfo(DEAD_LETTER_TOPIC, 0,
+                Node.noNode(), new Node[0], new Node[0])));
+        consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+        consumer.updateEndOffsets(Map.of(PARTITION, 4L));
+        List<ConsumerRecord<String, Object>> records = List.of(
+                deadLetter(0, 1_000, DeadLetters.record(EMAIL_VERIFICATION_MESSAGE_TOPIC, "id",
+                        new EmailVerificationEvent("token", "id"))),
+                deadLetter(1, 2_000, new ProducerRecord<>(DEAD_LETTER_TOPIC, new EmailRegistrationEvent("john@university.edu"))),
+                deadLetter(2, 3_000, DeadLetters.record(null, "id",
+                        new RegistrationMessage("id", "token", "pending", "john@university.edu"))),
+                deadLetter(3, 4_000, new ProducerRecord<>(DEAD_LETTER_TOPIC, "unknown")));
+        consumer.schedulePollTask(() -> records.forEach(consumer::addRecord));
+        return consumer;
+    }
+
+    private static ConsumerRecord<String, Object> deadLetter(long offset, long timestamp,
+                                                             ProducerRecord<String, Object> record) {
+        return new ConsumerRecord<>(DEAD_LETTER_TOPIC, 0, offset, timestamp, TimestampType.CREATE_TIME, -1, -1,
+                record.key(), record.value(), new RecordHeaders(record.headers().toArray()), Optional.empty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ConsumerFactory<String, Object> factory(MockConsumer<String, Object> consumer) {
+        ConsumerFactory<String, Object> factory = mock(ConsumerFactory.class);
+        when(factory.createConsumer(any(), any(), any(), any())).thenReturn(consumer);
+        return factory;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static KafkaTemplate<String, Object> template() {
+        KafkaTemplate<String, Object> template = mock(KafkaTemplate.class);
+        when(template.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+        return template;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<ProducerRecord<String, Object>> recordCaptor() {
+        return ArgumentCaptor.forClass(ProducerRecord.class);
+    }
+
+    private static ReplayProgress await(DeadLetterReplayService service, ReplayProgress started)
+            throws InterruptedException {
+        assertEquals(ReplayProgress.State.RUNNING, started.state());
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        ReplayProgress progress = service.progress();
+        while (progress.state() == ReplayProgress.State.RUNNING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            progress = service.progress();
+        }
+        return progress;
+    }
+}
@@ -0,0 +1,32 @@
+package com.vickezi.globals.events;
+
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventKeyResolverTest {
+
+    @Test
+    void defaultKeysFollowTheRegistrationFlow() {
+        EventKeyResolver resolver = EventKeyResolver.defaults();
+
+        assertEquals("john@university.edu", resolver.keyFor(new EmailRegistrationEvent("john@university.edu")));
+        assertEquals("id", resolver.keyFor(new EmailVerificationEvent("token", "id")));
+        assertEquals("id", resolver.keyFor(new RegistrationMessage("id", "token", "pending", "john@university.edu")));
+        assertNull(resolver.keyFor("unregistered type"));
+        assertNull(resolver.keyFor(null));
+    }
+
+    @Test
+    void customExtractorsReplaceDefaults() {
+        EventKeyResolver resolver = EventKeyResolver.builder()
+                .key(EmailRegistrationEvent.class, event -> event.email().toLowerCase())
+                .build();
+
+        assertEquals("john@university.edu", resolver.keyFor(new EmailRegistrationEvent("John@University.edu")));
+        assertNull(resolver.keyFor(new EmailVerificationEvent("token", "id")));
+    }
+}
@@ -0,0 +1,40 @@
+package com.vickezi.globals.events;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionSkewTrackerTest {
+
+    @Test
+    void reportsEvenSpreadAsSkewOfOne() {
+        PartitionSkewTracker tracker = new PartitionSkewTracker();
+        for (int partition = 0; partition < 3; partition++) {
+            tracker.record("topic", partition);
+            tracker.record("topic", partition);
+        }
+
+        PartitionSkew skew = tracker.report(topic -> 3).get("topic");
+
+        assertEquals(Map.of(0, 2L, 1, 2L, 2, 2L), skew.records());
+        assertEquals(6, skew.total());
+        assertEquals(1.0, skew.skew(), 1e-9);
+    }
+
+    @Test
+    void countsIdlePartitionsWhenThePartitionCountIsKnown() {
+        PartitionSkewTracker tracker = new PartitionSkewTracker();
+        tracker.record("topic", 1);
+        tracker.record("topic", 1);
+
+        PartitionSkew known = tracker.report(topic -> 4).get("topic");
+        PartitionSkew unknown = tracker.report(topic -> 0).get("topic");
+
+        assertEquals(Map.of(0, 0L, 1, 2L, 2, 0L, 3, 0L), known.records());
+        assertEquals(4.0, known.skew(), 1e-9);
+        assertEquals(Map.of(1, 2L), unknown.records());
+        assertEquals(1.0, unknown.skew(), 1e-9);
+    }
+}
@@ -0,0 +1,42 @@
+package com.vickezi.globals.events;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProducerMetricsTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ProducerMetrics metrics = new ProducerMetrics(registry);
+
+    @Test
+    void recordsLatencyAndSizeOfAcknowledgedSends() {
+        long start = metrics.sendStarted("topic");
+        assertEquals(1.0, registry.get("vickezi.producer.in.flight").tag("topic", "topic").gauge().value(), 0.0);
+
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition("topic", 0), 0L, 0, 0L, 5, 40);
+        metrics.sendCompleted("topic", start, metadata, null);
+
+        assertEquals(0.0, registry.get("vickezi.producer.in.flight").tag("topic", "topic").gauge().value(), 0.0);
+        assertEquals(1, registry.get("vickezi.producer.send").tags("topic", "topic", "outcome", "success")
+                .timer().count());
+        assertEquals(45.0, registry.get("vickezi.producer.record.size").tag("topic", "topic")
+                .summary().totalAmount(), 0.0);
+    }
+
+    @Test
+    void countsFailuresByRootCause() {
+        long start = metrics.sendStarted("topic");
+        metrics.sendCompleted("topic", start, null, new KafkaException("Send failed", new TimeoutException("expired")));
+
+        assertEquals(1, registry.get("vickezi.producer.send").tags("topic", "topic", "outcome", "failure")
+                .timer().count());
+        assertEquals(1.0, registry.get("vickezi.producer.send.failures")
+                .tags("topic", "topic", "exception", "TimeoutException").counter().count(), 0.0);
+        assertEquals(0.0, registry.get("vickezi.producer.in.flight").tag("topic", "topic").gauge().value(), 0.0);
+    }
+}
@@ -0,0 +1,98 @@
+package com.vickezi.globals.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampledLoggerTest {
+    private Logger logger;
+    private ListAppender<ILoggingEvent> appender;
+
+    @BeforeEach
+    void setUp() {
+        LoggerContext context = new LoggerContext();
+        logger = context.getLogger(SampledLoggerTest.class);
+        logger.setLevel(Level.INFO);
+        appender = new ListAppender<>();
+        appender.setContext(context);
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @Test
+    void writesAtMostPermitsPerInterval() {
+        SampledLogger sampled = SampledLogger.of(logger, 3, Duration.ofHours(1));
+
+        for (int i = 0; i < 10; i++) {
+            sampled.info("event {}", i);
+        }
+
+        assertEquals(3, appender.list.size());
+        assertEquals("event 2", appender.list.get(2).getFormattedMessage());
+        assertEquals(7, sampled.suppressedCount());
+    }
+
+    @Test
+    void reportsSuppressedMessagesInTheNextInterval() throws InterruptedException {
+        SampledLogger sampled = SampledLogger.of(logger, 1, Duration.ofMillis(20));
+        sampled.info("event {}", 1);
+        sampled.info("event {}", 2);
+        sampled.info("event {}", 3);
+
+        Thread.sleep(40);
+        sampled.info("event {}", 4);
+
+        assertEquals(2, appender.list.size());
+        assertEquals("event 4 [2 similar messages suppressed]", appender.list.get(1).getFormattedMessage());
+        assertEquals(0, sampled.suppressedCount());
+    }
+
+    @Test
+    void reportsSuppressedMessagesAfterEveryArity() throws InterruptedException {
+        SampledLogger sampled = SampledLogger.of(logger, 1, Duration.ofMillis(20));
+        sampled.warn("first");
+        sampled.warn("dropped {}", 1);
+        Thread.sleep(40);
+        sampled.warn("event {} on {}", 2, "topic");
+        sampled.warn("dropped");
+        Thread.sleep(40);
+        sampled.warn("event {}", 3);
+        sampled.warn("dropped {} {} {}", 4, 5, 6);
+        Thread.sleep(40);
+        sampled.error("event {} {} {}", 7, 8, 9);
+
+        assertEquals(List.of("first", "event 2 on topic [1 similar messages suppressed]",
+                        "event 3 [1 similar messages suppressed]", "event 7 8 9 [1 similar messages suppressed]"),
+                appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList());
+        assertEquals(List.of(Level.WARN, Level.WARN, Level.WARN, Level.ERROR),
+                appender.list.stream().map(ILoggingEvent::getLevel).toList());
+    }
+
+    @Test
+    void skipsDisabledLevelsWithoutCounting() {
+        SampledLogger sampled = SampledLogger.of(logger, 1, Duration.ofHours(1));
+        Object unformattable = new Object() {
+            @Override
+            public String toString() {
+                throw new AssertionError("Arguments of disabled levels must not be formatted");
+            }
+        };
+
+        sampled.trace("event");
+        sampled.debug("event {}", unformattable);
+        sampled.debug("event {} {}", unformattable, unformattable);
+        sampled.debug("event {} {} {}", unformattable, unformattable, unformattable);
+
+        assertTrue(appender.list.isEmpty());
+        assertEquals(0, sampled.suppressedCount());
+    }
+}
@@ -0,0 +1,46 @@
+package com.vickezi.globals.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StageTracerTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void recordsSampledTracesOnly() {
+        StageTracer tracer = tracer(1.0);
+        TraceContext sampled = new TraceContext("a", System.currentTimeMillis() - 250, true);
+        TraceContext unsampled = new TraceContext("b", System.currentTimeMillis(), false);
+
+        tracer.recordQueueWait("topic", sampled, TimeUnit.MILLISECONDS.toNanos(40));
+        tracer.recordQueueWait("topic", unsampled, TimeUnit.MILLISECONDS.toNanos(40));
+        tracer.recordQueueWait("topic", null, TimeUnit.MILLISECONDS.toNanos(40));
+        tracer.recordEndToEnd("email-handoff", sampled);
+
+        assertEquals(1, registry.get("vickezi.stage.queue.wait").tags("service", "test", "stage", "topic")
+                .timer().count());
+        assertTrue(registry.get("vickezi.trace.elapsed").tag("stage", "email-handoff").timer()
+                .totalTime(TimeUnit.MILLISECONDS) >= 250);
+    }
+
+    @Test
+    void samplesAtTheConfiguredRate() {
+        assertFalse(tracer(0.0).start().sampled());
+        assertTrue(tracer(1.0).start().sampled());
+        assertThrows(IllegalArgumentException.class, () -> tracer(1.5));
+    }
+
+    @SuppressWarnings("unchecked")
+    private StageTracer tracer(double sampleRate) {
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable(any())).thenReturn(registry);
+        return new StageTracer(provider, sampleRate, "test");
+    }
+}
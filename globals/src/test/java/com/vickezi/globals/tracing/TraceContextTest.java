@@ -0,0 +1,50 @@
+package com.vickezi.globals.tracing;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.vickezi.globals.util.Constants.TRACE_CONTEXT_HEADER;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceContextTest {
+
+    @Test
+    void roundTripsThroughRecordHeaders() {
+        TraceContext trace = new TraceContext("5f2b9c0d1e3a4b67", 1_700_000_000_000L, true);
+        RecordHeaders headers = new RecordHeaders();
+
+        trace.inject(headers);
+        new TraceContext("replaced", 1L, false).inject(headers);
+        trace.inject(headers);
+
+        assertEquals(1, headers.toArray().length);
+        assertEquals(trace, TraceContext.fromHeaders(headers));
+    }
+
+    @Test
+    void ignoresMissingAndMalformedHeaders() {
+        assertNull(TraceContext.fromHeaders(null));
+        assertNull(TraceContext.fromHeaders(new RecordHeaders()));
+        for (String malformed : new String[]{"", "abc", "abc;notanumber;1", ";1;1", "abc;1;1;extra"}) {
+            RecordHeaders headers = new RecordHeaders();
+            headers.add(TRACE_CONTEXT_HEADER, malformed.getBytes(StandardCharsets.US_ASCII));
+            assertNull(TraceContext.fromHeaders(headers), malformed);
+        }
+    }
+
+    @Test
+    void bindingRestoresTheOuterContext() {
+        TraceContext outer = TraceContext.start(true);
+        TraceContext inner = TraceContext.start(false);
+
+        try (TraceContext.Scope ignored = outer.bind()) {
+            try (TraceContext.Scope nested = inner.bind()) {
+                assertSame(inner, TraceContext.current());
+            }
+            assertSame(outer, TraceContext.current());
+        }
+        assertNull(TraceContext.current());
+    }
+}
@@ -0,0 +1,61 @@
+package com.vickezi.globals.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.vickezi.globals.util.Constants.EMAIL_PATTERN;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential tests of {@link EmailSyntax} against {@link Constants#EMAIL_PATTERN}.
+ */
+class EmailSyntaxTest {
+    private static final List<String> CORPUS = List.of(
+            "test@example.com", "john.doe+tag@university.edu", "a@b.co", "A_B-C.D@sub-domain.example.ORG",
+            "1@2.ab", "x@y.c", "x@.com", "x@a.com1", "x@a.c-m", "x@a..com", "x@a.com.", "x@-.co", "x@..co",
+            "@example.com", "x@", "x", "", "x@@example.com", "x@exa@mple.com", "x y@example.com", "x@example .com",
+            "x@example.com\n", "\nx@example.com", "x@example.c0m", "x@example.comm", ".@a.bc", "x@1.2.3.ab",
+            "x@a.b.c", "x@ab", "x@a.b", "é@example.com", "x@exämple.com", "x@example.cöm", "x%y@example.com");
+
+    @Test
+    void agreesWithPatternOnCorpus() {
+        for (String email : CORPUS) {
+            assertAgrees(email);
+        }
+    }
+
+    @Test
+    void agreesWithPatternOnRandomInput() {
+        Random random = new Random(28L);
+        String alphabet = "aZ09+_.-@.@..xé ";
+        StringBuilder builder = new StringBuilder();
+        for (int round = 0; round < 200_000; round++) {
+            builder.setLength(0);
+            int length = random.nextInt(12);
+            for (int i = 0; i < length; i++) {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            assertAgrees(builder.toString());
+        }
+    }
+
+    @Test
+    void acceptsAnyCharSequence() {
+        assertTrue(EmailSyntax.isValid(new StringBuilder("john.doe@university.edu")));
+        assertFalse(EmailSyntax.isValid(null));
+    }
+
+    @Test
+    void rejectsPathologicalInputInLinearTime() {
+        String domain = "a.".repeat(50_000) + "1";
+        assertFalse(EmailSyntax.isValid("x@" + domain));
+        assertTrue(EmailSyntax.isValid("x".repeat(100_000) + "@example.com"));
+    }
+
+    private static void assertAgrees(String email) {
+        assertEquals(EMAIL_PATTERN.matcher(email).matches(), EmailSyntax.isValid(email),
+                () -> "Decision differs for [" + email + "]");
+    }
+}
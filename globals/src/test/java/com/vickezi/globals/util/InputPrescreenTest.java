@@ -0,0 +1,52 @@
+package com.vickezi.globals.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputPrescreenTest {
+    private static final String CLEAN = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789@._+ ";
+    private static final String SUSPICIOUS = "<;-#'\"\u0080éс＜￿";
+
+    @Test
+    void flagsEachScreenedCharacterAtEveryPosition() {
+        for (int length = 1; length <= 80; length++) {
+            for (int position = 0; position < length; position++) {
+                for (char c : SUSPICIOUS.toCharArray()) {
+                    StringBuilder builder = new StringBuilder("a".repeat(length));
+                    builder.setCharAt(position, c);
+                    assertTrue(InputPrescreen.hasSuspiciousCharacters(builder.toString()),
+                            "Missed " + (int) c + " at " + position + " of " + length);
+                }
+            }
+        }
+    }
+
+    @Test
+    void agreesWithScalarImplementation() {
+        Random random = new Random(29L);
+        StringBuilder builder = new StringBuilder();
+        for (int round = 0; round < 20_000; round++) {
+            builder.setLength(0);
+            int length = random.nextInt(2_500);
+            for (int i = 0; i < length; i++) {
+                builder.append(CLEAN.charAt(random.nextInt(CLEAN.length())));
+            }
+            if (length > 0 && random.nextBoolean()) {
+                builder.setCharAt(random.nextInt(length), SUSPICIOUS.charAt(random.nextInt(SUSPICIOUS.length())));
+            }
+            String input = builder.toString();
+            assertEquals(InputPrescreen.hasSuspiciousCharactersScalar(input),
+                    InputPrescreen.hasSuspiciousCharacters(input));
+        }
+    }
+
+    @Test
+    void passesCleanAscii() {
+        assertFalse(InputPrescreen.hasSuspiciousCharacters(""));
+        assertFalse(InputPrescreen.hasSuspiciousCharacters("john.doe@university.edu"));
+        assertFalse(InputPrescreen.hasSuspiciousCharacters(CLEAN.repeat(40)));
+    }
+}
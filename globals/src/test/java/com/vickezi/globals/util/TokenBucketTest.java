@@ -0,0 +1,43 @@
+package com.vickezi.globals.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void allowsBurstThenRefillsAtRate() {
+        TokenBucket bucket = new TokenBucket(10, 2, clock::get);
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        clock.addAndGet(50_000_000L);
+        assertFalse(bucket.tryAcquire());
+        clock.addAndGet(50_000_000L);
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    void neverExceedsCapacityAfterIdling() {
+        TokenBucket bucket = new TokenBucket(100, 3, clock::get);
+        clock.addAndGet(60_000_000_000L);
+
+        int acquired = 0;
+        while (bucket.tryAcquire()) {
+            acquired++;
+        }
+        assertEquals(3, acquired);
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(10, 0.5));
+    }
+}
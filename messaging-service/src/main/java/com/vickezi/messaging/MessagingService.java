@@ -1,11 +1,16 @@
 package com.vickezi.messaging;
 
+import com.vickezi.globals.consumer.ListenerConcurrencyScaler;
+import com.vickezi.globals.tracing.StageTracer;
+import com.vickezi.globals.tracing.TracingRecordInterceptor;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 import org.springframework.scheduling.annotation.EnableAsync;
 
 @SpringBootApplication
 @EnableAsync
+@Import({StageTracer.class, TracingRecordInterceptor.class, ListenerConcurrencyScaler.class})
 public class MessagingService {
     public static void main(String[] args) {
         SpringApplication.run(MessagingService.class, args);
@@ -1,6 +1,8 @@
 package com.vickezi.messaging.queue;
 
 import com.vickezi.globals.model.RegistrationMessage;
+import com.vickezi.globals.tracing.StageTracer;
+import com.vickezi.globals.tracing.TraceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,9 +23,26 @@ public class EmailServiceImpl {
     @Value("${email.password}")// SMTP username
     private String password; // SMTP password
     private final Logger logger = LoggerFactory.getLogger(EmailServiceImpl.class);
+    private final StageTracer stageTracer;
+
+    public EmailServiceImpl(StageTracer stageTracer) {
+        this.stageTracer = stageTracer;
+    }
     public void sendEmail(RegistrationMessage message){
+        sendEmail(message, null);
+    }
+    /**
+     * Sends the verification email, recording the SMTP handoff and the time since the gateway accepted the
+     * registration when the trace is sampled.
+     *
+     * @param message the registration to notify
+     * @param trace the trace of the registration, may be null
+     */
+    public void sendEmail(RegistrationMessage message, TraceContext trace){
+        final long started = System.nanoTime();
         processMessage(message.messageId(), ()->sender(message));
-
+        stageTracer.recordSend("smtp", trace, started);
+        stageTracer.recordEndToEnd("email-handoff", trace);
     }
     /**
      * Generic method to process messages.
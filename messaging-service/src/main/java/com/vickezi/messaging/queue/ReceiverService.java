@@ -2,6 +2,8 @@ package com.vickezi.messaging.queue;
 
 
 import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.tracing.StageTracer;
+import com.vickezi.globals.tracing.TraceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -22,11 +24,14 @@ import static com.vickezi.globals.util.Constants.USER_REGISTRATION_CONFIRMATION_
 public class ReceiverService {
     private final Executor asyncExecutor;
     private final EmailServiceImpl emailService;
+    private final StageTracer stageTracer;
     private final Logger logger = LoggerFactory.getLogger(ReceiverService.class);
 
-    public ReceiverService(@Qualifier("applicationTaskExecutor") Executor asyncExecutor, EmailServiceImpl emailService) {
+    public ReceiverService(@Qualifier("applicationTaskExecutor") Executor asyncExecutor, EmailServiceImpl emailService,
+                           StageTracer stageTracer) {
         this.asyncExecutor = asyncExecutor;
         this.emailService = emailService;
+        this.stageTracer = stageTracer;
     }
     /**
      * Listens to the Kafka topic for email sending events and processes them asynchronously.
@@ -36,7 +41,7 @@ public class ReceiverService {
     @KafkaListener(topics = {USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC},
     groupId = "email-verification-message-group")
     public void newEmailRegistration(RegistrationMessage registrationEvent) {
-        logger.info("Received email registration event");
+        logger.debug("Received email registration event");
         processMessage(registrationEvent,  ()-> {
             sendEmail(registrationEvent);
         });
@@ -60,10 +65,14 @@ public class ReceiverService {
             logger.warn("Received a null email sending event, skipping processing.");
             return;
         }
+        // The executor hop loses the listener thread's trace, so it is handed over explicitly
+        final TraceContext trace = TraceContext.current();
+        final long queued = System.nanoTime();
         CompletableFuture.runAsync(() -> {
-            logger.info("Processing email registration");
+            stageTracer.recordQueueWait("email-executor", trace, System.nanoTime() - queued);
+            logger.debug("Processing email registration");
             try {
-                emailService.sendEmail(registrationEvent);
+                emailService.sendEmail(registrationEvent, trace);
             } catch (Exception e) {
                 logger.error("Unexpected error during email registration: {}", e.getMessage(), e);
             }
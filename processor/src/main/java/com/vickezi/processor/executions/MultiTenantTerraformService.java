@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class MultiTenantTerraformService {
@@ -74,11 +75,13 @@ public class MultiTenantTerraformService {
                 .then(prepareTerraformFiles(tenantId, templateId))
                 .publishOn(Schedulers.boundedElastic())
                 .flatMap(tenantDir -> {
-                    try {
-                        logger.debug("Tenant directory before command: {}", Files.list(tenantDir).map(Path::toString)
-                                .collect(Collectors.joining(", ")));
-                    } catch (IOException e) {
-                        return Mono.error(new RuntimeException(e));
+                    if (logger.isDebugEnabled()) {
+                        try (Stream<Path> files = Files.list(tenantDir)) {
+                            logger.debug("Tenant directory before command: {}", files.map(Path::toString)
+                                    .collect(Collectors.joining(", ")));
+                        } catch (IOException e) {
+                            return Mono.error(new RuntimeException(e));
+                        }
                     }
                     return runTerraformCommand(tenantId, tenantDir, templateId, userId, command, args)
                             .doOnSuccess(output -> logger.debug("Command {} output: {}", command, output));
@@ -92,7 +95,7 @@ public class MultiTenantTerraformService {
                         .doOnError(err -> logger.error("Failed to release lock on error: {}", err.getMessage()))
                         .then(Mono.error(new RuntimeException("Terraform execution failed for tenant " + tenantId +
                                 (ex != null ? " (timed out)" : ""), ex))))
-                .doOnSuccess(output -> logger.info("Completed Terraform command {} with output: {}", command, output));
+                .doOnSuccess(output -> logger.info("Completed Terraform command {} for tenant {}", command, tenantId));
     }
 
     private Mono<Path> prepareTerraformFiles(String tenantId, UUID templateId) {
@@ -133,7 +136,8 @@ public class MultiTenantTerraformService {
         final Instant startedExecution = Instant.now();
         return Mono.fromCallable(() -> {
                     String[] fullCommand = buildCommandArray(command, args);
-                    logger.info("Executing Terraform command for tenant {}: {}", tenantId, String.join(" ", fullCommand));
+                    logger.atInfo().addArgument(tenantId).addArgument(() -> String.join(" ", fullCommand))
+                            .log("Executing Terraform command for tenant {}: {}");
                     ProcessBuilder processBuilder = new ProcessBuilder(fullCommand);
                     processBuilder.directory(workingDir.toFile());
                     processBuilder.redirectErrorStream(true);
@@ -142,7 +146,7 @@ public class MultiTenantTerraformService {
                     try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
                         String line;
                         while ((line = reader.readLine()) != null) {
-                            logger.info("Terraform output: {}", line);
+                            logger.debug("Terraform output: {}", line);
                             output.append(line).append("\n");
                         }
                     }
@@ -0,0 +1,10 @@
+package com.vickezi.registration.exception;
+
+/**
+ * Thrown when a registration token is malformed, carries an invalid signature or has expired.
+ */
+public class InvalidTokenException extends RuntimeException {
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+}
@@ -1,3 +1,116 @@
 package com.vickezi.registration.model.services;
-public class UserRegistrationService {
+
+import com.vickezi.globals.batch.AdaptiveBatcher;
+import com.vickezi.registration.model.Users;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Stores confirmed registrations in the {@code registered_users} table, writing behind the listeners.
+ * <p>
+ * Confirmed users are queued in an {@link AdaptiveBatcher} and written with one multi-row
+ * {@code INSERT ... ON CONFLICT (email) DO NOTHING} per batch, flushed once {@code max-batch-size} users are queued
+ * or the latency budget is spent. The future returned by {@link #saveConfirmed(Users)} completes when the batch
+ * holding the user is written, so a listener acknowledges its record only after the user is stored; records
+ * confirmed concurrently by different listener threads share a round trip. A redelivered confirmation finds the
+ * email already stored and keeps the first row.
+ */
+@Service
+public class UserRegistrationService implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(UserRegistrationService.class);
+    static final String UPSERT_PREFIX = "INSERT INTO registered_users (id, email, confirmed_at) VALUES ";
+    static final String UPSERT_SUFFIX = " ON CONFLICT (email) DO NOTHING";
+
+    private final DatabaseClient databaseClient;
+    private final AdaptiveBatcher<Users, Void> batcher;
+
+    /**
+     * @param databaseClient the R2DBC client of the registration database
+     * @param maxBatchSize the most users written by one statement
+     * @param latencyBudget how long a user may wait for its batch to be written
+     * @param maxPending the most users queued before confirmations are rejected
+     * @param meterRegistry the registry to publish the batcher meters to, if any
+     */
+    public UserRegistrationService(DatabaseClient databaseClient,
+                                   @Value("${registration.persistence.max-batch-size:500}") int maxBatchSize,
+                                   @Value("${registration.persistence.latency-budget:20ms}") Duration latencyBudget,
+                                   @Value("${registration.persistence.max-pending:10000}") int maxPending,
+                                   ObjectProvider<MeterRegistry> meterRegistry) {
+        this.databaseClient = databaseClient;
+        this.batcher = AdaptiveBatcher.builder("registered-users", this::upsert)
+                .maxBatchSize(maxBatchSize)
+                .latencyBudget(latencyBudget)
+                .maxPending(maxPending)
+                .meterRegistry(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry))
+                .build();
+    }
+
+    /**
+     * Queues a confirmed user for the next batch.
+     *
+     * @param user the confirmed user
+     * @return completed once the user is stored, or failed with the error of its batch
+     */
+    public CompletableFuture<Void> saveConfirmed(Users user) {
+        return batcher.submit(user);
+    }
+
+    /**
+     * Writes a batch in one statement. Postgres rejects a statement that inserts the same email twice, so only the
+     * last user of each email is written; the others share its outcome.
+     */
+    private CompletionStage<List<Void>> upsert(List<Users> batch) {
+        Map<String, Users> byEmail = new LinkedHashMap<>();
+        for (Users user : batch) {
+            byEmail.put(user.getEmail(), user);
+        }
+        DatabaseClient.GenericExecuteSpec statement = databaseClient.sql(upsertSql(byEmail.size()));
+        int index = 0;
+        for (Users user : byEmail.values()) {
+            statement = statement.bind(index++, user.getId()).bind(index++, user.getEmail());
+        }
+        return statement.fetch().rowsUpdated()
+                .toFuture()
+                .thenApply(inserted -> {
+                    logger.debug("Stored {} of {} confirmed users", inserted, batch.size());
+                    return null;
+                });
+    }
+
+    /**
+     * Builds the insert of the given number of rows, with positional parameters {@code $1, $2, ...}.
+     */
+    static String upsertSql(int rows) {
+        StringBuilder sql = new StringBuilder(UPSERT_PREFIX.length() + UPSERT_SUFFIX.length() + rows * 24)
+                .append(UPSERT_PREFIX);
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                sql.append(", ");
+            }
+            sql.append("($").append(2 * row + 1).append(", $").append(2 * row + 2).append(", now())");
+        }
+        return sql.append(UPSERT_SUFFIX).toString();
+    }
+
+    /**
+     * Writes the users still queued before the database client goes away.
+     */
+    @Override
+    public void destroy() {
+        batcher.close();
+    }
 }
@@ -0,0 +1,156 @@
+package com.vickezi.registration.queue;
+
+import com.vickezi.globals.events.DeadLetters;
+import com.vickezi.globals.events.MessageProducerService;
+import com.vickezi.globals.logging.SampledLogger;
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+import com.vickezi.globals.tracing.TraceContext;
+import com.vickezi.registration.services.RegistrationServiceHandler;
+import com.vickezi.registration.status.StatusNotices;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import static com.vickezi.globals.util.Constants.*;
+
+/**
+ * Batch variant of {@link ReceiverNewEmailRegistrationMessage}, enabled with {@code registration.listener.mode=batch}.
+ * <p>
+ * Every record of a poll is processed inside the Kafka transaction the container opens for the poll, which also
+ * commits the poll's offsets, so the commit cost is paid once per batch instead of once per record and what a batch
+ * sends is atomic with its offsets. A record whose processing fails is sent to the dead letter topic within the same
+ * transaction and the rest of the batch carries on. If the transaction itself fails, the whole batch is redelivered
+ * by the container.
+ * <p>
+ * Confirmed users are stored behind the listener: the writes of a poll are started together, so they share batched
+ * statements, and the batch is acknowledged only once all of them are done. A record whose write fails is
+ * dead-lettered like any other failed record.
+ */
+@Service
+@ConditionalOnProperty(name = "registration.listener.mode", havingValue = "batch")
+public class BatchEmailRegistrationReceiver {
+    private static final Logger logger = LoggerFactory.getLogger(BatchEmailRegistrationReceiver.class);
+    private static final SampledLogger sampledLogger = SampledLogger.perSecond(logger, 10);
+
+    private final RegistrationServiceHandler registrationServiceHandler;
+    private final MessageProducerService<RegistrationMessage> messageProducerService;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ListenerMeters listenerMeters;
+
+    public BatchEmailRegistrationReceiver(RegistrationServiceHandler registrationServiceHandler,
+                                          MessageProducerService<RegistrationMessage> messageProducerService,
+                                          KafkaTemplate<String, Object> kafkaTemplate,
+                                          ListenerMeters listenerMeters) {
+        this.registrationServiceHandler = registrationServiceHandler;
+        this.messageProducerService = messageProducerService;
+        this.kafkaTemplate = kafkaTemplate;
+        this.listenerMeters = listenerMeters;
+    }
+
+    /**
+     * Registers every email of a poll and publishes the confirmation notices in one transaction.
+     *
+     * @param records the records of one poll
+     * @param ack Kafka acknowledgment object
+     */
+    @KafkaListener(topics = USER_EMAIL_REGISTERED_EVENT_TOPIC, groupId = "user-registration-group",
+            containerFactory = ConfigurationBeans.BATCH_LISTENER_CONTAINER_FACTORY)
+    public void handleEmailRegistrations(List<ConsumerRecord<String, EmailRegistrationEvent>> records,
+                                         Acknowledgment ack) {
+        processBatch(USER_EMAIL_REGISTERED_EVENT_TOPIC, records, record -> {
+            RegistrationMessage message = registrationServiceHandler.registerUserByEmail(record.value().email());
+            messageProducerService.addMessageToQueue(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC, message);
+            return CompletableFuture.completedFuture(null);
+        }, ack);
+    }
+
+    /**
+     * Verifies every token of a poll in one transaction.
+     *
+     * @param records the records of one poll
+     * @param ack Kafka acknowledgment object
+     */
+    @KafkaListener(topics = EMAIL_VERIFICATION_MESSAGE_TOPIC, groupId = "email-verification-message-group",
+            containerFactory = ConfigurationBeans.BATCH_LISTENER_CONTAINER_FACTORY)
+    public void handleEmailVerifications(List<ConsumerRecord<String, EmailVerificationEvent>> records,
+                                         Acknowledgment ack) {
+        processBatch(EMAIL_VERIFICATION_MESSAGE_TOPIC, records, record -> {
+            EmailVerificationEvent verification = record.value();
+            return registrationServiceHandler.confirmEmailLinkIsValid(verification.token(), verification.messageId(),
+                            Deliveries.of(record))
+                    .thenApply(email -> StatusNotices.completed(verification.messageId(), email));
+        }, ack);
+    }
+
+    /**
+     * Processes the records in order inside one transaction, isolating the failures of single records. The
+     * transaction commits once the work each record left pending is done.
+     *
+     * @param <T> the type of the messages
+     * @param topic the topic the records were read from
+     * @param records the records of one poll
+     * @param processor the processing of one record with a message, returning the work it left pending, completed
+     *                  with the status notice to publish once it is done, if any
+     * @param ack Kafka acknowledgment object
+     */
+    private <T> void processBatch(String topic, List<ConsumerRecord<String, T>> records,
+                                  Function<ConsumerRecord<String, T>, CompletableFuture<RegistrationMessage>> processor,
+                                  Acknowledgment ack) {
+        final long start = System.nanoTime();
+        // Sends join the transaction the container opened for the poll
+        int deadLettered = 0;
+        List<ConsumerRecord<String, T>> started = new ArrayList<>(records.size());
+        List<CompletableFuture<RegistrationMessage>> pending = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, T> record : records) {
+            T message = record.value();
+            if (message == null) {
+                logger.warn("❌ Received null event at {}-{}@{}, skipping.", record.topic(), record.partition(),
+                        record.offset());
+                continue;
+            }
+            // Bound so the producer carries the trace of each record over to what it sends
+            TraceContext trace = TraceContext.fromHeaders(record.headers());
+            try (TraceContext.Scope ignored = trace == null ? null : trace.bind()) {
+                pending.add(processor.apply(record));
+                started.add(record);
+            } catch (RuntimeException ex) {
+                logger.error("❌ Failed to process record {}-{}@{}, sending it to the dead letter topic: {}",
+                        record.topic(), record.partition(), record.offset(), ex.getMessage(), ex);
+                kafkaTemplate.send(DeadLetters.record(topic, record.key(), message));
+                deadLettered++;
+            }
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            ConsumerRecord<String, T> record = started.get(i);
+            try {
+                RegistrationMessage notice = pending.get(i).join();
+                if (notice != null) {
+                    messageProducerService.addMessageToQueue(REGISTRATION_STATUS_TOPIC, notice);
+                }
+            } catch (CompletionException ex) {
+                Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+                logger.error("❌ Failed to complete record {}-{}@{}, sending it to the dead letter topic: {}",
+                        record.topic(), record.partition(), record.offset(), cause.getMessage(), cause);
+                kafkaTemplate.send(DeadLetters.record(topic, record.key(), record.value()));
+                deadLettered++;
+            }
+        }
+        ack.acknowledge();
+        listenerMeters.transactionCompleted(ListenerMeters.BATCH_MODE, topic, records.size(), deadLettered, start);
+        sampledLogger.info("✅ Processed {} records from {} in one transaction, {} dead-lettered",
+                records.size(), topic, deadLettered);
+    }
+}
@@ -1,47 +1,186 @@
 package com.vickezi.registration.queue;
 
-import org.apache.kafka.common.errors.TimeoutException;
+import com.vickezi.globals.consumer.ListenerConcurrencyScaler;
+import com.vickezi.globals.events.DeadLetterReplayEndpoint;
+import com.vickezi.globals.events.DeadLetterReplayService;
+import com.vickezi.globals.tracing.StageTracer;
+import com.vickezi.globals.tracing.TracingRecordInterceptor;
+import com.vickezi.registration.exception.InvalidTokenException;
+import com.vickezi.registration.exception.RegistrationException;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
-import org.springframework.retry.backoff.FixedBackOffPolicy;
-import org.springframework.retry.policy.SimpleRetryPolicy;
-import org.springframework.retry.support.RetryTemplate;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
+import org.springframework.util.backoff.FixedBackOff;
 
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static com.vickezi.globals.util.Constants.EMAIL_VERIFICATION_MESSAGE_TOPIC;
+import static com.vickezi.globals.util.Constants.REGISTRATION_STATUS_TOPIC;
+import static com.vickezi.globals.util.Constants.USER_EMAIL_REGISTERED_EVENT_TOPIC;
 
 @Configuration
+@Import({DeadLetterReplayService.class, DeadLetterReplayEndpoint.class, StageTracer.class,
+        TracingRecordInterceptor.class, ListenerConcurrencyScaler.class})
 public class ConfigurationBeans {
+    static final String BATCH_LISTENER_CONTAINER_FACTORY = "batchKafkaListenerContainerFactory";
+    static final String IDEMPOTENT_LISTENER_CONTAINER_FACTORY = "idempotentKafkaListenerContainerFactory";
+    static final String PARALLEL_LISTENER_CONTAINER_FACTORY = "parallelKafkaListenerContainerFactory";
+    /** Attempts of a record in the idempotent mode before it is dead-lettered. */
+    static final int IDEMPOTENT_MAX_ATTEMPTS = 3;
+    /**
+     * Partitions of the topics the listeners read and create. When unset the consumers of a container bound the
+     * parallelism instead, so virtual mode never runs fewer consumers than the platform mode it replaces.
+     */
+    static final String TOPIC_PARTITIONS = "${vickezi.kafka.topics.partitions:${spring.kafka.listener.concurrency:1}}";
+
+    /**
+     * The topic the listeners publish confirmed registrations to, read by the registration status topology.
+     */
+    @Bean
+    public NewTopic registrationStatusTopic(@Value(TOPIC_PARTITIONS) int partitions) {
+        return TopicBuilder.name(REGISTRATION_STATUS_TOPIC)
+                .partitions(partitions)
+                .replicas(1)
+                .build();
+    }
+
+    /**
+     * Non-blocking retries of the per-record listeners. A failed record is forwarded to the retry topic of its next
+     * attempt, consumed 1 s, 10 s and then 60 s later by the same listener, so the original partition keeps flowing
+     * while it waits. After the last attempt it lands in {@code <topic>-dlt}, whose handler forwards it to the shared
+     * dead letter topic. Registration and token errors are not retried.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "registration.listener.mode", havingValue = "record", matchIfMissing = true)
+    public RetryTopicConfiguration registrationRetryTopics(KafkaTemplate<String, Object> kafkaTemplate,
+                                                           @Value(TOPIC_PARTITIONS) int partitions) {
+        return RetryTopicConfigurationBuilder.newInstance()
+                .exponentialBackoff(1000, 10, 60_000)
+                .maxAttempts(4)
+                .includeTopics(List.of(USER_EMAIL_REGISTERED_EVENT_TOPIC, EMAIL_VERIFICATION_MESSAGE_TOPIC))
+                .notRetryOn(List.of(RegistrationException.class, InvalidTokenException.class))
+                .traversingCauses()
+                .autoCreateTopicsWith(partitions, (short) 1)
+                .dltSuffix(ReceiverNewEmailRegistrationMessage.DLT_SUFFIX)
+                .dltHandlerMethod("receiverNewEmailRegistrationMessage", "handleDeadLetter")
+                .create(kafkaTemplate);
+    }
+
+    /**
+     * Listener container factory of {@link BatchEmailRegistrationReceiver}: the Spring Boot settings of the default
+     * factory, delivering each poll as one list. With them comes Boot's Kafka transaction manager, which runs each
+     * poll in one transaction that also commits its offsets; the batch receiver sends within it.
+     */
+    @Bean(BATCH_LISTENER_CONTAINER_FACTORY)
+    @ConditionalOnProperty(name = "registration.listener.mode", havingValue = "batch")
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        return factory;
+    }
+
+    /**
+     * Listener container factory of {@link ParallelEmailRegistrationReceiver}: the Spring Boot settings of the
+     * default factory, delivering each poll as one list, without its Kafka transaction manager. The receiver runs
+     * each record in its own transaction and commits the offsets itself, so a container transaction would only open
+     * an empty one per poll. The receiver also listens to rebalances, to forget the partitions it gives up.
+     */
+    @Bean(PARALLEL_LISTENER_CONTAINER_FACTORY)
+    @ConditionalOnProperty(name = "registration.listener.mode", havingValue = "parallel")
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> parallelKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            ParallelEmailRegistrationReceiver receiver) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setKafkaAwareTransactionManager(null);
+        factory.getContainerProperties().setConsumerRebalanceListener(receiver);
+        return factory;
+    }
+
+    /**
+     * Listener container factory of {@link IdempotentEmailRegistrationReceiver}: the Spring Boot settings of the
+     * default factory without its Kafka transaction manager. Failed records are retried in place 1 s apart, then
+     * dead-lettered by the receiver; registration and token errors are dead-lettered at once.
+     */
+    @Bean(IDEMPOTENT_LISTENER_CONTAINER_FACTORY)
+    @ConditionalOnProperty(name = "registration.listener.mode", havingValue = "idempotent")
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> idempotentKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            IdempotentEmailRegistrationReceiver receiver) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setKafkaAwareTransactionManager(null);
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(receiver::deadLetter,
+                new FixedBackOff(1000, IDEMPOTENT_MAX_ATTEMPTS - 1));
+        errorHandler.addNotRetryableExceptions(RegistrationException.class, InvalidTokenException.class);
+        errorHandler.setCommitRecovered(true);
+        factory.setCommonErrorHandler(errorHandler);
+        return factory;
+    }
+
+    /**
+     * The messages processed in the idempotent mode, on local disk under {@code registration.ledger.path}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "registration.listener.mode", havingValue = "idempotent")
+    public ProcessedMessageLedger processedMessageLedger(
+            @Value("${registration.ledger.path:data/processed-messages}") Path path,
+            @Value("${registration.ledger.ttl:30m}") Duration ttl) {
+        return new ProcessedMessageLedger(path, ttl, Clock.systemUTC());
+    }
+
+    /**
+     * Lets the transactional {@link KafkaTemplate} send outside a transaction in the idempotent mode. Such sends go
+     * through a non-transactional producer of the same factory, which keeps {@code enable.idempotence}, so broker
+     * retries cannot duplicate or reorder them.
+     */
     @Bean
-    public RetryTemplate retryTemplate() {
-        RetryTemplate retryTemplate = new RetryTemplate();
-        // Retry up to 3 times for technical exceptions
-        Map<Class<? extends Throwable>, Boolean> retryableExceptions = new HashMap<>();
-        retryableExceptions.put(IOException.class, true);
-        retryableExceptions.put(TimeoutException.class, true);
-        SimpleRetryPolicy retryPolicy = new SimpleRetryPolicy(3, retryableExceptions);
-        retryTemplate.setRetryPolicy(retryPolicy);
-        // Backoff policy (e.g., 1-second delay)
-        FixedBackOffPolicy backOffPolicy = new FixedBackOffPolicy();
-        backOffPolicy.setBackOffPeriod(1000);
-        retryTemplate.setBackOffPolicy(backOffPolicy);
-        return retryTemplate;
+    @ConditionalOnProperty(name = "registration.listener.mode", havingValue = "idempotent")
+    public static BeanPostProcessor nonTransactionalKafkaTemplates() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof KafkaTemplate<?, ?> template) {
+                    template.setAllowNonTransactional(true);
+                }
+                return bean;
+            }
+        };
     }
 
     /**
-     * Defines a custom ThreadPoolTaskExecutor for Kafka consumers.
+     * Moves the consumers of every listener container, including the retry topic and batch containers, onto
+     * virtual threads when {@code registration.listener.threads=virtual}. In the default {@code platform} mode each
+     * consumer keeps its own platform thread and {@code spring.kafka.listener.concurrency} applies.
      */
     @Bean
-    public ThreadPoolTaskExecutor kafkaConsumerTaskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(5);   // Minimum threads
-        executor.setMaxPoolSize(10);   // Maximum threads
-        executor.setQueueCapacity(50); // Task queue size
-        executor.setThreadNamePrefix("KafkaConsumer-");
-        executor.initialize();
-        return executor;
+    @ConditionalOnProperty(name = "registration.listener.threads", havingValue = "virtual")
+    public ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>> virtualThreadListenerContainers(
+            @Value(TOPIC_PARTITIONS) int partitions,
+            @Value("${registration.listener.max-concurrency:64}") int maxConcurrency) {
+        return new VirtualThreadContainerCustomizer(partitions, maxConcurrency);
     }
 }
@@ -0,0 +1,39 @@
+package com.vickezi.registration.queue;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Names the delivery of a verification record, so the token stores can tell a redelivery of the record that used
+ * a token from another record carrying it, see
+ * {@link com.vickezi.registration.services.RegistrationServiceHandler#confirmEmailLinkIsValid}.
+ */
+final class Deliveries {
+    private Deliveries() {
+    }
+
+    /**
+     * The topic, partition and offset a record was first read from: its own, or those a retry topic record carries
+     * in the {@link KafkaHeaders#ORIGINAL_TOPIC original topic} headers, so every retry of a record is the same
+     * delivery.
+     *
+     * @param record the record
+     * @return the delivery, as {@code <topic>-<partition>@<offset>}
+     */
+    static String of(ConsumerRecord<?, ?> record) {
+        Headers headers = record.headers();
+        Header topic = headers.lastHeader(KafkaHeaders.ORIGINAL_TOPIC);
+        Header partition = headers.lastHeader(KafkaHeaders.ORIGINAL_PARTITION);
+        Header offset = headers.lastHeader(KafkaHeaders.ORIGINAL_OFFSET);
+        if (topic != null && partition != null && offset != null) {
+            return new String(topic.value(), StandardCharsets.UTF_8) + '-' + ByteBuffer.wrap(partition.value()).getInt()
+                    + '@' + ByteBuffer.wrap(offset.value()).getLong();
+        }
+        return record.topic() + '-' + record.partition() + '@' + record.offset();
+    }
+}
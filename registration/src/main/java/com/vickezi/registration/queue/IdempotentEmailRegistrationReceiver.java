@@ -0,0 +1,163 @@
+package com.vickezi.registration.queue;
+
+import com.vickezi.globals.events.DeadLetters;
+import com.vickezi.globals.events.MessageProducerService;
+import com.vickezi.globals.logging.SampledLogger;
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+import com.vickezi.registration.services.RegistrationServiceHandler;
+import com.vickezi.registration.status.StatusNotices;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static com.vickezi.globals.util.Constants.*;
+
+/**
+ * Idempotent variant of {@link ReceiverNewEmailRegistrationMessage}, enabled with
+ * {@code registration.listener.mode=idempotent}.
+ * <p>
+ * Records are processed without Kafka transactions. Instead each one is looked up in the
+ * {@link ProcessedMessageLedger} first, by the partition and offset of a registration or the message ID of a
+ * verification, and skipped if it was already processed. Otherwise it is processed, the notice it sends is awaited from the
+ * idempotent producer, and it is recorded in the ledger before its offset is acknowledged. A record delivered again
+ * after a rebalance or a restart is thus processed once, provided it returns to this instance within the ledger TTL.
+ * A failure between the confirmation being written and the ledger entry can still send that confirmation twice.
+ * <p>
+ * Failed records are retried in place by the error handler of
+ * {@link ConfigurationBeans#idempotentKafkaListenerContainerFactory}, then sent to the dead letter topic by
+ * {@link #deadLetter}; registration and token errors are not retried.
+ */
+@Service
+@ConditionalOnProperty(name = "registration.listener.mode", havingValue = "idempotent")
+public class IdempotentEmailRegistrationReceiver {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotentEmailRegistrationReceiver.class);
+    private static final SampledLogger sampledLogger = SampledLogger.perSecond(logger, 10);
+
+    private final RegistrationServiceHandler registrationServiceHandler;
+    private final MessageProducerService<RegistrationMessage> messageProducerService;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ProcessedMessageLedger ledger;
+    private final ListenerMeters listenerMeters;
+
+    /**
+     * @param registrationServiceHandler the service handler for registration
+     * @param messageProducerService the service for producing messages to Kafka
+     * @param kafkaTemplate the template dead letters are sent with, outside any transaction
+     * @param ledger the messages already processed
+     * @param listenerMeters records the throughput of the listener
+     */
+    public IdempotentEmailRegistrationReceiver(RegistrationServiceHandler registrationServiceHandler,
+                                               MessageProducerService<RegistrationMessage> messageProducerService,
+                                               KafkaTemplate<String, Object> kafkaTemplate,
+                                               ProcessedMessageLedger ledger,
+                                               ListenerMeters listenerMeters) {
+        this.registrationServiceHandler = registrationServiceHandler;
+        this.messageProducerService = messageProducerService;
+        this.kafkaTemplate = kafkaTemplate;
+        this.ledger = ledger;
+        this.listenerMeters = listenerMeters;
+    }
+
+    /**
+     * Registers an email unless the record was processed within the ledger TTL. The same email registered again in
+     * a later record is registered again.
+     *
+     * @param record the email registration event
+     * @param ack Kafka acknowledgment object
+     */
+    @KafkaListener(topics = USER_EMAIL_REGISTERED_EVENT_TOPIC, groupId = "user-registration-group",
+            containerFactory = ConfigurationBeans.IDEMPOTENT_LISTENER_CONTAINER_FACTORY)
+    public void handleEmailRegistration(ConsumerRecord<String, EmailRegistrationEvent> record, Acknowledgment ack) {
+        process(record, ack, email -> {
+            RegistrationMessage message = registrationServiceHandler.registerUserByEmail(email.email());
+            return messageProducerService.addMessageToQueue(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC, message);
+        });
+    }
+
+    /**
+     * Confirms a verification unless its message was processed within the ledger TTL.
+     *
+     * @param record the email verification event
+     * @param ack Kafka acknowledgment object
+     */
+    @KafkaListener(topics = EMAIL_VERIFICATION_MESSAGE_TOPIC, groupId = "email-verification-message-group",
+            containerFactory = ConfigurationBeans.IDEMPOTENT_LISTENER_CONTAINER_FACTORY)
+    public void handleEmailVerification(ConsumerRecord<String, EmailVerificationEvent> record, Acknowledgment ack) {
+        process(record, ack, verification -> registrationServiceHandler.confirmEmailLinkIsValid(verification.token(),
+                        verification.messageId(), Deliveries.of(record))
+                .thenCompose(email -> messageProducerService.addMessageToQueue(REGISTRATION_STATUS_TOPIC,
+                        StatusNotices.completed(verification.messageId(), email))));
+    }
+
+    /**
+     * Sends a record that failed every attempt to the dead letter topic and records it in the ledger, so a
+     * redelivery does not dead-letter it again. Recoverer of the container error handler.
+     *
+     * @param record the record that failed
+     * @param ex the last failure
+     */
+    void deadLetter(ConsumerRecord<?, ?> record, Exception ex) {
+        logger.error("❌ Giving up on record {}-{}@{}, sending it to the dead letter topic: {}", record.topic(),
+                record.partition(), record.offset(), ex.getMessage(), ex);
+        kafkaTemplate.send(DeadLetters.record(record.topic(), Objects.toString(record.key(), null),
+                record.value())).join();
+        String key = ledgerKey(record);
+        if (key != null) {
+            ledger.markProcessed(key);
+        }
+        listenerMeters.deadLettered(ListenerMeters.IDEMPOTENT_MODE, record.topic());
+    }
+
+    /**
+     * Processes a record unless the ledger holds it, waiting for what it sends before recording it and
+     * acknowledging its offset. Failures are left to the container error handler.
+     */
+    private <T> void process(ConsumerRecord<String, T> record, Acknowledgment ack,
+                             Function<T, CompletableFuture<?>> processor) {
+        final long start = System.nanoTime();
+        String key = ledgerKey(record);
+        if (key == null) {
+            logger.warn("❌ Received null event at {}-{}@{}, skipping.", record.topic(), record.partition(),
+                    record.offset());
+            ack.acknowledge();
+            return;
+        }
+        if (ledger.isProcessed(key)) {
+            sampledLogger.info("Skipping {}-{}@{}, already processed", record.topic(), record.partition(),
+                    record.offset());
+            ack.acknowledge();
+            listenerMeters.duplicate(ListenerMeters.IDEMPOTENT_MODE, record.topic());
+            return;
+        }
+        processor.apply(record.value()).join();
+        ledger.markProcessed(key);
+        ack.acknowledge();
+        listenerMeters.transactionCompleted(ListenerMeters.IDEMPOTENT_MODE, record.topic(), 1, 0, start);
+    }
+
+    /**
+     * The ledger key of a record: its topic with the message ID of a verification, which names one link, or with
+     * the partition and offset of any other record, so only a redelivery of the same record matches. Null for a
+     * record without a value.
+     */
+    static String ledgerKey(ConsumerRecord<?, ?> record) {
+        if (record.value() == null) {
+            return null;
+        }
+        if (record.value() instanceof EmailVerificationEvent verification && verification.messageId() != null) {
+            return record.topic() + ':' + verification.messageId();
+        }
+        return record.topic() + ':' + record.partition() + '@' + record.offset();
+    }
+}
@@ -0,0 +1,85 @@
+package com.vickezi.registration.queue;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput meters of the registration listeners, tagged by {@code mode} ({@code record}, {@code batch},
+ * {@code parallel} or {@code idempotent}) and
+ * {@code topic}, so the listener modes can be compared on the same dashboard:
+ * <ul>
+ *   <li>{@code vickezi.registration.records} - records handled, per {@code outcome}; its rate is records/sec</li>
+ *   <li>{@code vickezi.registration.transaction} - duration of each Kafka transaction, or of each record in the
+ *   {@code idempotent} mode, which has none</li>
+ *   <li>{@code vickezi.registration.transaction.records} - records per transaction</li>
+ * </ul>
+ */
+@Component
+class ListenerMeters {
+    static final String RECORD_MODE = "record";
+    static final String BATCH_MODE = "batch";
+    static final String PARALLEL_MODE = "parallel";
+    static final String IDEMPOTENT_MODE = "idempotent";
+
+    private final MeterRegistry registry;
+
+    ListenerMeters(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    /**
+     * Records a committed transaction.
+     *
+     * @param mode the listener mode
+     * @param topic the topic the records were read from
+     * @param records the records handled in the transaction
+     * @param deadLettered how many of them were sent to the dead letter topic
+     * @param startNanos when the transaction started
+     */
+    void transactionCompleted(String mode, String topic, int records, int deadLettered, long startNanos) {
+        Timer.builder("vickezi.registration.transaction")
+                .tags("mode", mode, "topic", topic)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("vickezi.registration.transaction.records")
+                .tags("mode", mode, "topic", topic)
+                .register(registry)
+                .record(records);
+        records(mode, topic, "processed").increment(records - deadLettered);
+        records(mode, topic, "dead-lettered").increment(deadLettered);
+    }
+
+    /**
+     * Counts a record sent to the dead letter topic after its retries ran out.
+     *
+     * @param mode the listener mode
+     * @param topic the topic the record was first read from
+     */
+    void deadLettered(String mode, String topic) {
+        records(mode, topic, "dead-lettered").increment();
+    }
+
+    /**
+     * Counts a record skipped because it had already been processed.
+     *
+     * @param mode the listener mode
+     * @param topic the topic the record was read from
+     */
+    void duplicate(String mode, String topic) {
+        records(mode, topic, "duplicate").increment();
+    }
+
+    private Counter records(String mode, String topic, String outcome) {
+        return Counter.builder("vickezi.registration.records")
+                .tags("mode", mode, "topic", topic, "outcome", outcome)
+                .register(registry);
+    }
+}
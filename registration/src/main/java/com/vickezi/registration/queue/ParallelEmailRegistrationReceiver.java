@@ -0,0 +1,201 @@
+package com.vickezi.registration.queue;
+
+import com.vickezi.globals.consumer.KeyOrderedDispatcher;
+import com.vickezi.globals.consumer.OffsetTracker;
+import com.vickezi.globals.events.DeadLetters;
+import com.vickezi.globals.events.MessageProducerService;
+import com.vickezi.globals.logging.SampledLogger;
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+import com.vickezi.globals.tracing.TraceContext;
+import com.vickezi.registration.exception.InvalidTokenException;
+import com.vickezi.registration.exception.RegistrationException;
+import com.vickezi.registration.services.RegistrationServiceHandler;
+import com.vickezi.registration.status.StatusNotices;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.vickezi.globals.util.Constants.*;
+
+/**
+ * Parallel variant of {@link ReceiverNewEmailRegistrationMessage}, enabled with
+ * {@code registration.listener.mode=parallel}.
+ * <p>
+ * Each poll is handed to a {@link KeyOrderedDispatcher}: records with different keys are processed concurrently on
+ * virtual threads, even within one partition, while records of the same email or message ID keep their order. Each
+ * record commits in its own Kafka transaction, as in the record mode.
+ * <p>
+ * Offsets are committed by this receiver rather than the container, only up to the lowest incomplete offset of each
+ * partition, as tracked by an {@link OffsetTracker}. A partition with an incomplete record is sought back to it, so
+ * the next poll delivers it again together with the records queued behind it; those already done are skipped. The
+ * tracked offsets of a partition are forgotten once a rebalance takes it away.
+ * Registration and token errors are sent to the dead letter topic at once, other failures after
+ * {@value #MAX_ATTEMPTS} attempts.
+ */
+@Service
+@ConditionalOnProperty(name = "registration.listener.mode", havingValue = "parallel")
+public class ParallelEmailRegistrationReceiver implements ConsumerAwareRebalanceListener, DisposableBean {
+    static final int MAX_ATTEMPTS = 3;
+    private static final Logger logger = LoggerFactory.getLogger(ParallelEmailRegistrationReceiver.class);
+    private static final SampledLogger sampledLogger = SampledLogger.perSecond(logger, 10);
+
+    private final RegistrationServiceHandler registrationServiceHandler;
+    private final MessageProducerService<RegistrationMessage> messageProducerService;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ListenerMeters listenerMeters;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final KeyOrderedDispatcher dispatcher;
+    private final OffsetTracker offsets = new OffsetTracker();
+
+    /**
+     * @param maxConcurrency the most keys processed at once, across the consumers of this instance
+     */
+    public ParallelEmailRegistrationReceiver(RegistrationServiceHandler registrationServiceHandler,
+                                             MessageProducerService<RegistrationMessage> messageProducerService,
+                                             KafkaTemplate<String, Object> kafkaTemplate,
+                                             ListenerMeters listenerMeters,
+                                             @Value("${registration.listener.parallel.max-concurrency:64}")
+                                             int maxConcurrency) {
+        this.registrationServiceHandler = registrationServiceHandler;
+        this.messageProducerService = messageProducerService;
+        this.kafkaTemplate = kafkaTemplate;
+        this.listenerMeters = listenerMeters;
+        this.dispatcher = new KeyOrderedDispatcher(executor, maxConcurrency);
+    }
+
+    /**
+     * Registers the emails of a poll in parallel by key.
+     *
+     * @param records the records of one poll
+     * @param consumer the consumer that polled them, to commit and seek with
+     */
+    @KafkaListener(topics = USER_EMAIL_REGISTERED_EVENT_TOPIC, groupId = "user-registration-group",
+            containerFactory = ConfigurationBeans.PARALLEL_LISTENER_CONTAINER_FACTORY)
+    public void handleEmailRegistrations(List<ConsumerRecord<String, EmailRegistrationEvent>> records,
+                                         Consumer<?, ?> consumer) throws InterruptedException {
+        processPoll(USER_EMAIL_REGISTERED_EVENT_TOPIC, records, consumer, record -> {
+            RegistrationMessage message = registrationServiceHandler.registerUserByEmail(record.value().email());
+            messageProducerService.addMessageToQueue(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC, message);
+        });
+    }
+
+    /**
+     * Verifies the tokens of a poll in parallel by key.
+     *
+     * @param records the records of one poll
+     * @param consumer the consumer that polled them, to commit and seek with
+     */
+    @KafkaListener(topics = EMAIL_VERIFICATION_MESSAGE_TOPIC, groupId = "email-verification-message-group",
+            containerFactory = ConfigurationBeans.PARALLEL_LISTENER_CONTAINER_FACTORY)
+    public void handleEmailVerifications(List<ConsumerRecord<String, EmailVerificationEvent>> records,
+                                         Consumer<?, ?> consumer) throws InterruptedException {
+        processPoll(EMAIL_VERIFICATION_MESSAGE_TOPIC, records, consumer, record -> {
+            EmailVerificationEvent verification = record.value();
+            String email = registrationServiceHandler.confirmEmailLinkIsValid(verification.token(),
+                    verification.messageId(), Deliveries.of(record)).join();
+            messageProducerService.addMessageToQueue(REGISTRATION_STATUS_TOPIC,
+                    StatusNotices.completed(verification.messageId(), email));
+        });
+    }
+
+    /**
+     * Processes a poll, then commits each partition up to its lowest incomplete offset and seeks back to it.
+     */
+    private <T> void processPoll(String topic, List<ConsumerRecord<String, T>> records, Consumer<?, ?> consumer,
+                                 java.util.function.Consumer<ConsumerRecord<String, T>> processor)
+            throws InterruptedException {
+        final long start = System.nanoTime();
+        List<ConsumerRecord<String, T>> pending = records.stream().filter(record -> !offsets.isCompleted(record))
+                .toList();
+        KeyOrderedDispatcher.Result<String, T> result = dispatcher.dispatch(pending,
+                record -> process(topic, record, processor));
+        result.completed().forEach(offsets::completed);
+        int deadLettered = 0;
+        for (var failure : result.failed().entrySet()) {
+            ConsumerRecord<String, T> record = failure.getKey();
+            RuntimeException ex = failure.getValue();
+            if (isNotRetryable(ex) || offsets.failed(record) >= MAX_ATTEMPTS) {
+                logger.error("❌ Giving up on record {}-{}@{}, sending it to the dead letter topic: {}",
+                        record.topic(), record.partition(), record.offset(), ex.getMessage(), ex);
+                kafkaTemplate.executeInTransaction(operations ->
+                        operations.send(DeadLetters.record(topic, record.key(), record.value())));
+                offsets.completed(record);
+                deadLettered++;
+            } else {
+                logger.warn("Record {}-{}@{} failed, it will be delivered again: {}", record.topic(),
+                        record.partition(), record.offset(), ex.getMessage());
+            }
+        }
+
+        OffsetTracker.Progress progress = offsets.progress(records);
+        if (!progress.commits().isEmpty()) {
+            consumer.commitSync(progress.commits());
+        }
+        progress.rewinds().forEach(consumer::seek);
+
+        int done = result.completed().size() + deadLettered;
+        if (done > 0) {
+            listenerMeters.transactionCompleted(ListenerMeters.PARALLEL_MODE, topic, done, deadLettered, start);
+        }
+        sampledLogger.info("✅ Processed {} of {} records from {} in parallel, {} partitions to resume",
+                done, records.size(), topic, progress.rewinds().size());
+    }
+
+    /**
+     * Processes one record in its own transaction, carrying its trace over to what it sends.
+     */
+    private <T> void process(String topic, ConsumerRecord<String, T> record,
+                             java.util.function.Consumer<ConsumerRecord<String, T>> processor) {
+        if (record.value() == null) {
+            logger.warn("❌ Received null event at {}-{}@{}, skipping.", topic, record.partition(), record.offset());
+            return;
+        }
+        TraceContext trace = TraceContext.fromHeaders(record.headers());
+        try (TraceContext.Scope ignored = trace == null ? null : trace.bind()) {
+            kafkaTemplate.executeInTransaction(operations -> {
+                processor.accept(record);
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        offsets.forget(partitions);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        offsets.forget(partitions);
+    }
+
+    private static boolean isNotRetryable(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RegistrationException || cause instanceof InvalidTokenException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,120 @@
+package com.vickezi.registration.queue;
+
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.TtlDB;
+import org.rocksdb.WriteOptions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * The messages {@link IdempotentEmailRegistrationReceiver} has processed, by message ID or event key, kept on local
+ * disk for {@code ttl} so a record delivered again after a rebalance or a restart is recognised and skipped.
+ * <p>
+ * Entries live in an embedded RocksDB opened with a time to live. RocksDB only drops expired entries when it
+ * compacts their files, so each entry also holds the time it was written and is treated as absent once older than
+ * the TTL. Most lookups are for messages never seen, which the bloom filter of each file answers without reading it.
+ * Writes go to the write-ahead log without an fsync: an entry survives the process failing, not the host.
+ * <p>
+ * The ledger is local to the instance; messages processed by another replica are not seen here.
+ */
+public final class ProcessedMessageLedger implements AutoCloseable {
+    private static final int BLOOM_BITS_PER_KEY = 10;
+
+    static {
+        RocksDB.loadLibrary();
+    }
+
+    private final Clock clock;
+    private final long ttlMillis;
+    private final BloomFilter filter;
+    private final Options options;
+    private final WriteOptions writeOptions;
+    private final TtlDB db;
+
+    /**
+     * Opens the ledger, creating it if missing.
+     *
+     * @param path the directory of the ledger
+     * @param ttl how long a processed message is remembered, at least a second
+     * @param clock the clock entries are stamped and aged with
+     */
+    public ProcessedMessageLedger(Path path, Duration ttl, Clock clock) {
+        if (ttl.getSeconds() < 1) {
+            throw new IllegalArgumentException("Ledger TTL must be at least a second");
+        }
+        this.clock = clock;
+        this.ttlMillis = ttl.toMillis();
+        this.filter = new BloomFilter(BLOOM_BITS_PER_KEY);
+        this.options = new Options()
+                .setCreateIfMissing(true)
+                .setTableFormatConfig(new BlockBasedTableConfig().setFilterPolicy(filter));
+        this.writeOptions = new WriteOptions().setSync(false);
+        try {
+            Files.createDirectories(path);
+            this.db = TtlDB.open(options, path.toString(), (int) Math.min(Integer.MAX_VALUE, ttl.getSeconds()), false);
+        } catch (IOException ex) {
+            closeOptions();
+            throw new UncheckedIOException("Could not create the ledger directory " + path, ex);
+        } catch (RocksDBException ex) {
+            closeOptions();
+            throw new IllegalStateException("Could not open the processed message ledger at " + path, ex);
+        }
+    }
+
+    /**
+     * @param key the message ID or event key
+     * @return true if the message was processed within the TTL
+     */
+    public boolean isProcessed(String key) {
+        byte[] value;
+        try {
+            value = db.get(bytes(key));
+        } catch (RocksDBException ex) {
+            throw new IllegalStateException("Could not read the processed message ledger", ex);
+        }
+        return value != null && clock.millis() - ByteBuffer.wrap(value).getLong() < ttlMillis;
+    }
+
+    /**
+     * Records a message as processed, from now until the TTL has passed.
+     *
+     * @param key the message ID or event key
+     */
+    public void markProcessed(String key) {
+        try {
+            db.put(writeOptions, bytes(key), ByteBuffer.allocate(Long.BYTES).putLong(clock.millis()).array());
+        } catch (RocksDBException ex) {
+            throw new IllegalStateException("Could not write the processed message ledger", ex);
+        }
+    }
+
+    /**
+     * Closes the ledger. Entries not yet flushed are replayed from the write-ahead log when it is opened again.
+     */
+    @Override
+    public void close() {
+        db.close();
+        closeOptions();
+    }
+
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void closeOptions() {
+        writeOptions.close();
+        options.close();
+        filter.close();
+    }
+}
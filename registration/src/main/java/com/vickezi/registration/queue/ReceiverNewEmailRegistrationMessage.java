@@ -1,48 +1,70 @@
 package com.vickezi.registration.queue;
 
+import com.vickezi.globals.events.DeadLetters;
+import com.vickezi.globals.logging.SampledLogger;
 import com.vickezi.globals.model.EmailRegistrationEvent;
 import com.vickezi.globals.events.MessageProducerService;
 import com.vickezi.globals.model.EmailVerificationEvent;
 import com.vickezi.globals.model.RegistrationMessage;
-import com.vickezi.registration.exception.RegistrationException;
+import com.vickezi.globals.tracing.StageTracer;
+import com.vickezi.globals.tracing.TraceContext;
 import com.vickezi.registration.services.RegistrationServiceHandler;
+import com.vickezi.registration.status.StatusNotices;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaOperations;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.retry.support.RetryTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+
 import static com.vickezi.globals.util.Constants.*;
 /**
  * Service responsible for receiving and processing email registration and verification events.
  * Listens to Kafka topics and processes events.
  * Does not use auto commit so we can manage the failures retries and writing back to the same cluster
+ * Failed records are retried through the delayed retry topics of {@link ConfigurationBeans#registrationRetryTopics},
+ * then sent to the dead letter topic by {@link #handleDeadLetter}.
+ * Used unless {@code registration.listener.mode} selects {@link BatchEmailRegistrationReceiver},
+ * {@link ParallelEmailRegistrationReceiver} or {@link IdempotentEmailRegistrationReceiver}.
  */
 @Service
+@ConditionalOnProperty(name = "registration.listener.mode", havingValue = "record", matchIfMissing = true)
 public class ReceiverNewEmailRegistrationMessage {
     private final RegistrationServiceHandler registrationServiceHandler;
     private final MessageProducerService<RegistrationMessage> messageProducerService;
     private final KafkaTemplate<String, Object> kafkaTemplate;
-    private final RetryTemplate retryTemplate;
+    private final StageTracer stageTracer;
+    private final ListenerMeters listenerMeters;
+    /** Suffix of the topics holding the records that failed every attempt. */
+    static final String DLT_SUFFIX = "-dlt";
     private static final Logger logger = LoggerFactory.getLogger(ReceiverNewEmailRegistrationMessage.class);
+    private static final SampledLogger sampledLogger = SampledLogger.perSecond(logger, 10);
     /**
      * Constructs a new ReceiverNewEmailRegistrationMessage with the given dependencies.
      *
      * @param registrationServiceHandler the service handler for registration
      * @param messageProducerService the service for producing messages to Kafka
      * @param kafkaTemplate the Kafka template for sending messages
-     * @param retryTemplate the template for retrying operations
+     * @param stageTracer records the confirmation send of traced registrations
+     * @param listenerMeters records the throughput of the listener
      */
     public ReceiverNewEmailRegistrationMessage(RegistrationServiceHandler registrationServiceHandler,
                                                MessageProducerService<RegistrationMessage> messageProducerService,
                                                KafkaTemplate<String, Object> kafkaTemplate,
-                                               RetryTemplate retryTemplate) {
+                                               StageTracer stageTracer,
+                                               ListenerMeters listenerMeters) {
         this.registrationServiceHandler = registrationServiceHandler;
         this.messageProducerService = messageProducerService;
         this.kafkaTemplate = kafkaTemplate;
-        this.retryTemplate = retryTemplate;
+        this.stageTracer = stageTracer;
+        this.listenerMeters = listenerMeters;
     }
     /**
      * Listens to the Kafka topic for email registration events and processes them.
@@ -56,85 +78,109 @@ public class ReceiverNewEmailRegistrationMessage {
             logger.warn("❌ Received null email event, skipping.");
             return;
         }
-        logger.info("📨 Processing email registration for: {}", email.email());
-        processMessage(email, () -> {
+        logger.debug("📨 Processing email registration for: {}", email.email());
+        processMessage(USER_EMAIL_REGISTERED_EVENT_TOPIC, () -> {
             RegistrationMessage message = registrationServiceHandler.registerUserByEmail(email.email());
             sendMessageToKafka(message);
-            logger.info("✅ Email registration successful, ID: {}", message.messageId());
+            sampledLogger.info("✅ Email registration successful, ID: {}", message.messageId());
         }, ack);
     }
     /**
      * Listens to the Kafka topic for email verification events and processes them.
      *
-     * @param emailVerificationEvent the received email verification event
+     * @param record the received email verification event
      * @param ack Kafka acknowledgment object
      */
     @KafkaListener(topics = EMAIL_VERIFICATION_MESSAGE_TOPIC, groupId = "email-verification-message-group")
-    public void handleEmailVerification(EmailVerificationEvent emailVerificationEvent, Acknowledgment ack) {
+    public void handleEmailVerification(ConsumerRecord<String, EmailVerificationEvent> record, Acknowledgment ack) {
+        EmailVerificationEvent emailVerificationEvent = record.value();
         if (emailVerificationEvent == null) {
             logger.warn("❌ Received null email verification event, skipping.");
             return;
         }
-        logger.info("📩 Processing email verification for ID: {}", emailVerificationEvent.messageId());
+        logger.debug("📩 Processing email verification for ID: {}", emailVerificationEvent.messageId());
 
-        processMessage(emailVerificationEvent, () -> {
-            registrationServiceHandler.confirmEmailLinkIsValid(emailVerificationEvent.token());
-            logger.info("✅ Email verification successful for ID: {}", emailVerificationEvent.messageId());
+        processMessage(EMAIL_VERIFICATION_MESSAGE_TOPIC, () -> {
+            // Waits for the user to be stored so the record is only committed once it is
+            String email = registrationServiceHandler.confirmEmailLinkIsValid(emailVerificationEvent.token(),
+                    emailVerificationEvent.messageId(), Deliveries.of(record)).join();
+            messageProducerService.addMessageToQueue(REGISTRATION_STATUS_TOPIC,
+                    StatusNotices.completed(emailVerificationEvent.messageId(), email));
+            sampledLogger.info("✅ Email verification successful for ID: {}", emailVerificationEvent.messageId());
         }, ack);
     }
     /**
-     * Generic method to process messages.
+     * Receives the records that failed every attempt and forwards them to the shared dead letter topic, tagged with
+     * the topic they were first read from so they can be replayed there.
      *
-     * @param <T> the type of the message
-     * @param message the message to process
+     * @param message the record value
+     * @param key the record key, may be null
+     * @param dltTopic the topic the record was read from
+     * @param reason the message of the last failure, may be null
+     * @param ack Kafka acknowledgment object
+     */
+    public void handleDeadLetter(Object message,
+                                 @Header(name = KafkaHeaders.RECEIVED_KEY, required = false) String key,
+                                 @Header(KafkaHeaders.RECEIVED_TOPIC) String dltTopic,
+                                 @Header(name = KafkaHeaders.DLT_EXCEPTION_MESSAGE, required = false) byte[] reason,
+                                 Acknowledgment ack) {
+        String topic = dltTopic.endsWith(DLT_SUFFIX)
+                ? dltTopic.substring(0, dltTopic.length() - DLT_SUFFIX.length())
+                : dltTopic;
+        logger.error("❌ Giving up on record from {} after all retries: {}", topic,
+                reason == null ? null : new String(reason, StandardCharsets.UTF_8));
+        kafkaTemplate.executeInTransaction(trx -> {
+            sendToDeadLetterTopic(trx, topic, key, message);
+            return null;
+        });
+        ack.acknowledge();
+        listenerMeters.deadLettered(ListenerMeters.RECORD_MODE, topic);
+    }
+    /**
+     * Generic method to process messages. The processing and the messages it sends commit together; if it fails, the
+     * transaction is aborted and the exception is left to the retry topic error handler.
+     *
+     * @param topic the topic the message was read from
      * @param messageProcessor the processing function
      * @param ack Kafka acknowledgment object
      */
-    private <T> void processMessage(T message, Runnable messageProcessor, Acknowledgment ack) {
+    private void processMessage(String topic, Runnable messageProcessor, Acknowledgment ack) {
+        final long start = System.nanoTime();
         kafkaTemplate.executeInTransaction(trx -> {
-            try {
-                retryTemplate.execute(context -> {
-                    messageProcessor.run();
-                    return null;
-                });
-
-                ack.acknowledge();
-                logger.info("✅ Message successfully processed");
-            } catch (RegistrationException ex) {
-                logger.error("❌ Registration error: {}", ex.getMessage(), ex);
-                sendToDeadLetterTopic(message);
-                ack.acknowledge();
-            } catch (Exception ex) {
-                logger.error("❌ Unexpected error: {}", ex.getMessage(), ex);
-                sendToDeadLetterTopic(message);
-                ack.acknowledge();
-            }
+            messageProcessor.run();
             return null;
         });
+        ack.acknowledge();
+        logger.debug("✅ Message successfully processed");
+        listenerMeters.transactionCompleted(ListenerMeters.RECORD_MODE, topic, 1, 0, start);
     }
     /**
-     * Sends a message to the Kafka topic.
+     * Sends a message to the Kafka topic. The trace of the record being processed is carried over by the producer.
      *
      * @param message the message to send
      */
     private void sendMessageToKafka(RegistrationMessage message) {
+        final TraceContext trace = TraceContext.current();
+        final long sent = System.nanoTime();
         messageProducerService.addMessageToQueue(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC, message)
+                .whenComplete((result, ex) -> stageTracer.recordSend(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC, trace, sent))
                 .exceptionally(ex -> {
                     logger.error("❌ Kafka send failure to topic {}: {}", USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC, ex.getMessage(), ex);
                     return null;
                 });
     }
     /**
-     * Sends the message to the dead letter topic.
+     * Sends the message to the dead letter topic within the given transaction, tagged with the topic it was
+     * read from so it can be replayed there.
      *
      * @param <T> the type of the message
+     * @param operations the operations of the transaction
+     * @param topic the topic the message was read from
+     * @param key the record key, may be null
      * @param message the message to send
      */
-    private <T> void sendToDeadLetterTopic(T message) {
-        if (message instanceof RegistrationMessage) {
-            messageProducerService.sendToDeadLetterTopic((RegistrationMessage) message);
-        } else {
-            logger.error("❌ Message type {} not supported for DLQ", message.getClass().getSimpleName());
-        }
+    private <T> void sendToDeadLetterTopic(KafkaOperations<String, Object> operations, String topic, String key,
+                                           T message) {
+        operations.send(DeadLetters.record(topic, key, message));
     }
 }
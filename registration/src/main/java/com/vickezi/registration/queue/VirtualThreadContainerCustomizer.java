@@ -0,0 +1,48 @@
+package com.vickezi.registration.queue;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+
+/**
+ * Runs the consumers of every registration listener container on virtual threads.
+ * <p>
+ * A listener container polls, signs, retries and sends on its consumer thread, which spends most of its time
+ * blocked on the broker. A virtual thread parks instead of holding a platform thread and its stack, so each
+ * container can run one consumer per partition: the concurrency is the partition count, capped at
+ * {@code registration.listener.max-concurrency}. The executor starts one thread per consumer and does not throttle,
+ * since a consumer runs for the life of its container and a throttled start would never return.
+ * <p>
+ * On Java 23 a virtual thread inside a {@code synchronized} block still pins its carrier, which the Kafka producer
+ * does around transactions; the cap bounds how many carriers that can take.
+ */
+class VirtualThreadContainerCustomizer
+        implements ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>> {
+    static final String THREAD_NAME_PREFIX = "registration-vt-";
+
+    private final SimpleAsyncTaskExecutor executor;
+    private final int concurrency;
+
+    /**
+     * @param partitions the partitions of each registration topic
+     * @param maxConcurrency the most consumers a single container may run
+     */
+    VirtualThreadContainerCustomizer(int partitions, int maxConcurrency) {
+        if (partitions < 1 || maxConcurrency < 1) {
+            throw new IllegalArgumentException("Partitions and the concurrency cap must be at least 1");
+        }
+        this.concurrency = Math.min(partitions, maxConcurrency);
+        this.executor = new SimpleAsyncTaskExecutor(THREAD_NAME_PREFIX);
+        executor.setVirtualThreads(true);
+    }
+
+    @Override
+    public void configure(ConcurrentMessageListenerContainer<Object, Object> container) {
+        container.getContainerProperties().setListenerTaskExecutor(executor);
+        container.setConcurrency(concurrency);
+    }
+
+    int concurrency() {
+        return concurrency;
+    }
+}
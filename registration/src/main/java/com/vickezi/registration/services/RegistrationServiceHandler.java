@@ -3,31 +3,51 @@ package com.vickezi.registration.services;
 import com.vickezi.globals.events.MessageProducerService;
 import com.vickezi.globals.events.Status;
 import com.vickezi.globals.model.RegistrationMessage;
+import com.vickezi.registration.exception.InvalidTokenException;
 import com.vickezi.registration.model.Users;
-import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.InvalidKeyException;
+import com.vickezi.registration.model.services.UserRegistrationService;
+import com.vickezi.registration.token.ConsumedTokens;
+import com.vickezi.registration.token.KeyRing;
+import com.vickezi.registration.token.TokenClaims;
+import com.vickezi.registration.token.TokenMode;
+import com.vickezi.registration.token.TokenProperties;
+import com.vickezi.registration.token.VerificationCodes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Import;
 import org.springframework.stereotype.Service;
-import io.jsonwebtoken.security.SignatureException;
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.NoSuchAlgorithmException;
-import java.util.Date;
+
+import java.time.Duration;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 @Service
 @Import(MessageProducerService.class)
 public class RegistrationServiceHandler {
     private static final Logger log = LoggerFactory.getLogger(RegistrationServiceHandler.class);
-    private final KeyPair keyPair;
+    private final KeyRing keyRing;
+    private final TokenMode tokenMode;
+    private final Duration tokenTtl;
+    private final ConsumedTokens consumedTokens;
+    private final VerificationCodes verificationCodes;
+    private final UserRegistrationService userRegistrationService;
 
     /**
-     * Default constructor initializing the key pair for JWT signing.
+     * @param keyRing the shared signing and verification keys of registration tokens
+     * @param tokenProperties the token settings, for the token mode and lifetime
+     * @param consumedTokens the tokens already confirmed, to reject replays
+     * @param verificationCodes the codes issued in {@link TokenMode#CODE} mode
+     * @param userRegistrationService stores the users whose email is confirmed
      */
-    public RegistrationServiceHandler() {
-        this.keyPair = generateKeyPair();
+    public RegistrationServiceHandler(KeyRing keyRing, TokenProperties tokenProperties,
+                                      ConsumedTokens consumedTokens, VerificationCodes verificationCodes,
+                                      UserRegistrationService userRegistrationService) {
+        this.keyRing = keyRing;
+        this.tokenMode = tokenProperties.getMode();
+        this.tokenTtl = tokenProperties.getTtl();
+        this.consumedTokens = consumedTokens;
+        this.verificationCodes = verificationCodes;
+        this.userRegistrationService = userRegistrationService;
     }
 
     /**
@@ -52,74 +72,58 @@ public class RegistrationServiceHandler {
     }
 
     /**
-     * Builds a JWT token containing email, expiry time, and status.
+     * Builds a JWT token containing email, expiry time, and status, or a verification code bound to the message ID
+     * in {@link TokenMode#CODE} mode.
      *
      * @param email The email of the user.
      * @return RegistrationMessage object with the generated token.
      */
-    private RegistrationMessage buildToken(final String email) throws InvalidKeyException {
-        long expirationTime = 30 * 60 * 1000; // 30 minutes
-        Date now = new Date();
-        Date expiration = new Date(now.getTime() + expirationTime);
-
-        String token = Jwts.builder()
-                .setSubject(email)
-                .setIssuedAt(now)
-                .setExpiration(expiration)
-                .signWith(keyPair.getPrivate(), SignatureAlgorithm.ES256)
-                .compact();
-
-        return new RegistrationMessage(UUID.randomUUID().toString(), token, Status.PENDING.getState(), email);
+    private RegistrationMessage buildToken(final String email) {
+        String messageId = UUID.randomUUID().toString();
+        String token = tokenMode == TokenMode.CODE
+                ? verificationCodes.issue(messageId, email, tokenTtl)
+                : keyRing.issue(email, tokenTtl);
+        return new RegistrationMessage(messageId, token, Status.PENDING.getState(), email);
     }
 
     /**
      * Confirms if the email verification link is valid.
      *
-     * @param token The JWT token received in the verification link.
-     * @throws SignatureException if the token is invalid or expired.
-     */
-    public void confirmEmailLinkIsValid(final String token)  throws RuntimeException{
-           try{
-               Claims claims = parseToken(token);
-               Users user = new Users();
-               user.setEmail(objectToString(claims.getSubject()));
-           }catch (SignatureException e){
-               throw new RuntimeException(e);
-           }
-    }
-
-    /**
-     * Parses a JWT token and extracts claims.
+     * The confirmed user is queued for storage; the record holding the token should be acknowledged only once the
+     * returned future completes. Each token confirms once; if storing the user fails, the token may be used again.
+     * A redelivery of the record that used the token, after a later step of its transaction failed, confirms the
+     * same user again, while any other record carrying the token is rejected.
      *
-     * @param token The JWT token to be parsed.
-     * @return Claims extracted from the token.
-     * @throws RuntimeException if the token is invalid or expired.
+     * @param token The JWT token, or the verification code, received in the verification link.
+     * @param messageId The message ID received in the same link, which a verification code must have been issued for.
+     * @param delivery Identifies the record the link arrived in, the same on every redelivery of that record.
+     * @return completed with the confirmed email once the user is stored.
+     * @throws InvalidTokenException if the token is invalid, expired or already used.
      */
-    private Claims parseToken(final String token) throws SignatureException {
-            try{
-                return Jwts.parserBuilder()
-                        .setSigningKey(keyPair.getPublic())
-                        .build()
-                        .parseClaimsJws(token)
-                        .getBody();
-            }catch (SignatureException e){
-                throw new RuntimeException(e);
+    public CompletableFuture<String> confirmEmailLinkIsValid(final String token, final String messageId,
+                                                             final String delivery) throws InvalidTokenException {
+        TokenClaims claims;
+        if (tokenMode == TokenMode.CODE) {
+            claims = verificationCodes.redeem(token, messageId, delivery);
+        } else {
+            claims = keyRing.verify(token);
+            if (!consumedTokens.consume(claims, delivery)) {
+                throw new InvalidTokenException("Token already used");
+            }
+        }
+        Users user = new Users(UUID.randomUUID(), objectToString(claims.subject()));
+        return userRegistrationService.saveConfirmed(user).whenComplete((stored, ex) -> {
+            if (ex != null) {
+                release(claims, messageId);
             }
+        }).thenApply(stored -> user.getEmail());
     }
 
-    /**
-     * Generates an Elliptic Curve key pair for signing JWT tokens.
-     *
-     * @return A newly generated KeyPair.
-     * @throws IllegalStateException if key pair generation fails.
-     */
-    public static KeyPair generateKeyPair() {
-        try {
-            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
-            keyPairGenerator.initialize(256);
-            return keyPairGenerator.generateKeyPair();
-        } catch (NoSuchAlgorithmException e) {
-            throw new IllegalStateException("❌ Failed to generate key pair", e);
+    private void release(TokenClaims claims, String messageId) {
+        if (tokenMode == TokenMode.CODE) {
+            verificationCodes.release(claims, messageId);
+        } else {
+            consumedTokens.release(claims);
         }
     }
 
@@ -0,0 +1,34 @@
+package com.vickezi.registration.status;
+
+import com.vickezi.globals.events.Status;
+
+import java.time.Instant;
+
+/**
+ * The latest known state of a registration, as materialized by {@link RegistrationStatusTopology}.
+ *
+ * @param email the registered email, null if only the message ID is known
+ * @param messageId the message ID of the confirmation link last sent, null before one is sent
+ * @param status {@link Status#PENDING} once registered, {@link Status#IN_PROGRESS} once the link is sent,
+ *               {@link Status#COMPLETED} once confirmed, {@link Status#FAILED} once dead-lettered
+ * @param updatedAt the timestamp of the record that set the status
+ */
+public record RegistrationStatus(String email, String messageId, Status status, Instant updatedAt) {
+    /**
+     * Applies a later update. Updates older than this state are ignored, so records read out of order across
+     * topics do not move a registration back. A new registration clears the message ID of the previous link.
+     *
+     * @param update the state derived from one record
+     * @return the resulting state
+     */
+    public RegistrationStatus merge(RegistrationStatus update) {
+        if (update.updatedAt().isBefore(updatedAt)) {
+            return this;
+        }
+        String mergedEmail = update.email() != null ? update.email() : email;
+        String mergedMessageId = update.messageId() != null || update.status() == Status.PENDING
+                ? update.messageId()
+                : messageId;
+        return new RegistrationStatus(mergedEmail, mergedMessageId, update.status(), update.updatedAt());
+    }
+}
@@ -0,0 +1,95 @@
+package com.vickezi.registration.status;
+
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.streams.KafkaStreamsInteractiveQueryService;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+
+/**
+ * Serves point lookups of the {@link RegistrationStatusTopology} stores:
+ * {@code GET /api/v1/registration/status/email/{email}} and
+ * {@code GET /api/v1/registration/status/message/{messageId}}.
+ * <p>
+ * A key is read from the local store of the instance hosting its partition. When the instances advertise their
+ * address with {@code spring.kafka.streams.properties.application.server}, a key hosted elsewhere is answered with a
+ * temporary redirect to that instance. Unknown keys get a 404, and a 503 is returned while the stores are not
+ * queryable, such as during startup.
+ */
+@Component
+@ConditionalOnProperty(name = "registration.status.enabled", havingValue = "true")
+public class RegistrationStatusHandler {
+    private static final Serializer<String> KEY_SERIALIZER = Serdes.String().serializer();
+
+    private final KafkaStreamsInteractiveQueryService queryService;
+
+    public RegistrationStatusHandler(KafkaStreamsInteractiveQueryService queryService) {
+        this.queryService = queryService;
+    }
+
+    public Mono<ServerResponse> byEmail(ServerRequest request) {
+        return lookup(RegistrationStatusTopology.BY_EMAIL_STORE, request.pathVariable("email"), request);
+    }
+
+    public Mono<ServerResponse> byMessageId(ServerRequest request) {
+        return lookup(RegistrationStatusTopology.BY_MESSAGE_STORE, request.pathVariable("messageId"), request);
+    }
+
+    /**
+     * Reads the key off the event loop, as the store may be unavailable for a moment while partitions move and the
+     * query service then retries.
+     */
+    private Mono<ServerResponse> lookup(String store, String key, ServerRequest request) {
+        return Mono.fromCallable(() -> {
+                    URI owner = remoteOwner(store, key, request);
+                    if (owner != null) {
+                        return new Lookup(null, owner);
+                    }
+                    ReadOnlyKeyValueStore<String, RegistrationStatus> statuses =
+                            queryService.retrieveQueryableStore(store, QueryableStoreTypes.keyValueStore());
+                    return new Lookup(statuses.get(key), null);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(lookup -> {
+                    if (lookup.redirect() != null) {
+                        return ServerResponse.temporaryRedirect(lookup.redirect()).build();
+                    }
+                    return lookup.status() == null
+                            ? ServerResponse.notFound().build()
+                            : ServerResponse.ok().bodyValue(lookup.status());
+                })
+                .onErrorResume(ex -> ex instanceof IllegalStateException || ex instanceof InvalidStateStoreException,
+                        ex -> ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+
+    /**
+     * @return the same request on the instance hosting the key, or null if it is hosted here or the instances do
+     *         not advertise their address
+     */
+    private URI remoteOwner(String store, String key, ServerRequest request) {
+        HostInfo current = queryService.getCurrentKafkaStreamsApplicationHostInfo();
+        if (current == null || current.port() <= 0) {
+            return null;
+        }
+        HostInfo owner = queryService.getKafkaStreamsApplicationHostInfo(store, key, KEY_SERIALIZER);
+        if (owner == null || owner.equals(current)) {
+            return null;
+        }
+        return UriComponentsBuilder.fromUri(request.uri()).host(owner.host()).port(owner.port()).build(true).toUri();
+    }
+
+    private record Lookup(RegistrationStatus status, URI redirect) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.vickezi.registration.status;
+
+import com.vickezi.globals.events.Status;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Serde of the {@link RegistrationStatus} values held in the state stores and their changelogs: a format version,
+ * the email and message ID as nullable UTF strings, the status ordinal and the update time in epoch milliseconds.
+ */
+public final class RegistrationStatusSerde implements Serde<RegistrationStatus> {
+    private static final byte FORMAT_VERSION = 1;
+    private static final Status[] STATUSES = Status.values();
+
+    @Override
+    public Serializer<RegistrationStatus> serializer() {
+        return (topic, status) -> status == null ? null : write(status);
+    }
+
+    @Override
+    public Deserializer<RegistrationStatus> deserializer() {
+        return (topic, data) -> data == null ? null : read(data);
+    }
+
+    static byte[] write(RegistrationStatus status) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            writeNullable(out, status.email());
+            writeNullable(out, status.messageId());
+            out.writeByte(status.status().ordinal());
+            out.writeLong(status.updatedAt().toEpochMilli());
+        } catch (IOException ex) {
+            throw new SerializationException("Cannot serialize " + status, ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    static RegistrationStatus read(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new SerializationException("Unknown registration status format " + version);
+            }
+            String email = readNullable(in);
+            String messageId = readNullable(in);
+            Status status = STATUSES[in.readUnsignedByte()];
+            return new RegistrationStatus(email, messageId, status, Instant.ofEpochMilli(in.readLong()));
+        } catch (IOException | ArrayIndexOutOfBoundsException ex) {
+            throw new SerializationException("Cannot deserialize a registration status", ex);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
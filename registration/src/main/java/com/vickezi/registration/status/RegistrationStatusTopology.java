@@ -0,0 +1,148 @@
+package com.vickezi.registration.status;
+
+import com.vickezi.globals.codec.BinaryEventDeserializer;
+import com.vickezi.globals.codec.BinaryEventSerializer;
+import com.vickezi.globals.events.Status;
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Grouped;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.KTable;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessor;
+import org.apache.kafka.streams.processor.api.FixedKeyProcessorContext;
+import org.apache.kafka.streams.processor.api.FixedKeyRecord;
+import org.apache.kafka.streams.processor.api.RecordMetadata;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafkaStreams;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.kafka.streams.KafkaStreamsInteractiveQueryService;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.time.Instant;
+import java.util.List;
+
+import static com.vickezi.globals.util.Constants.*;
+
+/**
+ * Kafka Streams topology materializing the state of every registration, enabled with
+ * {@code registration.status.enabled=true}.
+ * <p>
+ * The registration, confirmation notice, status and dead letter topics are read as one stream and each record is
+ * turned into a {@link RegistrationStatus}: a registration is {@code PENDING}, a confirmation notice
+ * {@code IN_PROGRESS}, a confirmed email {@code COMPLETED} and any of them dead-lettered {@code FAILED}. The updates
+ * are re-keyed by email and reduced into the {@value #BY_EMAIL_STORE} store; its changes are re-keyed by message ID,
+ * together with the dead-lettered verifications that carry no email, into the {@value #BY_MESSAGE_STORE} store.
+ * Both are persistent local stores, served by {@link RegistrationStatusHandler}.
+ */
+@Configuration
+@EnableKafkaStreams
+@ConditionalOnProperty(name = "registration.status.enabled", havingValue = "true")
+public class RegistrationStatusTopology {
+    public static final String BY_EMAIL_STORE = "registration-status-by-email";
+    public static final String BY_MESSAGE_STORE = "registration-status-by-message";
+    static final List<String> SOURCE_TOPICS = List.of(USER_EMAIL_REGISTERED_EVENT_TOPIC,
+            USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC, REGISTRATION_STATUS_TOPIC, DEAD_LETTER_TOPIC);
+
+    @Bean
+    public KTable<String, RegistrationStatus> registrationStatusByMessage(StreamsBuilder builder) {
+        return build(builder);
+    }
+
+    @Bean
+    public KafkaStreamsInteractiveQueryService registrationStatusQueries(StreamsBuilderFactoryBean factoryBean) {
+        return new KafkaStreamsInteractiveQueryService(factoryBean);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> registrationStatusRoutes(RegistrationStatusHandler handler) {
+        return RouterFunctions.route().path("/api/v1/registration/status", path -> path
+                .GET("/email/{email}", handler::byEmail)
+                .GET("/message/{messageId}", handler::byMessageId)
+        ).build();
+    }
+
+    /**
+     * Adds the topology to the builder.
+     *
+     * @param builder the builder of the application's topology
+     * @return the table of registrations by message ID
+     */
+    static KTable<String, RegistrationStatus> build(StreamsBuilder builder) {
+        Serde<Object> events = Serdes.serdeFrom(new BinaryEventSerializer(), new BinaryEventDeserializer());
+        RegistrationStatusSerde statuses = new RegistrationStatusSerde();
+
+        KStream<String, RegistrationStatus> updates = builder
+                .stream(SOURCE_TOPICS, Consumed.with(Serdes.String(), events))
+                .processValues(StatusUpdates::new);
+
+        KTable<String, RegistrationStatus> byEmail = updates
+                .filter((key, update) -> update.email() != null)
+                .selectKey((key, update) -> update.email())
+                .groupByKey(Grouped.with(BY_EMAIL_STORE, Serdes.String(), statuses))
+                .reduce(RegistrationStatus::merge,
+                        Materialized.<String, RegistrationStatus, KeyValueStore<Bytes, byte[]>>as(BY_EMAIL_STORE)
+                                .withKeySerde(Serdes.String())
+                                .withValueSerde(statuses));
+
+        return byEmail.toStream()
+                .filter((email, status) -> status != null && status.messageId() != null)
+                .merge(updates.filter((key, update) -> update.email() == null && update.messageId() != null))
+                .selectKey((key, status) -> status.messageId())
+                .groupByKey(Grouped.with(BY_MESSAGE_STORE, Serdes.String(), statuses))
+                .reduce(RegistrationStatus::merge,
+                        Materialized.<String, RegistrationStatus, KeyValueStore<Bytes, byte[]>>as(BY_MESSAGE_STORE)
+                                .withKeySerde(Serdes.String())
+                                .withValueSerde(statuses));
+    }
+
+    /**
+     * The status update carried by a record of one of the source topics, dropping the records that carry none.
+     */
+    static RegistrationStatus toUpdate(String topic, Object event, Instant timestamp) {
+        boolean deadLettered = DEAD_LETTER_TOPIC.equals(topic);
+        if (event instanceof EmailRegistrationEvent registration) {
+            return new RegistrationStatus(registration.email(), null, deadLettered ? Status.FAILED : Status.PENDING,
+                    timestamp);
+        }
+        if (event instanceof RegistrationMessage message) {
+            Status status = deadLettered ? Status.FAILED
+                    : REGISTRATION_STATUS_TOPIC.equals(topic) ? Status.valueOf(message.status())
+                    : Status.IN_PROGRESS;
+            return new RegistrationStatus(message.email(), message.messageId(), status, timestamp);
+        }
+        if (deadLettered && event instanceof EmailVerificationEvent verification && verification.messageId() != null) {
+            return new RegistrationStatus(null, verification.messageId(), Status.FAILED, timestamp);
+        }
+        return null;
+    }
+
+    private static final class StatusUpdates implements FixedKeyProcessor<String, Object, RegistrationStatus> {
+        private FixedKeyProcessorContext<String, RegistrationStatus> context;
+
+        @Override
+        public void init(FixedKeyProcessorContext<String, RegistrationStatus> context) {
+            this.context = context;
+        }
+
+        @Override
+        public void process(FixedKeyRecord<String, Object> record) {
+            String topic = context.recordMetadata().map(RecordMetadata::topic).orElse(null);
+            RegistrationStatus update = toUpdate(topic, record.value(), Instant.ofEpochMilli(record.timestamp()));
+            if (update != null) {
+                context.forward(record.withValue(update));
+            }
+        }
+    }
+}
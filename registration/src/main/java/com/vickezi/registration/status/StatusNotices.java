@@ -0,0 +1,22 @@
+package com.vickezi.registration.status;
+
+import com.vickezi.globals.events.Status;
+import com.vickezi.globals.model.RegistrationMessage;
+
+/**
+ * Builds the records written to {@link com.vickezi.globals.util.Constants#REGISTRATION_STATUS_TOPIC}, the outcomes
+ * {@link RegistrationStatusTopology} cannot read from the other registration topics.
+ */
+public final class StatusNotices {
+    private StatusNotices() {
+    }
+
+    /**
+     * @param messageId the message ID of the confirmed link, may be null
+     * @param email the confirmed email
+     * @return the notice of a confirmed registration, without a token
+     */
+    public static RegistrationMessage completed(String messageId, String email) {
+        return new RegistrationMessage(messageId, null, Status.COMPLETED.getState(), email);
+    }
+}
@@ -0,0 +1,259 @@
+package com.vickezi.registration.token;
+
+import com.vickezi.registration.exception.InvalidTokenException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * Remembers the IDs ({@code jti}) of the registration tokens this instance has consumed, so a token is only
+ * confirmed once. Each ID is kept with the delivery that consumed it, the record the token arrived in: that record
+ * may be redelivered when a later step of its transaction fails, and is let through again, while any other record
+ * carrying the token is rejected.
+ * <p>
+ * A token only needs remembering until it expires, after which {@link TokenEngine#verify(String)} rejects it anyway.
+ * IDs are therefore kept in an {@link ExpiryRing} covering the longest token lifetime, whose buckets drop their IDs
+ * once every token in them has expired. Its segments are open-addressing {@code long} sets with the hash of the
+ * consuming delivery alongside, about 32 bytes per ID: a check hashes the ID once, locks one stripe and probes
+ * primitive arrays, without allocating.
+ * <p>
+ * The IDs {@link TokenEngine} issues are 64-bit random numbers and are stored as they are; other IDs are hashed to
+ * 64 bits. The store is local to the instance; tokens consumed on another replica are not seen here.
+ */
+public final class ConsumedTokens {
+    /** How much later than this instance's clock another replica may set a token's expiry. */
+    static final Duration MAX_CLOCK_SKEW = Duration.ofMinutes(1);
+    private static final int STRIPES = 16;
+    private static final HexFormat HEX = HexFormat.of();
+    /** Stands for an unknown delivery, which never matches the one that consumed a token. */
+    private static final long NO_DELIVERY = 0;
+
+    private final Clock clock;
+    private final ExpiryRing<Segment> ring;
+
+    /**
+     * @param maxTtl the longest lifetime of a token
+     * @param bucketWidth the range of expiry times sharing a bucket; IDs are dropped at most this long after expiry
+     * @param clock the clock expiry is compared to
+     */
+    public ConsumedTokens(Duration maxTtl, Duration bucketWidth, Clock clock) {
+        this.clock = clock;
+        this.ring = new ExpiryRing<>(maxTtl.plus(MAX_CLOCK_SKEW), bucketWidth, STRIPES, Segment::new);
+    }
+
+    /**
+     * Marks a verified token as consumed, without a delivery to recognise again.
+     *
+     * @param claims the claims of the token
+     * @return true the first time, false if the token was consumed before
+     * @throws InvalidTokenException if the token expires later than any token this store was sized for
+     */
+    public boolean consume(TokenClaims claims) {
+        return consume(claims, null);
+    }
+
+    /**
+     * Marks a verified token as consumed by a delivery.
+     *
+     * @param claims the claims of the token
+     * @param delivery identifies the record the token arrived in, the same on every redelivery of that record; null
+     *                 if unknown
+     * @return true the first time, and again for the same delivery, so a record whose transaction failed after the
+     *         user was stored can be processed again; false if another delivery consumed the token
+     * @throws InvalidTokenException if the token expires later than any token this store was sized for
+     */
+    public boolean consume(TokenClaims claims, String delivery) {
+        if (claims.id() == null) {
+            return true;
+        }
+        long expiresAt = claims.expiresAt().getEpochSecond();
+        if (expiresAt - clock.instant().getEpochSecond() > ring.maxLifetimeSeconds()) {
+            throw new InvalidTokenException("Token lifetime exceeds the configured maximum");
+        }
+        long key = mix(key(claims.id()));
+        long bucket = ring.bucket(expiresAt);
+        return segment(bucket, key).consume(bucket, key, delivery == null ? NO_DELIVERY : owner(delivery));
+    }
+
+    /**
+     * Forgets a consumed token, so it can be consumed again after its confirmation failed.
+     *
+     * @param claims the claims of the token
+     */
+    public void release(TokenClaims claims) {
+        if (claims.id() == null) {
+            return;
+        }
+        long key = mix(key(claims.id()));
+        long bucket = ring.bucket(claims.expiresAt().getEpochSecond());
+        segment(bucket, key).remove(bucket, key);
+    }
+
+    /**
+     * @return the number of IDs held, including those of expired tokens not yet dropped
+     */
+    public int size() {
+        return ring.size();
+    }
+
+    private Segment segment(long bucket, long key) {
+        return ring.segment(bucket, (int) (key >>> 60));
+    }
+
+    /**
+     * Reads the 16 hex digits {@link TokenEngine} issues as they are, and hashes any other ID.
+     */
+    static long key(String id) {
+        if (id.length() == 16) {
+            try {
+                return HEX.fromHexDigitsToLong(id);
+            } catch (IllegalArgumentException ex) {
+                // Not one of ours, hashed below
+            }
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash = (hash ^ id.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * The hash a delivery is recognised by, never {@link #NO_DELIVERY}.
+     */
+    private static long owner(String delivery) {
+        long hash = mix(key(delivery));
+        return hash == NO_DELIVERY ? 1 : hash;
+    }
+
+    /**
+     * Spreads the bits of a key, as the stripe is chosen by the high bits and the slot by the low ones.
+     */
+    private static long mix(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    /**
+     * An open-addressing set of keys with linear probing, for the tokens of one bucket of expiry times. Zero marks
+     * an empty slot, so a zero key is tracked apart.
+     */
+    private static final class Segment extends ExpiryRing.Segment {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private long[] slots = new long[INITIAL_CAPACITY];
+        /** The delivery that consumed the key in the same slot. */
+        private long[] owners = new long[INITIAL_CAPACITY];
+        private int size;
+        private boolean hasZero;
+        private long zeroOwner;
+
+        synchronized boolean consume(long bucket, long key, long owner) {
+            if (!enter(bucket)) {
+                // The bucket has been reused for later tokens, so this one has expired
+                return false;
+            }
+            if (key == 0) {
+                if (hasZero) {
+                    return owner != NO_DELIVERY && owner == zeroOwner;
+                }
+                hasZero = true;
+                zeroOwner = owner;
+                return true;
+            }
+            int mask = slots.length - 1;
+            int slot = (int) key & mask;
+            while (slots[slot] != 0) {
+                if (slots[slot] == key) {
+                    return owner != NO_DELIVERY && owner == owners[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = key;
+            owners[slot] = owner;
+            if (++size * 4 > slots.length * 3) {
+                grow();
+            }
+            return true;
+        }
+
+        synchronized void remove(long bucket, long key) {
+            if (!holds(bucket)) {
+                return;
+            }
+            if (key == 0) {
+                hasZero = false;
+                zeroOwner = NO_DELIVERY;
+                return;
+            }
+            int slot = find(key);
+            if (slot < 0) {
+                return;
+            }
+            // Shifts back the keys probed past the freed slot, so no lookup stops short of them
+            int mask = slots.length - 1;
+            int free = slot;
+            for (int next = (free + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+                int home = (int) slots[next] & mask;
+                if (((next - home) & mask) >= ((next - free) & mask)) {
+                    slots[free] = slots[next];
+                    owners[free] = owners[next];
+                    free = next;
+                }
+            }
+            slots[free] = 0;
+            owners[free] = NO_DELIVERY;
+            size--;
+        }
+
+        /**
+         * @return the slot of a non-zero key, or -1 if it is not held
+         */
+        private int find(long key) {
+            int mask = slots.length - 1;
+            int slot = (int) key & mask;
+            while (slots[slot] != key) {
+                if (slots[slot] == 0) {
+                    return -1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        @Override
+        synchronized int size() {
+            return size + (hasZero ? 1 : 0);
+        }
+
+        @Override
+        protected void reset() {
+            // A fresh table, so the memory of a busy period is given back
+            slots = new long[INITIAL_CAPACITY];
+            owners = new long[INITIAL_CAPACITY];
+            size = 0;
+            hasZero = false;
+            zeroOwner = NO_DELIVERY;
+        }
+
+        private void grow() {
+            long[] old = slots;
+            long[] oldOwners = owners;
+            slots = new long[old.length * 2];
+            owners = new long[old.length * 2];
+            int mask = slots.length - 1;
+            for (int i = 0; i < old.length; i++) {
+                if (old[i] != 0) {
+                    int slot = (int) old[i] & mask;
+                    while (slots[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = old[i];
+                    owners[slot] = oldOwners[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.vickezi.registration.token;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * A ring of buckets by expiry time, one bucket per {@code bucketWidth}, each split into stripes with a lock per
+ * stripe, holding entries that only need keeping until they expire. {@link ConsumedTokens} and
+ * {@link VerificationCodes} keep their entries in one.
+ * <p>
+ * The ring spans one bucket more than the longest lifetime, so a bucket is only reused once every entry in it has
+ * expired. A segment notices it is reused when it is handed a later bucket and drops its entries as a whole, so
+ * memory follows the number of entries held within one lifetime rather than growing forever.
+ *
+ * @param <S> the type of the segments
+ */
+final class ExpiryRing<S extends ExpiryRing.Segment> {
+    private final long bucketSeconds;
+    private final long maxLifetimeSeconds;
+    private final Segment[][] ring;
+
+    /**
+     * @param maxLifetime the longest time from now an entry may expire in
+     * @param bucketWidth the range of expiry times sharing a bucket; entries are dropped at most this long after
+     *                    expiry
+     * @param stripes the number of stripes per bucket, a power of two
+     * @param segments creates the empty segments
+     */
+    ExpiryRing(Duration maxLifetime, Duration bucketWidth, int stripes, Supplier<S> segments) {
+        if (bucketWidth.getSeconds() < 1) {
+            throw new IllegalArgumentException("Bucket width must be at least a second");
+        }
+        if (Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Stripes must be a power of two");
+        }
+        this.bucketSeconds = bucketWidth.getSeconds();
+        this.maxLifetimeSeconds = maxLifetime.getSeconds();
+        int buckets = (int) ((maxLifetimeSeconds + bucketSeconds - 1) / bucketSeconds) + 1;
+        this.ring = new Segment[buckets][stripes];
+        for (Segment[] bucket : ring) {
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                bucket[stripe] = segments.get();
+            }
+        }
+    }
+
+    /**
+     * @return the longest time from now an entry may expire in, in seconds
+     */
+    long maxLifetimeSeconds() {
+        return maxLifetimeSeconds;
+    }
+
+    /**
+     * @param expiresAt an expiry time in epoch seconds
+     * @return the bucket of that expiry time
+     */
+    long bucket(long expiresAt) {
+        return Math.floorDiv(expiresAt, bucketSeconds);
+    }
+
+    /**
+     * @param bucket the bucket of an entry
+     * @param hash a hash of the entry, whose low bits choose the stripe
+     * @return the segment holding the entry
+     */
+    @SuppressWarnings("unchecked")
+    S segment(long bucket, int hash) {
+        Segment[] stripes = ring[(int) Math.floorMod(bucket, ring.length)];
+        return (S) stripes[hash & (stripes.length - 1)];
+    }
+
+    /**
+     * @return the number of entries held, including expired ones not yet dropped
+     */
+    int size() {
+        int size = 0;
+        for (Segment[] bucket : ring) {
+            for (Segment segment : bucket) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The entries of one stripe of one bucket. Subclasses lock on the segment, calling {@link #enter} before
+     * adding and {@link #holds} before reading.
+     */
+    abstract static class Segment {
+        private long bucket = Long.MIN_VALUE;
+
+        /**
+         * Moves the segment on to the given bucket if it is later, dropping the entries of the previous one.
+         *
+         * @return false if the segment has been reused for a later bucket, so the given one has expired
+         */
+        protected final boolean enter(long bucket) {
+            if (bucket > this.bucket) {
+                this.bucket = bucket;
+                reset();
+            }
+            return bucket == this.bucket;
+        }
+
+        /**
+         * @return whether the segment currently holds the entries of the given bucket
+         */
+        protected final boolean holds(long bucket) {
+            return bucket == this.bucket;
+        }
+
+        /**
+         * Drops every entry, preferably giving back the memory of a busy period.
+         */
+        protected abstract void reset();
+
+        abstract int size();
+    }
+}
@@ -0,0 +1,332 @@
+package com.vickezi.registration.token;
+
+import com.vickezi.registration.exception.InvalidTokenException;
+import io.jsonwebtoken.JwtParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECKey;
+import java.security.interfaces.EdECKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The set of keys registration tokens are signed and verified with, shared by every replica.
+ * <p>
+ * Keys are read from a PKCS12 keystore that all replicas mount, such as a Kubernetes secret: each entry is one
+ * key and its alias is written to the token header as {@code kid}. EC P-256 and Ed25519 key pairs and HMAC
+ * secrets of 32 bytes or more are supported, so a ring can also move from one algorithm to another.
+ * <p>
+ * The keystore is read again every refresh interval when it has changed. Tokens are signed with the newest active
+ * key and verified with whichever key their header names, so rotating is a matter of adding a key to the
+ * keystore, and removing the old one once the tokens it signed have expired:
+ * <pre>
+ * keytool -genkeypair -keystore tokens.p12 -storetype PKCS12 -alias reg-2026-11 \
+ *     -keyalg EC -groupname secp256r1 -dname CN=registration -validity 90
+ * </pre>
+ * A key added while the ring is running is only signed with after the activation delay, which gives every other
+ * replica time to load it first. Key pairs are further bounded by the validity of their certificate; a key whose
+ * certificate has expired still verifies, it just no longer signs.
+ * <p>
+ * Tokens are verified by one jjwt parser per set of keys, built when the keys are loaded. Its key locator looks the
+ * key up by the {@code kid} of the token, so a token naming no key of the ring, or naming a key with another
+ * algorithm, is rejected before any signature is checked.
+ */
+public final class KeyRing implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(KeyRing.class);
+
+    private final KeySource source;
+    private final Clock clock;
+    private final Duration activationDelay;
+    /** When each kid was first loaded; keys of the initial load count as seen at {@link Instant#MIN}. */
+    private final Map<String, Instant> firstSeen = new HashMap<>();
+    private volatile Snapshot snapshot;
+    private ScheduledExecutorService refresher;
+
+    KeyRing(KeySource source, Duration activationDelay, Clock clock) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.activationDelay = Objects.requireNonNull(activationDelay, "activationDelay");
+        this.clock = Objects.requireNonNull(clock, "clock");
+        List<Key> keys = load();
+        keys.forEach(key -> firstSeen.put(key.engine().keyId(), Instant.MIN));
+        this.snapshot = select(keys, null);
+        log.info("🔑 Loaded {} token keys, signing with {}", keys.size(), snapshot.signer().keyId());
+    }
+
+    /**
+     * Creates a ring of a single key, for one instance or a fixed shared secret.
+     *
+     * @param engine the engine to sign and verify with
+     * @return the ring
+     */
+    public static KeyRing of(TokenEngine engine) {
+        List<Key> keys = List.of(new Key(engine, Instant.MIN, null));
+        return new KeyRing(() -> keys, Duration.ZERO, engine.clock());
+    }
+
+    /**
+     * Creates a ring from the entries of a PKCS12 keystore.
+     *
+     * @param path the keystore file
+     * @param password the password of the keystore and its entries
+     * @param activationDelay how long a key added later waits before it signs
+     * @param clock the clock activation and token times are read from
+     * @return the ring, not yet refreshing
+     * @throws IllegalStateException if the keystore cannot be read or has no active key
+     */
+    public static KeyRing fromKeyStore(Path path, char[] password, Duration activationDelay, Clock clock) {
+        return new KeyRing(new KeyStoreSource(path, password, clock), activationDelay, clock);
+    }
+
+    /**
+     * Reloads the keys on a background thread at the given interval.
+     *
+     * @param interval the time between two refreshes
+     * @return this ring
+     */
+    public synchronized KeyRing startRefreshing(Duration interval) {
+        if (refresher != null) {
+            throw new IllegalStateException("Key ring is already refreshing");
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-key-ring");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * Reloads the keys and picks the signing key again. On failure the keys loaded before stay in use.
+     *
+     * @throws IllegalStateException if the keys cannot be loaded or none of them is active
+     */
+    public synchronized void refresh() {
+        Snapshot previous = snapshot;
+        List<Key> keys = load();
+        Instant now = clock.instant();
+        keys.forEach(key -> firstSeen.putIfAbsent(key.engine().keyId(), now));
+        firstSeen.keySet().retainAll(keys.stream().map(key -> key.engine().keyId()).toList());
+        snapshot = select(keys, previous);
+        if (!Objects.equals(previous.signer().keyId(), snapshot.signer().keyId())) {
+            log.info("🔑 Rotated token signing key from {} to {}", previous.signer().keyId(),
+                    snapshot.signer().keyId());
+        }
+    }
+
+    /**
+     * Issues a token with the current signing key.
+     *
+     * @param subject the email the token is issued for
+     * @param ttl how long the token stays valid
+     * @return the compact JWS
+     */
+    public String issue(String subject, Duration ttl) {
+        return snapshot.signer().issue(subject, ttl);
+    }
+
+    /**
+     * Verifies a token with the key named in its header.
+     *
+     * @param token the compact JWS
+     * @return the claims it carries
+     * @throws InvalidTokenException if the token is malformed, names no key of this ring, is not signed by that
+     *         key or has expired
+     */
+    public TokenClaims verify(String token) {
+        return TokenEngine.verify(snapshot.parser(), token, clock);
+    }
+
+    /**
+     * @return the {@code kid} tokens are currently signed with, null for a single unnamed key
+     */
+    public String signingKeyId() {
+        return snapshot.signer().keyId();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException ex) {
+            log.error("❌ Failed to refresh token keys, keeping key {}: {}", snapshot.signer().keyId(),
+                    ex.getMessage(), ex);
+        }
+    }
+
+    private List<Key> load() {
+        try {
+            return source.load();
+        } catch (IOException | GeneralSecurityException ex) {
+            throw new IllegalStateException("❌ Failed to load token keys", ex);
+        }
+    }
+
+    /**
+     * Picks the active key that became active last, and indexes every key by its {@code kid}.
+     */
+    private Snapshot select(List<Key> keys, Snapshot previous) {
+        Instant now = clock.instant();
+        Map<String, TokenEngine> verifiers = new HashMap<>();
+        Key signer = null;
+        Instant signerActiveFrom = null;
+        for (Key key : keys) {
+            verifiers.put(key.engine().keyId(), key.engine());
+            Instant activeFrom = later(key.notBefore(), firstSeen.getOrDefault(key.engine().keyId(), Instant.MIN)
+                    .plus(activationDelay));
+            boolean active = !activeFrom.isAfter(now) && (key.notAfter() == null || now.isBefore(key.notAfter()));
+            if (active && (signer == null || activeFrom.isAfter(signerActiveFrom)
+                    || (activeFrom.equals(signerActiveFrom) && compareKeyIds(key, signer) > 0))) {
+                signer = key;
+                signerActiveFrom = activeFrom;
+            }
+        }
+        if (signer == null) {
+            throw new IllegalStateException("❌ No active token signing key among " + keys.size() + " keys");
+        }
+        if (previous != null && !verifiers.containsKey(previous.signer().keyId())) {
+            log.warn("Token signing key {} was removed, tokens it signed no longer verify",
+                    previous.signer().keyId());
+        }
+        return new Snapshot(signer.engine(), TokenEngine.parser(verifiers::get, clock));
+    }
+
+    private static Instant later(Instant first, Instant second) {
+        return first.isAfter(second) ? first : second;
+    }
+
+    private static int compareKeyIds(Key first, Key second) {
+        return Comparator.nullsFirst(Comparator.<String>naturalOrder())
+                .compare(first.engine().keyId(), second.engine().keyId());
+    }
+
+    /**
+     * One key of the ring.
+     *
+     * @param engine the engine signing and verifying with the key, named by its {@code kid}
+     * @param notBefore the earliest time the key may sign
+     * @param notAfter the time the key stops signing, null if it does not expire
+     */
+    record Key(TokenEngine engine, Instant notBefore, Instant notAfter) {
+    }
+
+    /**
+     * Supplies the keys of a ring; called once at creation and on every refresh.
+     */
+    @FunctionalInterface
+    interface KeySource {
+        List<Key> load() throws IOException, GeneralSecurityException;
+    }
+
+    private record Snapshot(TokenEngine signer, JwtParser parser) {
+    }
+
+    /**
+     * Reads the keys of a PKCS12 file, parsing it again only when its modification time has changed.
+     */
+    private static final class KeyStoreSource implements KeySource {
+        private static final ECParameterSpec P256 = p256();
+
+        private final Path path;
+        private final char[] password;
+        private final Clock clock;
+        private FileTime lastModified;
+        private List<Key> keys;
+
+        private KeyStoreSource(Path path, char[] password, Clock clock) {
+            this.path = Objects.requireNonNull(path, "path");
+            this.password = password.clone();
+            this.clock = clock;
+        }
+
+        @Override
+        public List<Key> load() throws IOException, GeneralSecurityException {
+            FileTime modified = Files.getLastModifiedTime(path);
+            if (keys != null && modified.equals(lastModified)) {
+                return keys;
+            }
+            KeyStore store = KeyStore.getInstance("PKCS12");
+            try (InputStream in = Files.newInputStream(path)) {
+                store.load(in, password);
+            }
+            KeyStore.PasswordProtection protection = new KeyStore.PasswordProtection(password);
+            List<Key> loaded = new ArrayList<>();
+            for (String alias : Collections.list(store.aliases())) {
+                KeyStore.Entry entry = store.getEntry(alias, protection);
+                if (entry instanceof KeyStore.PrivateKeyEntry keyEntry
+                        && keyEntry.getCertificate() instanceof X509Certificate certificate) {
+                    TokenAlgorithm algorithm = algorithmOf(keyEntry.getPrivateKey());
+                    if (algorithm == null) {
+                        log.warn("Skipping token key {}: {} keys are not supported", alias,
+                                keyEntry.getPrivateKey().getAlgorithm());
+                        continue;
+                    }
+                    KeyPair keyPair = new KeyPair(certificate.getPublicKey(), keyEntry.getPrivateKey());
+                    loaded.add(new Key(TokenEngine.withKeyPair(algorithm, alias, keyPair, clock),
+                            certificate.getNotBefore().toInstant(), certificate.getNotAfter().toInstant()));
+                } else if (entry instanceof KeyStore.SecretKeyEntry secretEntry) {
+                    loaded.add(new Key(TokenEngine.withSecret(alias, secretEntry.getSecretKey().getEncoded(), clock),
+                            Instant.MIN, null));
+                } else {
+                    log.warn("Skipping token key {}: not a key pair or secret key", alias);
+                }
+            }
+            keys = List.copyOf(loaded);
+            lastModified = modified;
+            return keys;
+        }
+
+        private static TokenAlgorithm algorithmOf(PrivateKey key) {
+            if (key instanceof ECKey ec && ec.getParams().getCurve().equals(P256.getCurve())
+                    && ec.getParams().getOrder().equals(P256.getOrder())) {
+                return TokenAlgorithm.ES256;
+            }
+            if (key instanceof EdECKey ed && "Ed25519".equalsIgnoreCase(ed.getParams().getName())) {
+                return TokenAlgorithm.EdDSA;
+            }
+            return null;
+        }
+
+        private static ECParameterSpec p256() {
+            try {
+                AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+                parameters.init(new ECGenParameterSpec("secp256r1"));
+                return parameters.getParameterSpec(ECParameterSpec.class);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("❌ P-256 is not available", e);
+            }
+        }
+    }
+}
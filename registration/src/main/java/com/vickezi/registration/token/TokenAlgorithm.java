@@ -0,0 +1,65 @@
+package com.vickezi.registration.token;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SecureDigestAlgorithm;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+
+/**
+ * JWS algorithms a {@link TokenEngine} can sign with, and the jjwt algorithms that implement them.
+ */
+public enum TokenAlgorithm {
+    /** ECDSA over P-256 with SHA-256. */
+    ES256(Jwts.SIG.ES256),
+    /** Ed25519. */
+    EdDSA(Jwts.SIG.EdDSA),
+    /** HMAC with SHA-256 over a shared secret. */
+    HS256(Jwts.SIG.HS256);
+
+    private final SecureDigestAlgorithm<?, ?> jwsAlgorithm;
+
+    TokenAlgorithm(SecureDigestAlgorithm<?, ?> jwsAlgorithm) {
+        this.jwsAlgorithm = jwsAlgorithm;
+    }
+
+    /**
+     * @return the jjwt algorithm, typed for keys whose fit it checks itself when signing and verifying
+     */
+    @SuppressWarnings("unchecked")
+    SecureDigestAlgorithm<Key, Key> jwsAlgorithm() {
+        return (SecureDigestAlgorithm<Key, Key>) jwsAlgorithm;
+    }
+
+    /**
+     * @return whether the algorithm signs with a shared secret instead of a key pair
+     */
+    public boolean isSymmetric() {
+        return this == HS256;
+    }
+
+    /**
+     * Generates a fresh key pair for an asymmetric algorithm.
+     *
+     * @return the new key pair
+     * @throws IllegalStateException if the algorithm is symmetric or the JVM lacks the key type
+     */
+    public KeyPair generateKeyPair() {
+        try {
+            return switch (this) {
+                case ES256 -> {
+                    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+                    generator.initialize(new ECGenParameterSpec("secp256r1"));
+                    yield generator.generateKeyPair();
+                }
+                case EdDSA -> KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+                case HS256 -> throw new IllegalStateException("HS256 signs with a secret, not a key pair");
+            };
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("❌ Failed to generate key pair for " + this, e);
+        }
+    }
+}
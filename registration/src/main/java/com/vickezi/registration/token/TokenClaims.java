@@ -0,0 +1,20 @@
+package com.vickezi.registration.token;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Claims carried by a registration token. Times are truncated to seconds, as JWT NumericDates are.
+ *
+ * @param id        the unique token ID ({@code jti}), or null for tokens issued before IDs were written
+ * @param subject   the email the token was issued for
+ * @param issuedAt  when the token was issued
+ * @param expiresAt when the token stops being valid
+ */
+public record TokenClaims(String id, String subject, Instant issuedAt, Instant expiresAt) {
+    public TokenClaims {
+        Objects.requireNonNull(subject, "subject");
+        Objects.requireNonNull(issuedAt, "issuedAt");
+        Objects.requireNonNull(expiresAt, "expiresAt");
+    }
+}
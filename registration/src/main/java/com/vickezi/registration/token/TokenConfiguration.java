@@ -0,0 +1,49 @@
+package com.vickezi.registration.token;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.Base64;
+
+@Configuration
+@EnableConfigurationProperties(TokenProperties.class)
+public class TokenConfiguration {
+    /**
+     * The key ring shared by every listener thread: the configured keystore, refreshed in the background, or a
+     * single key of the configured algorithm.
+     */
+    @Bean
+    public KeyRing keyRing(TokenProperties properties) {
+        TokenProperties.Keystore keystore = properties.getKeystore();
+        if (keystore.getPath() != null) {
+            char[] password = keystore.getPassword() == null ? new char[0] : keystore.getPassword().toCharArray();
+            return KeyRing.fromKeyStore(Path.of(keystore.getPath()), password, keystore.getActivationDelay(),
+                            Clock.systemUTC())
+                    .startRefreshing(keystore.getRefreshInterval());
+        }
+        if (properties.getAlgorithm().isSymmetric() && properties.getHmacSecret() != null) {
+            return KeyRing.of(TokenEngine.withSecret(Base64.getDecoder().decode(properties.getHmacSecret()),
+                    Clock.systemUTC()));
+        }
+        return KeyRing.of(TokenEngine.generate(properties.getAlgorithm(), Clock.systemUTC()));
+    }
+
+    /**
+     * The IDs of the tokens consumed by this instance, kept for as long as the configured lifetime.
+     */
+    @Bean
+    public ConsumedTokens consumedTokens(TokenProperties properties) {
+        return new ConsumedTokens(properties.getTtl(), properties.getReplayBucketWidth(), Clock.systemUTC());
+    }
+
+    /**
+     * The verification codes issued by this instance, held for as long as the configured lifetime.
+     */
+    @Bean
+    public VerificationCodes verificationCodes(TokenProperties properties) {
+        return new VerificationCodes(properties.getTtl(), properties.getReplayBucketWidth(), Clock.systemUTC());
+    }
+}
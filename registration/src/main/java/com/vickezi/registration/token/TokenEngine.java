@@ -0,0 +1,261 @@
+package com.vickezi.registration.token;
+
+import com.vickezi.registration.exception.InvalidTokenException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.ProtectedHeader;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Signs and verifies registration tokens as compact JWS through jjwt.
+ * <p>
+ * An engine is built once per key and shared by all threads: its {@link JwtParser} is immutable, so verification
+ * does not build a parser per token. The claims are written through a fixed template,
+ * {@code {"jti":...,"sub":...,"iat":...,"exp":...}}, and handed to jjwt as the payload, so issuing a token skips
+ * building and serializing a claims map. Issued tokens get a random 64-bit {@code jti} in 16 hex digits, which
+ * {@link ConsumedTokens} keys replay checks on.
+ * <p>
+ * The parser's key locator hands out the key for this engine's algorithm only, which rules out algorithm
+ * substitution such as HS256 signed with a public key; jjwt itself rejects {@code "alg":"none"}. An engine built
+ * with a key id also writes it to the header as {@code kid}, which is how a {@link KeyRing} tells its keys apart.
+ */
+public final class TokenEngine {
+    private static final HexFormat HEX = HexFormat.of();
+    private static final String ID_PREFIX = "{\"jti\":\"";
+    private static final String SUBJECT_PREFIX = "\",\"sub\":\"";
+    private static final String ISSUED_AT_PREFIX = "\",\"iat\":";
+    private static final String EXPIRES_AT_PREFIX = ",\"exp\":";
+    private static final byte[] PROBE = "probe".getBytes(StandardCharsets.US_ASCII);
+
+    private final TokenAlgorithm algorithm;
+    private final String keyId;
+    private final Key signingKey;
+    private final Key verificationKey;
+    private final JwtParser parser;
+    private final Clock clock;
+
+    private TokenEngine(TokenAlgorithm algorithm, String keyId, Key signingKey, Key verificationKey, Clock clock) {
+        this.algorithm = algorithm;
+        this.keyId = keyId;
+        this.signingKey = Objects.requireNonNull(signingKey, "signingKey");
+        this.verificationKey = Objects.requireNonNull(verificationKey, "verificationKey");
+        this.clock = Objects.requireNonNull(clock, "clock");
+        this.parser = parser(kid -> Objects.equals(kid, keyId) ? this : null, clock);
+        try {
+            // Fails fast on keys that do not fit the algorithm
+            parser.parseSignedContent(Jwts.builder().header().keyId(keyId).and().content(PROBE)
+                    .signWith(signingKey, algorithm.jwsAlgorithm()).compact());
+        } catch (JwtException | IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Key does not fit " + algorithm, ex);
+        }
+    }
+
+    /**
+     * Creates an engine signing with a key pair.
+     *
+     * @param algorithm an asymmetric algorithm
+     * @param keyId the {@code kid} written to the header, or null for none
+     * @param keyPair a key pair of the algorithm's key type
+     * @param clock the clock the issue and expiry times are read from
+     * @return the engine
+     * @throws IllegalArgumentException if the algorithm is symmetric or the keys do not fit it
+     */
+    public static TokenEngine withKeyPair(TokenAlgorithm algorithm, String keyId, KeyPair keyPair, Clock clock) {
+        if (algorithm.isSymmetric()) {
+            throw new IllegalArgumentException(algorithm + " signs with a secret, not a key pair");
+        }
+        Objects.requireNonNull(keyPair, "keyPair");
+        return new TokenEngine(algorithm, keyId, keyPair.getPrivate(), keyPair.getPublic(), clock);
+    }
+
+    public static TokenEngine withKeyPair(TokenAlgorithm algorithm, KeyPair keyPair, Clock clock) {
+        return withKeyPair(algorithm, null, keyPair, clock);
+    }
+
+    /**
+     * Creates an HS256 engine.
+     *
+     * @param keyId the {@code kid} written to the header, or null for none
+     * @param secret the shared secret, at least 32 bytes
+     * @param clock the clock the issue and expiry times are read from
+     * @return the engine
+     * @throws IllegalArgumentException if the secret is shorter than HS256 allows
+     */
+    public static TokenEngine withSecret(String keyId, byte[] secret, Clock clock) {
+        if (secret == null || secret.length == 0) {
+            throw new IllegalArgumentException("HS256 needs a secret");
+        }
+        SecretKey key = new SecretKeySpec(secret.clone(), "HmacSHA256");
+        return new TokenEngine(TokenAlgorithm.HS256, keyId, key, key, clock);
+    }
+
+    public static TokenEngine withSecret(byte[] secret, Clock clock) {
+        return withSecret(null, secret, clock);
+    }
+
+    /**
+     * Creates an engine with a freshly generated key. Tokens it issues can only be verified by this instance.
+     *
+     * @param algorithm the signing algorithm
+     * @param clock the clock the issue and expiry times are read from
+     * @return the engine
+     */
+    public static TokenEngine generate(TokenAlgorithm algorithm, Clock clock) {
+        if (algorithm.isSymmetric()) {
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            return withSecret(secret, clock);
+        }
+        return withKeyPair(algorithm, algorithm.generateKeyPair(), clock);
+    }
+
+    public TokenAlgorithm algorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return the {@code kid} of the key, or null
+     */
+    public String keyId() {
+        return keyId;
+    }
+
+    Clock clock() {
+        return clock;
+    }
+
+    /**
+     * Issues a token valid from now for the given time.
+     *
+     * @param subject the email the token is issued for
+     * @param ttl how long the token stays valid
+     * @return the compact JWS
+     */
+    public String issue(String subject, Duration ttl) {
+        Instant now = clock.instant().truncatedTo(ChronoUnit.SECONDS);
+        return sign(new TokenClaims(HEX.toHexDigits(ThreadLocalRandom.current().nextLong()), subject, now,
+                now.plus(ttl)));
+    }
+
+    /**
+     * Signs the given claims.
+     *
+     * @param claims the claims to carry
+     * @return the compact JWS
+     */
+    public String sign(TokenClaims claims) {
+        StringBuilder payload = new StringBuilder(ID_PREFIX.length() + claims.subject().length() + 72);
+        if (claims.id() != null) {
+            payload.append(ID_PREFIX);
+            appendEscaped(payload, claims.id());
+            payload.append(SUBJECT_PREFIX);
+        } else {
+            payload.append('{').append(SUBJECT_PREFIX, 2, SUBJECT_PREFIX.length());
+        }
+        appendEscaped(payload, claims.subject());
+        payload.append(ISSUED_AT_PREFIX).append(claims.issuedAt().getEpochSecond())
+                .append(EXPIRES_AT_PREFIX).append(claims.expiresAt().getEpochSecond())
+                .append('}');
+        return Jwts.builder()
+                .header().keyId(keyId).type("JWT").and()
+                .content(payload.toString().getBytes(StandardCharsets.UTF_8))
+                .signWith(signingKey, algorithm.jwsAlgorithm())
+                .compact();
+    }
+
+    /**
+     * Verifies a token's algorithm, signature and expiry.
+     *
+     * @param token the compact JWS
+     * @return the claims it carries
+     * @throws InvalidTokenException if the token is malformed, was not signed by this engine's key or has expired
+     */
+    public TokenClaims verify(String token) {
+        return verify(parser, token, clock);
+    }
+
+    /**
+     * Creates a parser verifying each token with the key of the engine its {@code kid} names, provided the token
+     * names that engine's algorithm too.
+     *
+     * @param engines the engine of a {@code kid}, which is null for tokens without one, or null for none
+     * @param clock the clock expiry is checked against
+     * @return the parser, immutable and thread-safe
+     */
+    static JwtParser parser(Function<String, TokenEngine> engines, Clock clock) {
+        return Jwts.parser()
+                .keyLocator(new LocatorAdapter<>() {
+                    @Override
+                    protected Key locate(ProtectedHeader header) {
+                        TokenEngine engine = engines.apply(header.getKeyId());
+                        return engine == null || !engine.algorithm.name().equals(header.getAlgorithm())
+                                ? null : engine.verificationKey;
+                    }
+                })
+                .clock(() -> Date.from(clock.instant()))
+                .build();
+    }
+
+    /**
+     * Parses a token and reads the claims this engine writes.
+     * <p>
+     * jjwt still accepts a token in the second it expires, which is rejected here as RFC 7519 requires.
+     *
+     * @param parser the parser verifying the token
+     * @param token the compact JWS
+     * @param clock the clock the expiry is checked against
+     * @return the claims it carries
+     * @throws InvalidTokenException if the parser rejects the token, or it lacks a subject or times
+     */
+    static TokenClaims verify(JwtParser parser, String token, Clock clock) {
+        if (token == null || token.isEmpty()) {
+            throw new InvalidTokenException("Missing token");
+        }
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException ex) {
+            throw new InvalidTokenException("Invalid token: " + ex.getMessage());
+        }
+        Date issuedAt = claims.getIssuedAt();
+        Date expiresAt = claims.getExpiration();
+        if (claims.getSubject() == null || issuedAt == null || expiresAt == null) {
+            throw new InvalidTokenException("Malformed token claims");
+        }
+        if (!clock.instant().isBefore(expiresAt.toInstant())) {
+            throw new InvalidTokenException("Token expired");
+        }
+        return new TokenClaims(claims.getId(), claims.getSubject(), issuedAt.toInstant(), expiresAt.toInstant());
+    }
+
+    private static void appendEscaped(StringBuilder json, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.vickezi.registration.token;
+
+/**
+ * What the verification links sent to registering users carry.
+ */
+public enum TokenMode {
+    /** A signed token holding the email and expiry, verified with the {@link KeyRing}. */
+    JWT,
+    /** A short random code referring to the email and message ID kept in {@link VerificationCodes}. */
+    CODE
+}
@@ -0,0 +1,123 @@
+package com.vickezi.registration.token;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the registration {@link KeyRing} and {@link VerificationCodes}.
+ * <pre>
+ * registration.token.mode=jwt
+ * registration.token.algorithm=EdDSA
+ * registration.token.ttl=30m
+ * registration.token.replay-bucket-width=1m
+ * registration.token.hmac-secret=base64-encoded-32-bytes-or-more
+ * registration.token.keystore.path=/etc/registration/tokens.p12
+ * registration.token.keystore.password=changeit
+ * registration.token.keystore.refresh-interval=1m
+ * registration.token.keystore.activation-delay=5m
+ * </pre>
+ * With a keystore every replica signs and verifies with the same keys, and the algorithm is taken from each key.
+ * Otherwise the ring holds a single key: the HMAC secret for HS256, or a key generated at startup, whose tokens
+ * only verify on the instance that issued them. In {@code code} mode the links carry short codes instead, which
+ * likewise only verify on the instance that issued them.
+ */
+@ConfigurationProperties(prefix = "registration.token")
+public class TokenProperties {
+    private TokenMode mode = TokenMode.JWT;
+    private TokenAlgorithm algorithm = TokenAlgorithm.ES256;
+    private Duration ttl = Duration.ofMinutes(30);
+    /**
+     * The range of expiry times whose consumed token IDs, or codes, are dropped together, see {@link ConsumedTokens}.
+     */
+    private Duration replayBucketWidth = Duration.ofMinutes(1);
+    private String hmacSecret;
+    private final Keystore keystore = new Keystore();
+
+    public TokenMode getMode() {
+        return mode;
+    }
+
+    public void setMode(TokenMode mode) {
+        this.mode = mode;
+    }
+
+    public TokenAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(TokenAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public Duration getReplayBucketWidth() {
+        return replayBucketWidth;
+    }
+
+    public void setReplayBucketWidth(Duration replayBucketWidth) {
+        this.replayBucketWidth = replayBucketWidth;
+    }
+
+    public String getHmacSecret() {
+        return hmacSecret;
+    }
+
+    public void setHmacSecret(String hmacSecret) {
+        this.hmacSecret = hmacSecret;
+    }
+
+    public Keystore getKeystore() {
+        return keystore;
+    }
+
+    /**
+     * The PKCS12 keystore shared by all replicas.
+     */
+    public static class Keystore {
+        private String path;
+        private String password;
+        private Duration refreshInterval = Duration.ofMinutes(1);
+        /** Should be longer than the refresh interval, so every replica has loaded a new key before it signs. */
+        private Duration activationDelay = Duration.ofMinutes(5);
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public Duration getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+
+        public Duration getActivationDelay() {
+            return activationDelay;
+        }
+
+        public void setActivationDelay(Duration activationDelay) {
+            this.activationDelay = activationDelay;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.vickezi.registration.token;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.MemberDescription;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.vickezi.globals.util.Constants.EMAIL_VERIFICATION_MESSAGE_TOPIC;
+
+/**
+ * Watches for other instances consuming verifications while {@code registration.token.mode=code}.
+ * <p>
+ * {@link VerificationCodes} are held by the instance that issued them, while a verification is consumed by whichever
+ * instance owns its partition, so with more than one instance most codes cannot be redeemed. This logs that at
+ * startup, then checks the verification consumer group every interval and logs an error while a partition of the
+ * verification topic is assigned to a consumer of another instance.
+ */
+@Component
+@ConditionalOnProperty(name = "registration.token.mode", havingValue = "code")
+public class VerificationCodeInstanceCheck implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(VerificationCodeInstanceCheck.class);
+    static final String VERIFICATION_GROUP = "email-verification-message-group";
+    private static final Duration INTERVAL = Duration.ofSeconds(30);
+    private static final Duration ADMIN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final KafkaListenerEndpointRegistry endpointRegistry;
+    private final KafkaAdmin kafkaAdmin;
+    /** Only touched by the scheduler thread. */
+    private Set<TopicPartition> reported = Set.of();
+    private ScheduledExecutorService scheduler;
+    private Admin admin;
+    private volatile boolean running;
+
+    public VerificationCodeInstanceCheck(KafkaListenerEndpointRegistry endpointRegistry, KafkaAdmin kafkaAdmin) {
+        this.endpointRegistry = endpointRegistry;
+        this.kafkaAdmin = kafkaAdmin;
+    }
+
+    @Override
+    public synchronized void start() {
+        logger.warn("⚠️ registration.token.mode=code: verification codes only redeem on the instance that issued "
+                + "them, run a single registration instance or use registration.token.mode=jwt");
+        admin = Admin.create(kafkaAdmin.getConfigurationProperties());
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "verification-code-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::check, INTERVAL.toMillis(), INTERVAL.toMillis(),
+                TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        scheduler.shutdownNow();
+        admin.close(ADMIN_TIMEOUT);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts after the listener containers, so their partitions are assigned by the first check.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    private void check() {
+        try {
+            Set<TopicPartition> own = new HashSet<>();
+            for (MessageListenerContainer container : endpointRegistry.getAllListenerContainers()) {
+                Collection<TopicPartition> assigned = container.getAssignedPartitions();
+                if (VERIFICATION_GROUP.equals(container.getGroupId()) && assigned != null) {
+                    own.addAll(assigned);
+                }
+            }
+            ConsumerGroupDescription group = admin.describeConsumerGroups(List.of(VERIFICATION_GROUP))
+                    .describedGroups().get(VERIFICATION_GROUP)
+                    .get(ADMIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            Set<TopicPartition> elsewhere = consumedElsewhere(group.members(), own);
+            if (!elsewhere.isEmpty() && !elsewhere.equals(reported)) {
+                logger.error("❌ registration.token.mode=code but verification partitions {} are consumed by another "
+                        + "instance; the codes this instance issues cannot be redeemed there", elsewhere);
+            } else if (elsewhere.isEmpty() && !reported.isEmpty()) {
+                logger.info("Every verification partition is consumed by this instance again");
+            }
+            reported = elsewhere;
+        } catch (Exception ex) {
+            logger.warn("Could not check the consumers of {}: {}", VERIFICATION_GROUP, ex.getMessage());
+        }
+    }
+
+    /**
+     * The verification partitions assigned to members of the group other than this instance's consumers. The
+     * group is shared with listeners of other topics, whose partitions are left out.
+     *
+     * @param members the members of the verification consumer group
+     * @param own the partitions assigned to this instance's consumers
+     * @return the partitions, sorted
+     */
+    static Set<TopicPartition> consumedElsewhere(Collection<MemberDescription> members, Set<TopicPartition> own) {
+        Set<TopicPartition> elsewhere = new TreeSet<>((a, b) -> Integer.compare(a.partition(), b.partition()));
+        for (MemberDescription member : members) {
+            for (TopicPartition partition : member.assignment().topicPartitions()) {
+                if (EMAIL_VERIFICATION_MESSAGE_TOPIC.equals(partition.topic()) && !own.contains(partition)) {
+                    elsewhere.add(partition);
+                }
+            }
+        }
+        return elsewhere;
+    }
+}
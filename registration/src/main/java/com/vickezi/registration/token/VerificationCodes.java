@@ -0,0 +1,214 @@
+package com.vickezi.registration.token;
+
+import com.vickezi.registration.exception.InvalidTokenException;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Issues and redeems short opaque verification codes, the alternative to signed tokens selected with
+ * {@code registration.token.mode=code}.
+ * <p>
+ * A code is 22 base64url characters: the expiry time in epoch seconds followed by 96 random bits. It carries
+ * nothing but a reference, so the email and message ID it was issued for are kept here and redeeming it is a single
+ * lookup, with no signature to check. Each code is bound to the message ID of its link: it only redeems together
+ * with that ID, and only once. As with {@link ConsumedTokens}, a redeemed code remembers the delivery that redeemed
+ * it, so a redelivery of that record after its transaction failed is let through again.
+ * <p>
+ * Codes are held in an {@link ExpiryRing}, as {@link ConsumedTokens} holds token IDs. The expiry written in the code
+ * names its bucket, so an expired code is rejected without a lookup. The table is local to the instance: a code only
+ * redeems on the instance that issued it, as with a key generated at startup.
+ */
+public final class VerificationCodes {
+    private static final int RANDOM_BYTES = 12;
+    private static final int CODE_BYTES = Integer.BYTES + RANDOM_BYTES;
+    private static final int CODE_LENGTH = (CODE_BYTES * 4 + 2) / 3;
+    private static final int STRIPES = 16;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    /** Marks a code redeemed without a delivery, which no redelivery matches. */
+    private static final String UNKNOWN_DELIVERY = "";
+
+    private final SecureRandom random = new SecureRandom();
+    private final Clock clock;
+    private final ExpiryRing<Segment> ring;
+
+    /**
+     * @param maxTtl the longest lifetime of a code
+     * @param bucketWidth the range of expiry times sharing a bucket; codes are dropped at most this long after expiry
+     * @param clock the clock expiry is compared to
+     */
+    public VerificationCodes(Duration maxTtl, Duration bucketWidth, Clock clock) {
+        this.clock = Objects.requireNonNull(clock, "clock");
+        this.ring = new ExpiryRing<>(maxTtl, bucketWidth, STRIPES, Segment::new);
+    }
+
+    /**
+     * Issues a code valid from now for the given time.
+     *
+     * @param messageId the message ID of the link the code is sent in
+     * @param email the email the code confirms
+     * @param ttl how long the code stays valid, at most the lifetime this store was sized for
+     * @return the code
+     */
+    public String issue(String messageId, String email, Duration ttl) {
+        Objects.requireNonNull(messageId, "messageId");
+        Objects.requireNonNull(email, "email");
+        if (ttl.getSeconds() > ring.maxLifetimeSeconds()) {
+            throw new IllegalArgumentException("Code lifetime exceeds the configured maximum");
+        }
+        Instant issuedAt = clock.instant().truncatedTo(ChronoUnit.SECONDS);
+        long expiresAt = issuedAt.plus(ttl).getEpochSecond();
+        Pending pending = new Pending(messageId, email, issuedAt.getEpochSecond(), null);
+        byte[] code = new byte[CODE_BYTES];
+        ByteBuffer buffer = ByteBuffer.wrap(code);
+        Key key;
+        do {
+            random.nextBytes(code);
+            buffer.putInt(0, (int) expiresAt);
+            key = Key.of(buffer);
+        } while (!segment(expiresAt, key).add(ring.bucket(expiresAt), key, pending));
+        return ENCODER.encodeToString(code);
+    }
+
+    /**
+     * Redeems a code without a delivery to recognise again.
+     *
+     * @see #redeem(String, String, String)
+     */
+    public TokenClaims redeem(String code, String messageId) {
+        return redeem(code, messageId, null);
+    }
+
+    /**
+     * Redeems a code, which cannot be redeemed again by another delivery unless {@link #release released}.
+     *
+     * @param code the code from the link
+     * @param messageId the message ID from the same link
+     * @param delivery identifies the record the code arrived in, the same on every redelivery of that record; null
+     *                 if unknown
+     * @return the claims the code stood for: the code as ID, the email as subject, its issue and expiry times
+     * @throws InvalidTokenException if the code is malformed, unknown, expired, redeemed by another delivery or was
+     *                               issued for another message ID
+     */
+    public TokenClaims redeem(String code, String messageId, String delivery) {
+        if (code == null || code.length() != CODE_LENGTH) {
+            throw new InvalidTokenException("Malformed verification code");
+        }
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(DECODER.decode(code));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidTokenException("Malformed verification code");
+        }
+        long expiresAt = Integer.toUnsignedLong(buffer.getInt(0));
+        if (clock.instant().getEpochSecond() >= expiresAt) {
+            throw new InvalidTokenException("Verification code expired");
+        }
+        Key key = Key.of(buffer);
+        Pending pending = segment(expiresAt, key).redeem(ring.bucket(expiresAt), key, messageId, delivery);
+        return new TokenClaims(code, pending.email(), Instant.ofEpochSecond(pending.issuedAt()),
+                Instant.ofEpochSecond(expiresAt));
+    }
+
+    /**
+     * Makes a redeemed code redeemable again, after the confirmation it was redeemed for failed.
+     *
+     * @param claims the claims {@link #redeem} returned
+     * @param messageId the message ID it was redeemed with
+     */
+    public void release(TokenClaims claims, String messageId) {
+        long expiresAt = claims.expiresAt().getEpochSecond();
+        Key key = Key.of(ByteBuffer.wrap(DECODER.decode(claims.id())));
+        segment(expiresAt, key).put(ring.bucket(expiresAt), key,
+                new Pending(messageId, claims.subject(), claims.issuedAt().getEpochSecond(), null));
+    }
+
+    /**
+     * @return the number of codes held, including expired ones not yet dropped
+     */
+    public int size() {
+        return ring.size();
+    }
+
+    private Segment segment(long expiresAt, Key key) {
+        return ring.segment(ring.bucket(expiresAt), key.low());
+    }
+
+    /**
+     * The binary form of a code, so an expiry altered within the same bucket does not match.
+     */
+    private record Key(int expiresAt, long high, int low) {
+        static Key of(ByteBuffer code) {
+            return new Key(code.getInt(0), code.getLong(Integer.BYTES), code.getInt(Integer.BYTES + Long.BYTES));
+        }
+    }
+
+    /**
+     * A code and what it was issued for.
+     *
+     * @param redeemedBy the delivery that redeemed the code, {@link #UNKNOWN_DELIVERY} if redeemed without one, or
+     *                   null if not redeemed
+     */
+    private record Pending(String messageId, String email, long issuedAt, String redeemedBy) {
+        Pending redeemedBy(String delivery) {
+            return new Pending(messageId, email, issuedAt, delivery);
+        }
+    }
+
+    /**
+     * The codes of one stripe of one bucket of expiry times.
+     */
+    private static final class Segment extends ExpiryRing.Segment {
+        private Map<Key, Pending> codes = new HashMap<>();
+
+        synchronized boolean add(long bucket, Key key, Pending pending) {
+            if (!enter(bucket)) {
+                // The bucket has been reused for later codes, so this one has expired
+                return true;
+            }
+            return codes.putIfAbsent(key, pending) == null;
+        }
+
+        synchronized void put(long bucket, Key key, Pending pending) {
+            if (enter(bucket)) {
+                codes.put(key, pending);
+            }
+        }
+
+        synchronized Pending redeem(long bucket, Key key, String messageId, String delivery) {
+            Pending pending = holds(bucket) ? codes.get(key) : null;
+            if (pending == null) {
+                throw new InvalidTokenException("Unknown verification code");
+            }
+            if (!pending.messageId().equals(messageId)) {
+                throw new InvalidTokenException("Verification code issued for another message");
+            }
+            if (pending.redeemedBy() == null) {
+                codes.put(key, pending.redeemedBy(delivery == null ? UNKNOWN_DELIVERY : delivery));
+            } else if (pending.redeemedBy().equals(UNKNOWN_DELIVERY) || !pending.redeemedBy().equals(delivery)) {
+                throw new InvalidTokenException("Verification code already used");
+            }
+            return pending;
+        }
+
+        @Override
+        synchronized int size() {
+            return codes.size();
+        }
+
+        @Override
+        protected void reset() {
+            // A fresh map, so the memory of a busy period is given back
+            codes = new HashMap<>();
+        }
+    }
+}
@@ -0,0 +1,5 @@
+CREATE TABLE IF NOT EXISTS registered_users (
+    id           UUID PRIMARY KEY,
+    email        VARCHAR(320) NOT NULL UNIQUE,
+    confirmed_at TIMESTAMPTZ  NOT NULL
+);
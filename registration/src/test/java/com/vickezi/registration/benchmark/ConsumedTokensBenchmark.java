@@ -0,0 +1,76 @@
+package com.vickezi.registration.benchmark;
+
+import com.vickezi.registration.token.ConsumedTokens;
+import com.vickezi.registration.token.TokenClaims;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost of the replay check of {@link ConsumedTokens} with a million tokens already held: consuming new tokens, and
+ * rejecting replays of held ones, from one thread and from four as the listener threads do.
+ * <p>
+ * Run {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsumedTokensBenchmark {
+    private static final Duration TTL = Duration.ofMinutes(30);
+    private static final int HELD = 1_000_000;
+
+    private final AtomicLong nextId = new AtomicLong(HELD);
+    private ConsumedTokens tokens;
+    private TokenClaims[] held;
+    private Instant expiresAt;
+
+    @Setup
+    public void setUp() {
+        Instant now = Instant.now();
+        expiresAt = now.plus(TTL);
+        tokens = new ConsumedTokens(TTL, Duration.ofMinutes(1), Clock.systemUTC());
+        held = new TokenClaims[HELD];
+        for (int i = 0; i < HELD; i++) {
+            held[i] = claims(i);
+            tokens.consume(held[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean consume() {
+        return tokens.consume(claims(nextId.getAndIncrement()));
+    }
+
+    @Benchmark
+    public boolean replay() {
+        return tokens.consume(held[(int) (nextId.getAndIncrement() % HELD)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean consumeShared() {
+        return tokens.consume(claims(nextId.getAndIncrement()));
+    }
+
+    private TokenClaims claims(long id) {
+        return new TokenClaims(HexFormat.of().toHexDigits(id * 0x9e3779b97f4a7c15L), "john.doe@university.edu",
+                expiresAt.minus(TTL), expiresAt);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ConsumedTokensBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,99 @@
+package com.vickezi.registration.benchmark;
+
+import com.vickezi.registration.token.TokenAlgorithm;
+import com.vickezi.registration.token.TokenEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records per second of registration consumers on platform and virtual threads.
+ * <p>
+ * Each consumer handles its share of {@value #RECORDS} records one at a time, as a listener container does: it signs
+ * a token, then blocks for a simulated send and offset commit round trip. {@code platform} starts one platform thread
+ * per consumer, as the containers do by default; {@code pooled} runs the consumers on the ten threads the former
+ * {@code kafkaConsumerTaskExecutor} allowed; {@code virtual} starts one virtual thread per consumer, as
+ * {@code registration.listener.threads=virtual} does.
+ * <p>
+ * Heap allocation per record comes from the GC profiler added in {@link #main(String[])}. Platform thread stacks
+ * live outside the heap; compare them with {@code -XX:NativeMemoryTracking=summary} on the forked JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListenerThreadsBenchmark {
+    static final int RECORDS = 1024;
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+    @Param({"platform", "pooled", "virtual"})
+    public String threads;
+
+    @Param({"3", "12", "64"})
+    public int consumers;
+
+    private ExecutorService executor;
+    private TokenEngine engine;
+
+    @Setup
+    public void setUp() {
+        executor = switch (threads) {
+            case "platform" -> Executors.newThreadPerTaskExecutor(Thread.ofPlatform().name("consumer-", 0).factory());
+            case "pooled" -> Executors.newFixedThreadPool(10);
+            case "virtual" -> Executors.newVirtualThreadPerTaskExecutor();
+            default -> throw new IllegalArgumentException(threads);
+        };
+        engine = TokenEngine.generate(TokenAlgorithm.ES256, Clock.systemUTC());
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public int consume() throws ExecutionException, InterruptedException {
+        List<Future<Integer>> running = new ArrayList<>(consumers);
+        for (int consumer = 0; consumer < consumers; consumer++) {
+            int share = RECORDS / consumers + (consumer < RECORDS % consumers ? 1 : 0);
+            running.add(executor.submit(() -> handle(share)));
+        }
+        int signed = 0;
+        for (Future<Integer> consumer : running) {
+            signed += consumer.get();
+        }
+        return signed;
+    }
+
+    private int handle(int records) {
+        int length = 0;
+        for (int i = 0; i < records; i++) {
+            length += engine.issue("john.doe" + i + "@university.edu", Duration.ofMinutes(30)).length();
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+        }
+        return length;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ListenerThreadsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,91 @@
+package com.vickezi.registration.benchmark;
+
+import com.vickezi.registration.queue.ProcessedMessageLedger;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Per-record cost of the idempotent listener mode's ledger with a million messages already held: checking a new
+ * message and recording it, as every first delivery does, and checking a redelivered one, from one thread and from
+ * four as the listener threads do.
+ * <p>
+ * The end-to-end trade-off against the transactional record mode is measured by
+ * {@link RegistrationThroughputHarness}, run once with {@code --registration.listener.mode=idempotent} and once with
+ * {@code --registration.listener.mode=record}.
+ * <p>
+ * Run {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessedMessageLedgerBenchmark {
+    private static final String TOPIC = "email_registration_topic:";
+    private static final int HELD = 1_000_000;
+
+    private final AtomicLong nextId = new AtomicLong(HELD);
+    private Path directory;
+    private ProcessedMessageLedger ledger;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ledger-benchmark");
+        ledger = new ProcessedMessageLedger(directory, Duration.ofMinutes(30), Clock.systemUTC());
+        for (int i = 0; i < HELD; i++) {
+            ledger.markProcessed(key(i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ledger.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean firstDelivery() {
+        String key = key(nextId.getAndIncrement());
+        boolean processed = ledger.isProcessed(key);
+        ledger.markProcessed(key);
+        return processed;
+    }
+
+    @Benchmark
+    public boolean redelivery() {
+        return ledger.isProcessed(key(nextId.getAndIncrement() % HELD));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean firstDeliveryShared() {
+        return firstDelivery();
+    }
+
+    private static String key(long id) {
+        return TOPIC + Long.toHexString(id * 0x9e3779b97f4a7c15L);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProcessedMessageLedgerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
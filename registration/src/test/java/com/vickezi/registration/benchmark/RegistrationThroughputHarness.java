@@ -0,0 +1,255 @@
+package com.vickezi.registration.benchmark;
+
+import com.vickezi.globals.codec.BinaryEventDeserializer;
+import com.vickezi.globals.codec.BinaryEventSerializer;
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+import com.vickezi.registration.RegistrationApplication;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.vickezi.globals.util.Constants.*;
+
+/**
+ * End-to-end throughput of the registration listeners against an in-process KRaft broker: from an
+ * {@link EmailRegistrationEvent} sent to {@code user_email_registered_event} to its {@link RegistrationMessage} read,
+ * committed, from {@code user_registration_confirmation}.
+ * <p>
+ * Run {@link #main(String[])} from the test classpath. The harness is sized with system properties:
+ * <pre>
+ * -Dharness.records=100000      records measured
+ * -Dharness.warmup=10000        records sent first and left out of the results
+ * -Dharness.partitions=6        partitions of every topic
+ * -Dharness.timeout=5m          how long to wait for the confirmations of one phase
+ * -Dharness.report=target/registration-harness.json
+ * </pre>
+ * Program arguments are Spring properties of the registration application, such as
+ * {@code --registration.listener.mode=batch} or {@code idempotent}, {@code --spring.kafka.listener.concurrency=6},
+ * {@code --spring.kafka.consumer.max-poll-records=500} or {@code --spring.kafka.producer.properties.linger.ms=5}.
+ * The report holds these settings with the records per second and the latency percentiles, as JSON.
+ */
+public final class RegistrationThroughputHarness {
+    private static final String EMAIL_DOMAIN = "@harness.example.com";
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(100);
+    /** The settings written to the report alongside the results. */
+    private static final List<String> REPORTED_SETTINGS = List.of(
+            "registration.listener.mode",
+            "registration.listener.threads",
+            "registration.ledger.ttl",
+            "spring.kafka.listener.concurrency",
+            "spring.kafka.consumer.max-poll-records",
+            "spring.kafka.producer.transaction-id-prefix",
+            "spring.kafka.producer.properties.linger.ms",
+            "spring.kafka.producer.properties.batch.size");
+
+    private RegistrationThroughputHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int records = Integer.getInteger("harness.records", 100_000);
+        int warmup = Integer.getInteger("harness.warmup", 10_000);
+        int partitions = Integer.getInteger("harness.partitions", 6);
+        Duration timeout = Duration.parse("PT" + System.getProperty("harness.timeout", "5m").toUpperCase());
+        Path report = Path.of(System.getProperty("harness.report", "target/registration-harness.json"));
+
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, partitions,
+                USER_EMAIL_REGISTERED_EVENT_TOPIC, USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC,
+                EMAIL_VERIFICATION_MESSAGE_TOPIC, DEAD_LETTER_TOPIC);
+        // A single broker has to hold the transaction and offset logs on its own
+        broker.brokerProperties(Map.of(
+                "transaction.state.log.replication.factor", "1",
+                "transaction.state.log.min.isr", "1",
+                "offsets.topic.replication.factor", "1"));
+        broker.afterPropertiesSet();
+        try {
+            // System properties override application.properties and are overridden by the program arguments
+            System.setProperty("spring.kafka.bootstrap-servers", broker.getBrokersAsString());
+            System.setProperty("spring.sql.init.mode", "never");
+            System.setProperty("server.port", "0");
+            // A fresh ledger and status stores, so nothing of an earlier run is skipped or restored
+            System.setProperty("registration.ledger.path", Files.createTempDirectory("registration-ledger").toString());
+            System.setProperty("spring.kafka.streams.state-dir",
+                    Files.createTempDirectory("registration-streams").toString());
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(RegistrationApplication.class)
+                    .run(args);
+                 KafkaProducer<String, Object> producer = producer(broker.getBrokersAsString());
+                 KafkaConsumer<String, Object> confirmations = confirmations(broker.getBrokersAsString(),
+                         partitions)) {
+                Phase warm = drive("warmup", warmup, producer, confirmations, timeout);
+                System.out.printf("Warm-up: %s%n", warm.summary());
+                Phase measured = drive("measured", records, producer, confirmations, timeout);
+                System.out.printf("Measured: %s%n", measured.summary());
+                writeReport(report, settings(context.getEnvironment(), partitions), measured);
+                System.out.printf("Report written to %s%n", report.toAbsolutePath());
+            }
+        } finally {
+            broker.destroy();
+        }
+    }
+
+    /**
+     * Sends the registrations of one phase from a separate thread and waits for their confirmations.
+     */
+    private static Phase drive(String phase, int count, KafkaProducer<String, Object> producer,
+                               KafkaConsumer<String, Object> confirmations, Duration timeout)
+            throws InterruptedException {
+        String prefix = phase + "-";
+        AtomicLongArray sentAt = new AtomicLongArray(count);
+        long[] latencies = new long[count];
+        long start = System.nanoTime();
+        Thread sender = Thread.ofPlatform().name("harness-sender").start(() -> {
+            for (int i = 0; i < count; i++) {
+                String email = prefix + i + EMAIL_DOMAIN;
+                sentAt.set(i, System.nanoTime());
+                producer.send(new ProducerRecord<>(USER_EMAIL_REGISTERED_EVENT_TOPIC, email,
+                        new EmailRegistrationEvent(email)));
+            }
+            producer.flush();
+        });
+
+        int received = 0;
+        long deadline = start + timeout.toNanos();
+        while (received < count && System.nanoTime() < deadline) {
+            for (ConsumerRecord<String, Object> record : confirmations.poll(POLL_TIMEOUT)) {
+                long now = System.nanoTime();
+                if (!(record.value() instanceof RegistrationMessage message) || !message.email().startsWith(prefix)) {
+                    continue;
+                }
+                int index = Integer.parseInt(message.email(), prefix.length(),
+                        message.email().length() - EMAIL_DOMAIN.length(), 10);
+                // Redelivered confirmations keep the latency of the first
+                if (latencies[index] == 0) {
+                    latencies[index] = Math.max(1, now - sentAt.get(index));
+                    received++;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        sender.join();
+        if (received < count) {
+            System.out.printf("%s: only %d of %d confirmations within %s%n", phase, received, count, timeout);
+        }
+        long[] observed = Arrays.stream(latencies).filter(latency -> latency > 0).sorted().toArray();
+        return new Phase(count, received, elapsed, observed);
+    }
+
+    private static KafkaProducer<String, Object> producer(String bootstrapServers) {
+        return new KafkaProducer<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, BinaryEventSerializer.class,
+                ProducerConfig.LINGER_MS_CONFIG, 1));
+    }
+
+    /**
+     * Reads the committed confirmations from the end of the topic, outside any consumer group.
+     */
+    private static KafkaConsumer<String, Object> confirmations(String bootstrapServers, int partitions) {
+        KafkaConsumer<String, Object> consumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, BinaryEventDeserializer.class,
+                ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed",
+                ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false,
+                "spring.json.trusted.packages", "com.vickezi.globals.model"));
+        List<TopicPartition> assigned = IntStream.range(0, partitions)
+                .mapToObj(partition -> new TopicPartition(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC, partition))
+                .toList();
+        consumer.assign(assigned);
+        consumer.seekToEnd(assigned);
+        // Resolves the end offsets now, before anything is sent
+        assigned.forEach(consumer::position);
+        return consumer;
+    }
+
+    private static Map<String, Object> settings(Environment environment, int partitions) {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("partitions", partitions);
+        for (String name : REPORTED_SETTINGS) {
+            settings.put(name, environment.getProperty(name));
+        }
+        return settings;
+    }
+
+    private static void writeReport(Path report, Map<String, Object> settings, Phase measured) throws IOException {
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("records", measured.sent());
+        results.put("confirmed", measured.confirmed());
+        results.put("seconds", measured.elapsedNanos() / 1e9);
+        results.put("recordsPerSecond", measured.recordsPerSecond());
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("p50", measured.percentileMillis(0.50));
+        latency.put("p90", measured.percentileMillis(0.90));
+        latency.put("p99", measured.percentileMillis(0.99));
+        latency.put("p999", measured.percentileMillis(0.999));
+        latency.put("max", measured.percentileMillis(1.0));
+        results.put("latencyMillis", latency);
+        String json = "{\"settings\":" + toJson(settings) + ",\"results\":" + toJson(results) + "}\n";
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        Files.writeString(report, json);
+    }
+
+    /**
+     * Writes the maps of the report, whose values are numbers, strings, nulls or maps of those.
+     */
+    private static String toJson(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return map.entrySet().stream()
+                    .map(entry -> toJson(String.valueOf(entry.getKey())) + ":" + toJson(entry.getValue()))
+                    .collect(Collectors.joining(",", "{", "}"));
+        }
+        if (value instanceof String string) {
+            return '"' + string.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * The outcome of one phase, with the observed latencies in nanoseconds, sorted.
+     */
+    private record Phase(int sent, int confirmed, long elapsedNanos, long[] latencies) {
+        double recordsPerSecond() {
+            return confirmed * 1e9 / elapsedNanos;
+        }
+
+        /** Null if nothing was confirmed. */
+        Double percentileMillis(double percentile) {
+            if (latencies.length == 0) {
+                return null;
+            }
+            int index = (int) Math.ceil(percentile * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+
+        String summary() {
+            return String.format("%d of %d confirmed, %.0f records/s, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                    confirmed, sent, recordsPerSecond(), percentileMillis(0.50), percentileMillis(0.99),
+                    percentileMillis(1.0));
+        }
+    }
+}
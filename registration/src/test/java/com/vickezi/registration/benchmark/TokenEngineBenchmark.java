@@ -0,0 +1,69 @@
+package com.vickezi.registration.benchmark;
+
+import com.vickezi.registration.token.TokenAlgorithm;
+import com.vickezi.registration.token.TokenClaims;
+import com.vickezi.registration.token.TokenEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign and verify throughput of {@link TokenEngine} per algorithm, from one thread and from four sharing the engine
+ * as the listener threads do.
+ * <p>
+ * Run {@link #main(String[])} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenEngineBenchmark {
+    @Param({"ES256", "EdDSA", "HS256"})
+    public TokenAlgorithm algorithm;
+
+    private TokenEngine engine;
+    private TokenClaims claims;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        engine = TokenEngine.generate(algorithm, Clock.systemUTC());
+        token = engine.issue("john.doe@university.edu", Duration.ofMinutes(30));
+        claims = engine.verify(token);
+    }
+
+    @Benchmark
+    public String sign() {
+        return engine.sign(claims);
+    }
+
+    @Benchmark
+    public TokenClaims verify() {
+        return engine.verify(token);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String signShared() {
+        return engine.sign(claims);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TokenClaims verifyShared() {
+        return engine.verify(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TokenEngineBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
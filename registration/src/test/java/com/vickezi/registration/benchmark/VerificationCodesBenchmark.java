@@ -0,0 +1,124 @@
+package com.vickezi.registration.benchmark;
+
+import com.vickezi.globals.codec.BinaryEventSerializer;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+import com.vickezi.registration.token.ConsumedTokens;
+import com.vickezi.registration.token.TokenAlgorithm;
+import com.vickezi.registration.token.TokenClaims;
+import com.vickezi.registration.token.TokenEngine;
+import com.vickezi.registration.token.TokenMode;
+import com.vickezi.registration.token.VerificationCodes;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.vickezi.globals.util.Constants.EMAIL_VERIFICATION_MESSAGE_TOPIC;
+import static com.vickezi.globals.util.Constants.USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC;
+
+/**
+ * Cost of issuing and of checking a verification link per {@link TokenMode}: an ES256 token verified and checked
+ * against {@link ConsumedTokens}, or a code redeemed from {@link VerificationCodes} holding a million codes. Checks
+ * release what they consumed, so each iteration sees the same state.
+ * <p>
+ * Run {@link #main(String[])} from the test classpath; it first prints the size of a link's token and of the
+ * records carrying it in each mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerificationCodesBenchmark {
+    private static final Duration TTL = Duration.ofMinutes(30);
+    private static final String EMAIL = "john.doe@university.edu";
+    private static final int HELD = 1_000_000;
+
+    private final AtomicInteger next = new AtomicInteger();
+    private TokenEngine engine;
+    private ConsumedTokens consumedTokens;
+    private String token;
+    private VerificationCodes codes;
+    private String[] messageIds;
+    private String[] held;
+
+    @Setup
+    public void setUp() {
+        engine = TokenEngine.generate(TokenAlgorithm.ES256, Clock.systemUTC());
+        consumedTokens = new ConsumedTokens(TTL, Duration.ofMinutes(1), Clock.systemUTC());
+        token = engine.issue(EMAIL, TTL);
+        codes = new VerificationCodes(TTL, Duration.ofMinutes(1), Clock.systemUTC());
+        messageIds = new String[HELD];
+        held = new String[HELD];
+        for (int i = 0; i < HELD; i++) {
+            messageIds[i] = UUID.randomUUID().toString();
+            held[i] = codes.issue(messageIds[i], EMAIL, TTL);
+        }
+    }
+
+    @Benchmark
+    public String issueJwt() {
+        return engine.issue(EMAIL, TTL);
+    }
+
+    @Benchmark
+    public TokenClaims verifyJwt() {
+        TokenClaims claims = engine.verify(token);
+        consumedTokens.consume(claims);
+        consumedTokens.release(claims);
+        return claims;
+    }
+
+    @Benchmark
+    public TokenClaims redeemCode() {
+        int i = Math.floorMod(next.getAndIncrement(), HELD);
+        TokenClaims claims = codes.redeem(held[i], messageIds[i]);
+        codes.release(claims, messageIds[i]);
+        return claims;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TokenClaims verifyJwtShared() {
+        return verifyJwt();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TokenClaims redeemCodeShared() {
+        return redeemCode();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        printPayloadSizes();
+        new Runner(new OptionsBuilder()
+                .include(VerificationCodesBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static void printPayloadSizes() {
+        String messageId = UUID.randomUUID().toString();
+        String jwt = TokenEngine.generate(TokenAlgorithm.ES256, Clock.systemUTC()).issue(EMAIL, TTL);
+        String code = new VerificationCodes(TTL, Duration.ofMinutes(1), Clock.systemUTC())
+                .issue(messageId, EMAIL, TTL);
+        try (BinaryEventSerializer serializer = new BinaryEventSerializer()) {
+            for (TokenMode mode : TokenMode.values()) {
+                String link = mode == TokenMode.CODE ? code : jwt;
+                int message = serializer.serialize(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC,
+                        new RegistrationMessage(messageId, link, "pending", EMAIL)).length;
+                int verification = serializer.serialize(EMAIL_VERIFICATION_MESSAGE_TOPIC,
+                        new EmailVerificationEvent(link, messageId)).length;
+                System.out.printf("%s: token %d chars, RegistrationMessage %d bytes, EmailVerificationEvent %d bytes%n",
+                        mode, link.length(), message, verification);
+            }
+        }
+    }
+}
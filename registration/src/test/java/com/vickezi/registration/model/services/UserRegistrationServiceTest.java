@@ -0,0 +1,75 @@
+package com.vickezi.registration.model.services;
+
+import com.vickezi.registration.model.Users;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.FetchSpec;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class UserRegistrationServiceTest {
+    private final DatabaseClient databaseClient = mock(DatabaseClient.class);
+    private final DatabaseClient.GenericExecuteSpec statement = mock(DatabaseClient.GenericExecuteSpec.class,
+            RETURNS_SELF);
+    @SuppressWarnings("unchecked")
+    private final FetchSpec<Map<String, Object>> fetch = mock(FetchSpec.class);
+    private UserRegistrationService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(databaseClient.sql(anyString())).thenReturn(statement);
+        when(statement.fetch()).thenReturn(fetch);
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(new SimpleMeterRegistry());
+        service = new UserRegistrationService(databaseClient, 100, Duration.ofMillis(20), 1_000, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    void completesOnceTheUserIsStored() throws Exception {
+        when(fetch.rowsUpdated()).thenReturn(Mono.just(1L));
+        Users user = new Users(UUID.randomUUID(), "a@example.com");
+
+        service.saveConfirmed(user).get(5, TimeUnit.SECONDS);
+
+        verify(statement).bind(0, user.getId());
+        verify(statement).bind(1, "a@example.com");
+    }
+
+    @Test
+    void failsTheUsersOfAFailedWrite() {
+        when(fetch.rowsUpdated()).thenReturn(Mono.error(new IllegalStateException("database unavailable")));
+
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> service.saveConfirmed(new Users(UUID.randomUUID(), "a@example.com")).join());
+
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+    }
+
+    @Test
+    void buildsOneRowPerUser() {
+        assertEquals("INSERT INTO registered_users (id, email, confirmed_at) VALUES ($1, $2, now()), "
+                        + "($3, $4, now()) ON CONFLICT (email) DO NOTHING",
+                UserRegistrationService.upsertSql(2));
+    }
+}
@@ -0,0 +1,152 @@
+package com.vickezi.registration.queue;
+
+import com.vickezi.globals.events.MessageProducerService;
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+import com.vickezi.registration.exception.RegistrationException;
+import com.vickezi.registration.services.RegistrationServiceHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.vickezi.globals.util.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BatchEmailRegistrationReceiverTest {
+    private final RegistrationServiceHandler registrationServiceHandler = mock(RegistrationServiceHandler.class);
+    @SuppressWarnings("unchecked")
+    private final MessageProducerService<RegistrationMessage> messageProducerService = mock(MessageProducerService.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+    private final Acknowledgment acknowledgment = mock(Acknowledgment.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private BatchEmailRegistrationReceiver receiver;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(registry);
+        receiver = new BatchEmailRegistrationReceiver(registrationServiceHandler, messageProducerService,
+                kafkaTemplate, new ListenerMeters(meterRegistry));
+    }
+
+    @Test
+    void publishesAWholeBatchInTheContainerTransaction() {
+        for (String email : List.of("a@example.com", "b@example.com", "c@example.com")) {
+            when(registrationServiceHandler.registerUserByEmail(email))
+                    .thenReturn(new RegistrationMessage("id-" + email, "token", "PENDING", email));
+        }
+
+        receiver.handleEmailRegistrations(List.of(
+                registration(0, "a@example.com"), registration(1, "b@example.com"), registration(2, "c@example.com")),
+                acknowledgment);
+
+        verify(kafkaTemplate, never()).executeInTransaction(any());
+        verify(messageProducerService, times(3))
+                .addMessageToQueue(eq(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC), any(RegistrationMessage.class));
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+        verify(acknowledgment).acknowledge();
+        assertEquals(3.0, records("processed"));
+        assertEquals(1L, registry.get("vickezi.registration.transaction").tag("mode", "batch").timer().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deadLettersOnlyThePoisonRecord() {
+        when(registrationServiceHandler.registerUserByEmail(any()))
+                .thenAnswer(invocation -> new RegistrationMessage("id", "token", "PENDING", invocation.getArgument(0)));
+        when(registrationServiceHandler.registerUserByEmail("bad@example.com"))
+                .thenThrow(new RegistrationException("poison"));
+
+        receiver.handleEmailRegistrations(List.of(
+                registration(0, "a@example.com"), registration(1, "bad@example.com"), registration(2, "c@example.com")),
+                acknowledgment);
+
+        ArgumentCaptor<ProducerRecord<String, Object>> deadLetter = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(deadLetter.capture());
+        assertEquals(DEAD_LETTER_TOPIC, deadLetter.getValue().topic());
+        assertEquals(new EmailRegistrationEvent("bad@example.com"), deadLetter.getValue().value());
+        verify(messageProducerService, times(2))
+                .addMessageToQueue(eq(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC), any(RegistrationMessage.class));
+        verify(acknowledgment).acknowledge();
+        assertEquals(2.0, records("processed"));
+        assertEquals(1.0, records("dead-lettered"));
+    }
+
+    @Test
+    void skipsNullValuesAndVerifiesTheRest() {
+        when(registrationServiceHandler.confirmEmailLinkIsValid(eq("token-2"), eq("id-2"), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        receiver.handleEmailVerifications(List.of(
+                new ConsumerRecord<>(EMAIL_VERIFICATION_MESSAGE_TOPIC, 0, 0, "id-1", null),
+                new ConsumerRecord<>(EMAIL_VERIFICATION_MESSAGE_TOPIC, 0, 1, "id-2",
+                        new EmailVerificationEvent("token-2", "id-2"))), acknowledgment);
+
+        verify(registrationServiceHandler).confirmEmailLinkIsValid(eq("token-2"), eq("id-2"), any());
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void waitsForTheStoredUsersAndDeadLettersTheFailedWrites() {
+        // Stored a little later, as a batched write would be
+        CompletableFuture<String> stored = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(() -> stored.complete("a@example.com"));
+        when(registrationServiceHandler.confirmEmailLinkIsValid(eq("token-1"), eq("id-1"), any())).thenReturn(stored);
+        when(registrationServiceHandler.confirmEmailLinkIsValid(eq("token-2"), eq("id-2"), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("database unavailable")));
+
+        receiver.handleEmailVerifications(List.of(
+                new ConsumerRecord<>(EMAIL_VERIFICATION_MESSAGE_TOPIC, 0, 0, "id-1",
+                        new EmailVerificationEvent("token-1", "id-1")),
+                new ConsumerRecord<>(EMAIL_VERIFICATION_MESSAGE_TOPIC, 0, 1, "id-2",
+                        new EmailVerificationEvent("token-2", "id-2"))), acknowledgment);
+
+        assertTrue(stored.isDone());
+        ArgumentCaptor<ProducerRecord<String, Object>> deadLetter = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(deadLetter.capture());
+        assertEquals(new EmailVerificationEvent("token-2", "id-2"), deadLetter.getValue().value());
+        verify(messageProducerService).addMessageToQueue(REGISTRATION_STATUS_TOPIC,
+                new RegistrationMessage("id-1", null, "completed", "a@example.com"));
+        verify(acknowledgment).acknowledge();
+        assertEquals(1.0, records("dead-lettered"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void leavesTheBatchUnacknowledgedWhenTheTransactionFails() {
+        when(registrationServiceHandler.registerUserByEmail("bad@example.com"))
+                .thenThrow(new RegistrationException("poison"));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenThrow(new IllegalStateException("fenced"));
+
+        assertThrows(IllegalStateException.class,
+                () -> receiver.handleEmailRegistrations(List.of(registration(0, "bad@example.com")), acknowledgment));
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    private static ConsumerRecord<String, EmailRegistrationEvent> registration(long offset, String email) {
+        return new ConsumerRecord<>(USER_EMAIL_REGISTERED_EVENT_TOPIC, 0, offset, email,
+                new EmailRegistrationEvent(email));
+    }
+
+    private double records(String outcome) {
+        return registry.get("vickezi.registration.records").tags("mode", "batch", "outcome", outcome).counter().count();
+    }
+}
@@ -0,0 +1,36 @@
+package com.vickezi.registration.queue;
+
+import com.vickezi.globals.model.EmailVerificationEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static com.vickezi.globals.util.Constants.EMAIL_VERIFICATION_MESSAGE_TOPIC;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DeliveriesTest {
+
+    @Test
+    void namesARecordByItsOwnPosition() {
+        ConsumerRecord<String, EmailVerificationEvent> record = new ConsumerRecord<>(
+                EMAIL_VERIFICATION_MESSAGE_TOPIC, 2, 42, "m-1", new EmailVerificationEvent("token", "m-1"));
+
+        assertEquals(EMAIL_VERIFICATION_MESSAGE_TOPIC + "-2@42", Deliveries.of(record));
+    }
+
+    @Test
+    void namesARetryByThePositionOfTheOriginalRecord() {
+        ConsumerRecord<String, EmailVerificationEvent> retry = new ConsumerRecord<>(
+                EMAIL_VERIFICATION_MESSAGE_TOPIC + "-retry-1000", 0, 7, "m-1",
+                new EmailVerificationEvent("token", "m-1"));
+        retry.headers().add(KafkaHeaders.ORIGINAL_TOPIC,
+                EMAIL_VERIFICATION_MESSAGE_TOPIC.getBytes(StandardCharsets.UTF_8));
+        retry.headers().add(KafkaHeaders.ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(2).array());
+        retry.headers().add(KafkaHeaders.ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(42).array());
+
+        assertEquals(EMAIL_VERIFICATION_MESSAGE_TOPIC + "-2@42", Deliveries.of(retry));
+    }
+}
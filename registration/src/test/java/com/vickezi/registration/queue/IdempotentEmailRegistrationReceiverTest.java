@@ -0,0 +1,157 @@
+package com.vickezi.registration.queue;
+
+import com.vickezi.globals.events.MessageProducerService;
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+import com.vickezi.registration.exception.RegistrationException;
+import com.vickezi.registration.services.RegistrationServiceHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static com.vickezi.globals.util.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class IdempotentEmailRegistrationReceiverTest {
+    private final RegistrationServiceHandler registrationServiceHandler = mock(RegistrationServiceHandler.class);
+    @SuppressWarnings("unchecked")
+    private final MessageProducerService<RegistrationMessage> messageProducerService = mock(MessageProducerService.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+    private final Acknowledgment ack = mock(Acknowledgment.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ProcessedMessageLedger ledger;
+    private IdempotentEmailRegistrationReceiver receiver;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp(@TempDir Path directory) {
+        when(registrationServiceHandler.registerUserByEmail(any()))
+                .thenAnswer(invocation -> new RegistrationMessage("id", "token", "PENDING", invocation.getArgument(0)));
+        when(registrationServiceHandler.confirmEmailLinkIsValid(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(messageProducerService.addMessageToQueue(any(), any(RegistrationMessage.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(registry);
+        ledger = new ProcessedMessageLedger(directory, Duration.ofMinutes(30), Clock.systemUTC());
+        receiver = new IdempotentEmailRegistrationReceiver(registrationServiceHandler, messageProducerService,
+                kafkaTemplate, ledger, new ListenerMeters(meterRegistry));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledger.close();
+    }
+
+    @Test
+    void registersAnEmailOnceAndSkipsItsRedelivery() {
+        receiver.handleEmailRegistration(registration(0, "a@example.com"), ack);
+        receiver.handleEmailRegistration(registration(0, "a@example.com"), ack);
+
+        verify(registrationServiceHandler, times(1)).registerUserByEmail("a@example.com");
+        verify(messageProducerService, times(1))
+                .addMessageToQueue(eq(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC), any(RegistrationMessage.class));
+        verify(ack, times(2)).acknowledge();
+        verify(kafkaTemplate, never()).executeInTransaction(any());
+        assertEquals(1.0, registry.get("vickezi.registration.records")
+                .tags("mode", "idempotent", "outcome", "processed").counter().count());
+        assertEquals(1.0, registry.get("vickezi.registration.records")
+                .tags("mode", "idempotent", "outcome", "duplicate").counter().count());
+    }
+
+    @Test
+    void registersAnEmailAgainFromALaterRecord() {
+        receiver.handleEmailRegistration(registration(0, "a@example.com"), ack);
+        receiver.handleEmailRegistration(registration(1, "a@example.com"), ack);
+
+        verify(registrationServiceHandler, times(2)).registerUserByEmail("a@example.com");
+        assertTrue(ledger.isProcessed(USER_EMAIL_REGISTERED_EVENT_TOPIC + ":0@1"));
+    }
+
+    @Test
+    void dedupesVerificationsByMessageId() {
+        receiver.handleEmailVerification(verification(0, "token-1", "m-1"), ack);
+        receiver.handleEmailVerification(verification(1, "token-1", "m-1"), ack);
+        receiver.handleEmailVerification(verification(2, "token-2", "m-2"), ack);
+
+        verify(registrationServiceHandler, times(1)).confirmEmailLinkIsValid(eq("token-1"), eq("m-1"), any());
+        verify(registrationServiceHandler, times(1)).confirmEmailLinkIsValid(eq("token-2"), eq("m-2"), any());
+        assertTrue(ledger.isProcessed(EMAIL_VERIFICATION_MESSAGE_TOPIC + ":m-1"));
+    }
+
+    @Test
+    void leavesAFailedSendUnrecordedAndUnacknowledged() {
+        when(messageProducerService.addMessageToQueue(any(), any(RegistrationMessage.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        assertThrows(CompletionException.class,
+                () -> receiver.handleEmailRegistration(registration(0, "a@example.com"), ack));
+        verify(ack, never()).acknowledge();
+        assertFalse(ledger.isProcessed(USER_EMAIL_REGISTERED_EVENT_TOPIC + ":0@0"));
+
+        // The error handler delivers it again
+        receiver.handleEmailRegistration(registration(0, "a@example.com"), ack);
+        verify(registrationServiceHandler, times(2)).registerUserByEmail("a@example.com");
+        verify(ack).acknowledge();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deadLettersWithoutATransactionAndSkipsTheRecordAfterwards() {
+        ConsumerRecord<String, EmailRegistrationEvent> record = registration(0, "bad@example.com");
+
+        receiver.deadLetter(record, new RegistrationException("poison"));
+        receiver.handleEmailRegistration(record, ack);
+
+        ArgumentCaptor<ProducerRecord<String, Object>> deadLetter = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(deadLetter.capture());
+        assertEquals(DEAD_LETTER_TOPIC, deadLetter.getValue().topic());
+        assertEquals(new EmailRegistrationEvent("bad@example.com"), deadLetter.getValue().value());
+        verify(kafkaTemplate, never()).executeInTransaction(any());
+        verify(registrationServiceHandler, never()).registerUserByEmail(any());
+        assertEquals(1.0, registry.get("vickezi.registration.records")
+                .tags("mode", "idempotent", "outcome", "dead-lettered").counter().count());
+    }
+
+    @Test
+    void acknowledgesNullEventsWithoutProcessing() {
+        receiver.handleEmailRegistration(new ConsumerRecord<>(USER_EMAIL_REGISTERED_EVENT_TOPIC, 0, 0, null, null),
+                ack);
+
+        verifyNoInteractions(registrationServiceHandler);
+        verify(ack).acknowledge();
+    }
+
+    private static ConsumerRecord<String, EmailRegistrationEvent> registration(long offset, String email) {
+        return new ConsumerRecord<>(USER_EMAIL_REGISTERED_EVENT_TOPIC, 0, offset, email,
+                new EmailRegistrationEvent(email));
+    }
+
+    private static ConsumerRecord<String, EmailVerificationEvent> verification(long offset, String token,
+                                                                                String messageId) {
+        return new ConsumerRecord<>(EMAIL_VERIFICATION_MESSAGE_TOPIC, 0, offset, messageId,
+                new EmailVerificationEvent(token, messageId));
+    }
+}
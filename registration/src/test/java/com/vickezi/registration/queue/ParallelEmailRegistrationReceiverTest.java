@@ -0,0 +1,163 @@
+package com.vickezi.registration.queue;
+
+import com.vickezi.globals.events.MessageProducerService;
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+import com.vickezi.registration.exception.InvalidTokenException;
+import com.vickezi.registration.exception.RegistrationException;
+import com.vickezi.registration.services.RegistrationServiceHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.vickezi.globals.util.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ParallelEmailRegistrationReceiverTest {
+    private static final TopicPartition PARTITION = new TopicPartition(USER_EMAIL_REGISTERED_EVENT_TOPIC, 0);
+
+    private final RegistrationServiceHandler registrationServiceHandler = mock(RegistrationServiceHandler.class);
+    @SuppressWarnings("unchecked")
+    private final MessageProducerService<RegistrationMessage> messageProducerService = mock(MessageProducerService.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+    private final Consumer<?, ?> consumer = mock(Consumer.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ParallelEmailRegistrationReceiver receiver;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(kafkaTemplate.executeInTransaction(any())).thenAnswer(invocation -> {
+            KafkaOperations.OperationsCallback<String, Object, ?> callback = invocation.getArgument(0);
+            return callback.doInOperations(kafkaTemplate);
+        });
+        when(registrationServiceHandler.registerUserByEmail(any()))
+                .thenAnswer(invocation -> new RegistrationMessage("id", "token", "PENDING", invocation.getArgument(0)));
+        ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable(any())).thenReturn(registry);
+        receiver = new ParallelEmailRegistrationReceiver(registrationServiceHandler, messageProducerService,
+                kafkaTemplate, new ListenerMeters(meterRegistry), 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        receiver.destroy();
+    }
+
+    @Test
+    void commitsThePollOnceEveryRecordIsDone() throws Exception {
+        receiver.handleEmailRegistrations(List.of(
+                registration(0, "a@example.com"), registration(1, "b@example.com"), registration(2, "c@example.com")),
+                consumer);
+
+        verify(messageProducerService, times(3))
+                .addMessageToQueue(eq(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC), any(RegistrationMessage.class));
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(3)));
+        verify(consumer, never()).seek(any(TopicPartition.class), anyLong());
+        assertEquals(3.0, registry.get("vickezi.registration.records")
+                .tags("mode", "parallel", "outcome", "processed").counter().count());
+    }
+
+    @Test
+    void holdsTheCommitAtAFailedRecordAndSkipsTheDoneOnesOnRedelivery() throws Exception {
+        when(registrationServiceHandler.registerUserByEmail("flaky@example.com"))
+                .thenThrow(new IllegalStateException("broker unavailable"))
+                .thenAnswer(invocation -> new RegistrationMessage("id", "token", "PENDING", "flaky@example.com"));
+
+        receiver.handleEmailRegistrations(List.of(
+                registration(0, "a@example.com"), registration(1, "flaky@example.com"),
+                registration(2, "c@example.com")), consumer);
+
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(1)));
+        verify(consumer).seek(PARTITION, 1L);
+
+        receiver.handleEmailRegistrations(List.of(
+                registration(1, "flaky@example.com"), registration(2, "c@example.com")), consumer);
+
+        verify(registrationServiceHandler, times(1)).registerUserByEmail("c@example.com");
+        verify(registrationServiceHandler, times(2)).registerUserByEmail("flaky@example.com");
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(3)));
+    }
+
+    @Test
+    void forgetsTheDoneRecordsOfARevokedPartition() throws Exception {
+        when(registrationServiceHandler.registerUserByEmail("flaky@example.com"))
+                .thenThrow(new IllegalStateException("broker unavailable"))
+                .thenAnswer(invocation -> new RegistrationMessage("id", "token", "PENDING", "flaky@example.com"));
+        receiver.handleEmailRegistrations(List.of(
+                registration(1, "flaky@example.com"), registration(2, "c@example.com")), consumer);
+
+        receiver.onPartitionsRevokedAfterCommit(consumer, List.of(PARTITION));
+        // Assigned back later and read again from the committed offset
+        receiver.handleEmailRegistrations(List.of(
+                registration(1, "flaky@example.com"), registration(2, "c@example.com")), consumer);
+
+        verify(registrationServiceHandler, times(2)).registerUserByEmail("c@example.com");
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(3)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deadLettersRegistrationErrorsAtOnceAndOtherErrorsAfterTheLastAttempt() throws Exception {
+        when(registrationServiceHandler.registerUserByEmail("bad@example.com"))
+                .thenThrow(new RegistrationException("poison"));
+        when(registrationServiceHandler.registerUserByEmail("down@example.com"))
+                .thenThrow(new IllegalStateException("broker unavailable"));
+        receiver.handleEmailRegistrations(List.of(
+                registration(0, "bad@example.com"), registration(1, "down@example.com")), consumer);
+        // Sought back to offset 1 after each failure
+        for (int attempt = 2; attempt <= ParallelEmailRegistrationReceiver.MAX_ATTEMPTS; attempt++) {
+            receiver.handleEmailRegistrations(List.of(registration(1, "down@example.com")), consumer);
+        }
+
+        ArgumentCaptor<ProducerRecord<String, Object>> deadLetters = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(2)).send(deadLetters.capture());
+        assertEquals(List.of(new EmailRegistrationEvent("bad@example.com"),
+                        new EmailRegistrationEvent("down@example.com")),
+                deadLetters.getAllValues().stream().map(ProducerRecord::value).toList());
+        verify(registrationServiceHandler, times(1)).registerUserByEmail("bad@example.com");
+        verify(consumer).commitSync(Map.of(PARTITION, new OffsetAndMetadata(2)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void deadLettersInvalidTokensAtOnce() throws Exception {
+        when(registrationServiceHandler.confirmEmailLinkIsValid(eq("forged"), eq("m-1"), any()))
+                .thenThrow(new InvalidTokenException("Invalid token signature"));
+
+        receiver.handleEmailVerifications(List.of(new ConsumerRecord<>(EMAIL_VERIFICATION_MESSAGE_TOPIC, 0, 0, "m-1",
+                new EmailVerificationEvent("forged", "m-1"))), consumer);
+
+        ArgumentCaptor<ProducerRecord<String, Object>> deadLetter = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(deadLetter.capture());
+        assertEquals(new EmailVerificationEvent("forged", "m-1"), deadLetter.getValue().value());
+        verify(consumer, never()).seek(any(TopicPartition.class), anyLong());
+        verify(consumer).commitSync(Map.of(new TopicPartition(EMAIL_VERIFICATION_MESSAGE_TOPIC, 0),
+                new OffsetAndMetadata(1)));
+    }
+
+    private static ConsumerRecord<String, EmailRegistrationEvent> registration(long offset, String email) {
+        return new ConsumerRecord<>(USER_EMAIL_REGISTERED_EVENT_TOPIC, 0, offset, email,
+                new EmailRegistrationEvent(email));
+    }
+}
@@ -0,0 +1,101 @@
+package com.vickezi.registration.queue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessedMessageLedgerTest {
+    private static final Instant NOW = Instant.parse("2026-10-19T10:15:30Z");
+    private static final Duration TTL = Duration.ofMinutes(30);
+
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void remembersTheProcessedMessages() {
+        try (ProcessedMessageLedger ledger = new ProcessedMessageLedger(directory, TTL, clock)) {
+            assertFalse(ledger.isProcessed("email_registration_topic:m-1"));
+
+            ledger.markProcessed("email_registration_topic:m-1");
+
+            assertTrue(ledger.isProcessed("email_registration_topic:m-1"));
+            assertFalse(ledger.isProcessed("email_registration_topic:m-2"));
+            assertFalse(ledger.isProcessed("user_email_registered_event:m-1"));
+        }
+    }
+
+    @Test
+    void forgetsMessagesOnceTheTtlHasPassed() {
+        try (ProcessedMessageLedger ledger = new ProcessedMessageLedger(directory, TTL, clock)) {
+            ledger.markProcessed("m-1");
+
+            clock.advance(TTL.minusSeconds(1));
+            assertTrue(ledger.isProcessed("m-1"));
+            // RocksDB has not compacted the entry away yet, its own timestamp expires it
+            clock.advance(Duration.ofSeconds(1));
+            assertFalse(ledger.isProcessed("m-1"));
+        }
+    }
+
+    @Test
+    void restartsTheTtlWhenMarkedAgain() {
+        try (ProcessedMessageLedger ledger = new ProcessedMessageLedger(directory, TTL, clock)) {
+            ledger.markProcessed("m-1");
+            clock.advance(TTL);
+
+            ledger.markProcessed("m-1");
+
+            assertTrue(ledger.isProcessed("m-1"));
+        }
+    }
+
+    @Test
+    void keepsTheMessagesAcrossARestart() {
+        try (ProcessedMessageLedger ledger = new ProcessedMessageLedger(directory, TTL, clock)) {
+            ledger.markProcessed("m-1");
+        }
+
+        try (ProcessedMessageLedger reopened = new ProcessedMessageLedger(directory, TTL, clock)) {
+            assertTrue(reopened.isProcessed("m-1"));
+            assertFalse(reopened.isProcessed("m-2"));
+        }
+    }
+
+    @Test
+    void rejectsATtlBelowASecond() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ProcessedMessageLedger(directory, Duration.ofMillis(500), clock));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = NOW;
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+    }
+}
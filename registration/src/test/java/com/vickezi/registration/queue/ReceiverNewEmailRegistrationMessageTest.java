@@ -6,6 +6,7 @@ import com.vickezi.globals.model.EmailVerificationEvent;
 import com.vickezi.globals.model.RegistrationMessage;
 import com.vickezi.registration.exception.RegistrationException;
 import com.vickezi.registration.services.RegistrationServiceHandler;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -19,6 +20,7 @@ import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.retry.RetryCallback;
 import org.springframework.retry.support.RetryTemplate;
 
+import static com.vickezi.globals.util.Constants.EMAIL_VERIFICATION_MESSAGE_TOPIC;
 import static com.vickezi.globals.util.Constants.USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -91,9 +93,11 @@ class ReceiverNewEmailRegistrationMessageTest {
     void handleEmailVerification_Success() {
         EmailVerificationEvent event = new EmailVerificationEvent(testToken, "test-id");
 
-        receiver.handleEmailVerification(event, acknowledgment);
+        receiver.handleEmailVerification(new ConsumerRecord<>(EMAIL_VERIFICATION_MESSAGE_TOPIC, 0, 0, "test-id", event),
+                acknowledgment);
 
-        verify(registrationServiceHandler).confirmEmailLinkIsValid(testToken);
+        verify(registrationServiceHandler).confirmEmailLinkIsValid(testToken, "test-id",
+                EMAIL_VERIFICATION_MESSAGE_TOPIC + "-0@0");
         verify(acknowledgment).acknowledge();
     }
 
@@ -127,9 +131,11 @@ class ReceiverNewEmailRegistrationMessageTest {
         EmailVerificationEvent event = new EmailVerificationEvent(testToken, "test-id");
 
         doThrow(new RuntimeException("Test error"))
-                .when(registrationServiceHandler).confirmEmailLinkIsValid(testToken);
+                .when(registrationServiceHandler).confirmEmailLinkIsValid(testToken, "test-id",
+                EMAIL_VERIFICATION_MESSAGE_TOPIC + "-0@0");
 
-        receiver.handleEmailVerification(event, acknowledgment);
+        receiver.handleEmailVerification(new ConsumerRecord<>(EMAIL_VERIFICATION_MESSAGE_TOPIC, 0, 0, "test-id", event),
+                acknowledgment);
 
         verify(messageProducerService).sendToDeadLetterTopic(any());
         verify(acknowledgment).acknowledge();
@@ -0,0 +1,76 @@
+package com.vickezi.registration.queue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class VirtualThreadContainerCustomizerTest {
+    @Test
+    void runsOneVirtualConsumerPerPartition() throws Exception {
+        ConcurrentMessageListenerContainer<Object, Object> container = container();
+
+        new VirtualThreadContainerCustomizer(12, 64).configure(container);
+
+        assertEquals(12, container.getConcurrency());
+        AsyncTaskExecutor executor = container.getContainerProperties().getListenerTaskExecutor();
+        Thread consumer = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+        assertTrue(consumer.isVirtual());
+        assertTrue(consumer.getName().startsWith(VirtualThreadContainerCustomizer.THREAD_NAME_PREFIX));
+    }
+
+    @Test
+    void capsTheConcurrency() {
+        ConcurrentMessageListenerContainer<Object, Object> container = container();
+
+        new VirtualThreadContainerCustomizer(200, 64).configure(container);
+
+        assertEquals(64, container.getConcurrency());
+        assertThrows(IllegalArgumentException.class, () -> new VirtualThreadContainerCustomizer(12, 0));
+    }
+
+    @Test
+    void runsAConsumerPerPartitionOfTheDefaultConfiguration() throws IOException {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(
+                new ResourcePropertySource(new ClassPathResource("application.properties")));
+        ConcurrentMessageListenerContainer<Object, Object> container = container();
+
+        new VirtualThreadContainerCustomizer(partitions(environment), 64).configure(container);
+
+        assertEquals(6, container.getConcurrency());
+    }
+
+    @Test
+    void keepsTheConsumersOfThePlatformModeWithoutAPartitionCount() {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(
+                new MapPropertySource("test", Map.of("spring.kafka.listener.concurrency", "3")));
+        ConcurrentMessageListenerContainer<Object, Object> container = container();
+
+        new VirtualThreadContainerCustomizer(partitions(environment), 64).configure(container);
+
+        assertEquals(3, container.getConcurrency());
+    }
+
+    private static int partitions(StandardEnvironment environment) {
+        return Integer.parseInt(environment.resolveRequiredPlaceholders(ConfigurationBeans.TOPIC_PARTITIONS));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ConcurrentMessageListenerContainer<Object, Object> container() {
+        return new ConcurrentMessageListenerContainer<>(mock(ConsumerFactory.class), new ContainerProperties("topic"));
+    }
+}
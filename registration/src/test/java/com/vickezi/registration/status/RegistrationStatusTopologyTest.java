@@ -0,0 +1,133 @@
+package com.vickezi.registration.status;
+
+import com.vickezi.globals.codec.BinaryEventSerializer;
+import com.vickezi.globals.events.Status;
+import com.vickezi.globals.model.EmailRegistrationEvent;
+import com.vickezi.globals.model.EmailVerificationEvent;
+import com.vickezi.globals.model.RegistrationMessage;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Properties;
+
+import static com.vickezi.globals.util.Constants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistrationStatusTopologyTest {
+    private static final Instant START = Instant.parse("2026-10-19T10:15:30Z");
+    private static final String EMAIL = "john.doe@university.edu";
+
+    private TopologyTestDriver driver;
+    private Map<String, TestInputTopic<String, Object>> topics;
+    private KeyValueStore<String, RegistrationStatus> byEmail;
+    private KeyValueStore<String, RegistrationStatus> byMessage;
+
+    @BeforeEach
+    void setUp() {
+        StreamsBuilder builder = new StreamsBuilder();
+        RegistrationStatusTopology.build(builder);
+        Properties config = new Properties();
+        config.put(StreamsConfig.APPLICATION_ID_CONFIG, "registration-status-test");
+        config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+        driver = new TopologyTestDriver(builder.build(), config);
+        topics = Map.of(
+                USER_EMAIL_REGISTERED_EVENT_TOPIC, input(USER_EMAIL_REGISTERED_EVENT_TOPIC),
+                USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC, input(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC),
+                REGISTRATION_STATUS_TOPIC, input(REGISTRATION_STATUS_TOPIC),
+                DEAD_LETTER_TOPIC, input(DEAD_LETTER_TOPIC));
+        byEmail = driver.getKeyValueStore(RegistrationStatusTopology.BY_EMAIL_STORE);
+        byMessage = driver.getKeyValueStore(RegistrationStatusTopology.BY_MESSAGE_STORE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        driver.close();
+    }
+
+    @Test
+    void followsARegistrationFromPendingToCompleted() {
+        send(USER_EMAIL_REGISTERED_EVENT_TOPIC, EMAIL, new EmailRegistrationEvent(EMAIL), 0);
+        assertEquals(new RegistrationStatus(EMAIL, null, Status.PENDING, START), byEmail.get(EMAIL));
+
+        send(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC, "m-1",
+                new RegistrationMessage("m-1", "token", "pending", EMAIL), 1);
+        assertEquals(new RegistrationStatus(EMAIL, "m-1", Status.IN_PROGRESS, START.plusSeconds(1)),
+                byEmail.get(EMAIL));
+        assertEquals(Status.IN_PROGRESS, byMessage.get("m-1").status());
+
+        send(REGISTRATION_STATUS_TOPIC, "m-1", StatusNotices.completed("m-1", EMAIL), 2);
+        RegistrationStatus completed = new RegistrationStatus(EMAIL, "m-1", Status.COMPLETED, START.plusSeconds(2));
+        assertEquals(completed, byEmail.get(EMAIL));
+        assertEquals(completed, byMessage.get("m-1"));
+    }
+
+    @Test
+    void marksDeadLetteredRegistrationsAsFailed() {
+        send(USER_EMAIL_REGISTERED_EVENT_TOPIC, EMAIL, new EmailRegistrationEvent(EMAIL), 0);
+
+        send(DEAD_LETTER_TOPIC, EMAIL, new EmailRegistrationEvent(EMAIL), 1);
+
+        assertEquals(Status.FAILED, byEmail.get(EMAIL).status());
+    }
+
+    @Test
+    void marksDeadLetteredVerificationsAsFailedByMessageId() {
+        send(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC, "m-1",
+                new RegistrationMessage("m-1", "token", "pending", EMAIL), 0);
+
+        send(DEAD_LETTER_TOPIC, "m-1", new EmailVerificationEvent("token", "m-1"), 1);
+
+        RegistrationStatus failed = byMessage.get("m-1");
+        assertEquals(Status.FAILED, failed.status());
+        // The email comes from the confirmation notice; the entry by email is not told of the verification
+        assertEquals(EMAIL, failed.email());
+        assertEquals(Status.IN_PROGRESS, byEmail.get(EMAIL).status());
+    }
+
+    @Test
+    void ignoresUpdatesOlderThanTheState() {
+        send(REGISTRATION_STATUS_TOPIC, "m-1", StatusNotices.completed("m-1", EMAIL), 5);
+
+        send(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC, "m-1",
+                new RegistrationMessage("m-1", "token", "pending", EMAIL), 1);
+
+        assertEquals(Status.COMPLETED, byEmail.get(EMAIL).status());
+        assertEquals(Status.COMPLETED, byMessage.get("m-1").status());
+    }
+
+    @Test
+    void startsOverOnANewRegistration() {
+        send(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC, "m-1",
+                new RegistrationMessage("m-1", "token", "pending", EMAIL), 0);
+        send(DEAD_LETTER_TOPIC, EMAIL, new RegistrationMessage("m-1", "token", "pending", EMAIL), 1);
+
+        send(USER_EMAIL_REGISTERED_EVENT_TOPIC, EMAIL, new EmailRegistrationEvent(EMAIL), 2);
+
+        assertEquals(new RegistrationStatus(EMAIL, null, Status.PENDING, START.plusSeconds(2)), byEmail.get(EMAIL));
+        assertEquals(Status.FAILED, byMessage.get("m-1").status());
+    }
+
+    @Test
+    void roundTripsTheStoredValues() {
+        RegistrationStatus status = new RegistrationStatus(EMAIL, null, Status.IN_PROGRESS, START);
+
+        assertEquals(status, RegistrationStatusSerde.read(RegistrationStatusSerde.write(status)));
+    }
+
+    private void send(String topic, String key, Object event, long secondsAfterStart) {
+        topics.get(topic).pipeInput(key, event, START.plusSeconds(secondsAfterStart));
+    }
+
+    private TestInputTopic<String, Object> input(String topic) {
+        return driver.createInputTopic(topic, new StringSerializer(), new BinaryEventSerializer());
+    }
+}
@@ -0,0 +1,197 @@
+package com.vickezi.registration.token;
+
+import com.vickezi.registration.exception.InvalidTokenException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsumedTokensTest {
+    private static final Instant NOW = Instant.parse("2026-10-19T10:15:30Z");
+    private static final Duration TTL = Duration.ofMinutes(30);
+
+    private final MutableClock clock = new MutableClock();
+    private final ConsumedTokens tokens = new ConsumedTokens(TTL, Duration.ofMinutes(1), clock);
+
+    @Test
+    void acceptsEachTokenOnce() {
+        TokenClaims claims = claims("00000000000000ff", NOW.plus(TTL));
+
+        assertTrue(tokens.consume(claims));
+        assertFalse(tokens.consume(claims));
+        assertTrue(tokens.consume(claims("0000000000000100", NOW.plus(TTL))));
+        assertEquals(2, tokens.size());
+    }
+
+    @Test
+    void acceptsAReleasedTokenAgain() {
+        TokenClaims claims = claims("0123456789abcdef", NOW.plus(TTL));
+        tokens.consume(claims);
+
+        tokens.release(claims);
+
+        assertTrue(tokens.consume(claims));
+    }
+
+    @Test
+    void acceptsARedeliveryOfTheConsumingRecordOnly() {
+        TokenClaims claims = claims("0123456789abcdef", NOW.plus(TTL));
+        TokenClaims zero = claims("0000000000000000", NOW.plus(TTL));
+
+        assertTrue(tokens.consume(claims, "topic-0@1"));
+        assertTrue(tokens.consume(zero, "topic-0@2"));
+
+        assertTrue(tokens.consume(claims, "topic-0@1"));
+        assertTrue(tokens.consume(zero, "topic-0@2"));
+        assertFalse(tokens.consume(claims, "topic-0@3"));
+        assertFalse(tokens.consume(zero, "topic-0@3"));
+        assertFalse(tokens.consume(claims));
+        assertFalse(tokens.consume(zero));
+        assertEquals(2, tokens.size());
+    }
+
+    @Test
+    void neverAcceptsATokenConsumedWithoutADeliveryAgain() {
+        TokenClaims claims = claims("0123456789abcdef", NOW.plus(TTL));
+        tokens.consume(claims);
+
+        assertFalse(tokens.consume(claims));
+        assertFalse(tokens.consume(claims, "topic-0@1"));
+    }
+
+    @Test
+    void keepsTheDeliveriesOfTokensMovedByARelease() {
+        List<TokenClaims> consumed = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            TokenClaims claims = claims(String.format("%016x", i * 31L), NOW.plus(TTL));
+            consumed.add(claims);
+            tokens.consume(claims, "topic-0@" + i);
+        }
+        for (int i = 0; i < consumed.size(); i += 3) {
+            tokens.release(consumed.get(i));
+        }
+
+        for (int i = 0; i < consumed.size(); i++) {
+            assertTrue(tokens.consume(consumed.get(i), "topic-0@" + i), "token " + i);
+            assertFalse(tokens.consume(consumed.get(i), "topic-1@" + i), "token " + i);
+        }
+    }
+
+    @Test
+    void keepsEveryOtherTokenWhenOneIsReleased() {
+        List<TokenClaims> consumed = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            TokenClaims claims = claims(String.format("%016x", i * 31L), NOW.plus(TTL));
+            consumed.add(claims);
+            assertTrue(tokens.consume(claims));
+        }
+        for (int i = 0; i < consumed.size(); i += 3) {
+            tokens.release(consumed.get(i));
+        }
+
+        for (int i = 0; i < consumed.size(); i++) {
+            assertEquals(i % 3 == 0, tokens.consume(consumed.get(i)), "token " + i);
+        }
+    }
+
+    @Test
+    void dropsTheIdsOfExpiredTokens() {
+        for (int i = 0; i < 1_000; i++) {
+            tokens.consume(claims("id-" + i, NOW.plus(TTL)));
+        }
+        clock.advance(TTL.plus(ConsumedTokens.MAX_CLOCK_SKEW).plusMinutes(2));
+
+        // 32 one-minute buckets cover the 31 minute window, so these land in the slots of the expired ones
+        for (int i = 0; i < 1_000; i++) {
+            tokens.consume(claims("new-" + i, NOW.plus(TTL).plus(Duration.ofMinutes(32))));
+        }
+
+        assertEquals(1_000, tokens.size());
+        assertFalse(tokens.consume(claims("id-1", NOW.plus(TTL))), "expired tokens are not accepted again");
+    }
+
+    @Test
+    void hashesForeignIds() {
+        assertTrue(tokens.consume(claims("f47ac10b-58cc-4372-a567-0e02b2c3d479", NOW.plus(TTL))));
+        assertFalse(tokens.consume(claims("f47ac10b-58cc-4372-a567-0e02b2c3d479", NOW.plus(TTL))));
+        assertTrue(tokens.consume(claims("not-hex-digits!!", NOW.plus(TTL))));
+        assertEquals(0xffL, ConsumedTokens.key("00000000000000ff"));
+    }
+
+    @Test
+    void ignoresTokensWithoutAnId() {
+        TokenClaims claims = claims(null, NOW.plus(TTL));
+
+        assertTrue(tokens.consume(claims));
+        assertTrue(tokens.consume(claims));
+        assertEquals(0, tokens.size());
+    }
+
+    @Test
+    void rejectsTokensOutlivingTheWindow() {
+        assertThrows(InvalidTokenException.class, () -> tokens.consume(claims("0000000000000001",
+                NOW.plus(TTL).plus(ConsumedTokens.MAX_CLOCK_SKEW).plusSeconds(1))));
+    }
+
+    @Test
+    void letsOneOfConcurrentConsumersWin() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                results.add(executor.submit(() -> {
+                    int won = 0;
+                    for (int i = 0; i < 5_000; i++) {
+                        if (tokens.consume(claims(String.format("%016x", i), NOW.plus(TTL)))) {
+                            won++;
+                        }
+                    }
+                    return won;
+                }));
+            }
+            int won = 0;
+            for (Future<Integer> result : results) {
+                won += result.get();
+            }
+            assertEquals(5_000, won);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static TokenClaims claims(String id, Instant expiresAt) {
+        return new TokenClaims(id, "john.doe@university.edu", expiresAt.minus(TTL), expiresAt);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = NOW;
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.vickezi.registration.token;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiryRingTest {
+    private final ExpiryRing<Counter> ring =
+            new ExpiryRing<>(Duration.ofMinutes(30), Duration.ofMinutes(1), 4, Counter::new);
+
+    @Test
+    void spansOneBucketMoreThanTheLifetime() {
+        long bucket = ring.bucket(1_800_000_000L);
+
+        assertSame(ring.segment(bucket, 1), ring.segment(bucket + 31, 1));
+        assertNotSame(ring.segment(bucket, 1), ring.segment(bucket + 30, 1));
+        assertNotSame(ring.segment(bucket, 1), ring.segment(bucket, 2));
+    }
+
+    @Test
+    void dropsTheEntriesOfAReusedBucket() {
+        long bucket = ring.bucket(1_800_000_000L);
+        Counter segment = ring.segment(bucket, 0);
+        assertTrue(segment.add(bucket));
+        assertTrue(segment.add(bucket));
+
+        assertTrue(segment.add(bucket + 31));
+
+        assertEquals(1, ring.size());
+        assertFalse(segment.add(bucket), "the earlier bucket has expired");
+    }
+
+    @Test
+    void rejectsBucketsNarrowerThanASecond() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ExpiryRing<>(Duration.ofMinutes(30), Duration.ofMillis(500), 4, Counter::new));
+    }
+
+    private static final class Counter extends ExpiryRing.Segment {
+        private int entries;
+
+        synchronized boolean add(long bucket) {
+            if (!enter(bucket)) {
+                return false;
+            }
+            entries++;
+            return true;
+        }
+
+        @Override
+        synchronized int size() {
+            return entries;
+        }
+
+        @Override
+        protected void reset() {
+            entries = 0;
+        }
+    }
+}
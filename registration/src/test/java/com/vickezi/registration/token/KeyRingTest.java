@@ -0,0 +1,206 @@
+package com.vickezi.registration.token;
+
+import com.vickezi.registration.exception.InvalidTokenException;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyRingTest {
+    private static final Instant NOW = Instant.parse("2026-10-19T10:15:30Z");
+    private static final Duration TTL = Duration.ofMinutes(30);
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    private final MutableClock clock = new MutableClock(NOW);
+
+    @Test
+    void signsWithTheNewestActiveKeyAndVerifiesWithAll() {
+        KeyRing.Key current = key("reg-1", TokenAlgorithm.ES256, NOW.minus(Duration.ofDays(10)));
+        KeyRing.Key next = key("reg-2", TokenAlgorithm.EdDSA, NOW.plus(Duration.ofMinutes(10)));
+        KeyRing ring = new KeyRing(() -> List.of(current, next), Duration.ZERO, clock);
+
+        assertEquals("reg-1", ring.signingKeyId());
+        String oldToken = ring.issue("john.doe@university.edu", TTL);
+        assertEquals("{\"kid\":\"reg-1\",\"typ\":\"JWT\",\"alg\":\"ES256\"}", header(oldToken));
+        // A pre-published key verifies before it signs
+        assertEquals("jane@university.edu", ring.verify(next.engine().issue("jane@university.edu", TTL)).subject());
+
+        clock.advance(Duration.ofMinutes(10));
+        ring.refresh();
+
+        assertEquals("reg-2", ring.signingKeyId());
+        assertEquals("john.doe@university.edu", ring.verify(oldToken).subject());
+    }
+
+    @Test
+    void waitsForTheActivationDelayBeforeSigningWithAnAddedKey() {
+        List<KeyRing.Key> keys = new ArrayList<>(List.of(key("reg-1", TokenAlgorithm.HS256, Instant.MIN)));
+        KeyRing ring = new KeyRing(() -> List.copyOf(keys), Duration.ofMinutes(5), clock);
+
+        keys.add(key("reg-2", TokenAlgorithm.HS256, Instant.MIN));
+        ring.refresh();
+        assertEquals("reg-1", ring.signingKeyId());
+
+        clock.advance(Duration.ofMinutes(5));
+        ring.refresh();
+        assertEquals("reg-2", ring.signingKeyId());
+    }
+
+    @Test
+    void stopsSigningWithAnExpiredCertificate() {
+        KeyRing.Key expiring = new KeyRing.Key(engine("reg-2", TokenAlgorithm.ES256), NOW.minus(Duration.ofDays(1)),
+                NOW.plus(Duration.ofMinutes(1)));
+        KeyRing ring = new KeyRing(() -> List.of(key("reg-1", TokenAlgorithm.ES256, Instant.MIN), expiring),
+                Duration.ZERO, clock);
+        assertEquals("reg-2", ring.signingKeyId());
+        String token = ring.issue("john.doe@university.edu", TTL);
+
+        clock.advance(Duration.ofMinutes(1));
+        ring.refresh();
+
+        assertEquals("reg-1", ring.signingKeyId());
+        assertEquals("john.doe@university.edu", ring.verify(token).subject());
+    }
+
+    @Test
+    void rejectsUnknownAndRemovedKeys() {
+        List<KeyRing.Key> keys = new ArrayList<>(List.of(key("reg-1", TokenAlgorithm.HS256, Instant.MIN),
+                key("reg-2", TokenAlgorithm.HS256, NOW)));
+        KeyRing ring = new KeyRing(() -> List.copyOf(keys), Duration.ZERO, clock);
+        String removedToken = keys.get(0).engine().issue("john.doe@university.edu", TTL);
+        String token = ring.issue("john.doe@university.edu", TTL);
+        String[] parts = token.split("\\.");
+
+        // Same kid, different secret
+        assertInvalid(ring, engine("reg-2", TokenAlgorithm.HS256).issue("john.doe@university.edu", TTL));
+        // Signed by reg-2, but claiming reg-1
+        assertInvalid(ring, removedToken.substring(0, removedToken.indexOf('.')) + "." + parts[1] + "." + parts[2]);
+        assertInvalid(ring, TokenEngine.generate(TokenAlgorithm.HS256, clock).issue("john.doe@university.edu", TTL));
+        assertInvalid(ring, "no-dots");
+        assertInvalid(ring, null);
+
+        keys.remove(0);
+        ring.refresh();
+        assertInvalid(ring, removedToken);
+        assertEquals("john.doe@university.edu", ring.verify(token).subject());
+    }
+
+    @Test
+    void keepsTheLastKeysWhenNoneIsActive() {
+        List<KeyRing.Key> keys = new ArrayList<>(List.of(key("reg-1", TokenAlgorithm.HS256, Instant.MIN)));
+        KeyRing ring = new KeyRing(() -> List.copyOf(keys), Duration.ZERO, clock);
+        String token = ring.issue("john.doe@university.edu", TTL);
+
+        keys.set(0, key("reg-2", TokenAlgorithm.HS256, NOW.plus(Duration.ofDays(1))));
+        assertThrows(IllegalStateException.class, ring::refresh);
+
+        assertEquals("reg-1", ring.signingKeyId());
+        assertEquals("john.doe@university.edu", ring.verify(token).subject());
+    }
+
+    @Test
+    void replicasSharingAKeystoreVerifyEachOthersTokens() throws Exception {
+        Path path = Files.createTempFile("tokens", ".p12");
+        try {
+            KeyStore store = KeyStore.getInstance("PKCS12");
+            store.load(null, PASSWORD);
+            addSecret(store, "reg-1");
+            save(store, path, Instant.parse("2026-10-19T00:00:00Z"));
+            KeyRing first = KeyRing.fromKeyStore(path, PASSWORD, Duration.ZERO, clock);
+            KeyRing second = KeyRing.fromKeyStore(path, PASSWORD, Duration.ZERO, clock);
+
+            assertEquals("reg-1", first.signingKeyId());
+            assertEquals("john.doe@university.edu",
+                    second.verify(first.issue("john.doe@university.edu", TTL)).subject());
+
+            addSecret(store, "reg-2");
+            save(store, path, Instant.parse("2026-10-19T01:00:00Z"));
+            first.refresh();
+            second.refresh();
+
+            assertEquals("reg-2", first.signingKeyId());
+            assertEquals("jane@university.edu", second.verify(first.issue("jane@university.edu", TTL)).subject());
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private KeyRing.Key key(String keyId, TokenAlgorithm algorithm, Instant notBefore) {
+        return new KeyRing.Key(engine(keyId, algorithm), notBefore, null);
+    }
+
+    private TokenEngine engine(String keyId, TokenAlgorithm algorithm) {
+        if (algorithm.isSymmetric()) {
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            return TokenEngine.withSecret(keyId, secret, clock);
+        }
+        return TokenEngine.withKeyPair(algorithm, keyId, algorithm.generateKeyPair(), clock);
+    }
+
+    private static void addSecret(KeyStore store, String alias) throws Exception {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        store.setEntry(alias, new KeyStore.SecretKeyEntry(new SecretKeySpec(secret, "HmacSHA256")),
+                new KeyStore.PasswordProtection(PASSWORD));
+    }
+
+    private static void save(KeyStore store, Path path, Instant modified) throws Exception {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            store.store(out, PASSWORD);
+        }
+        Files.setLastModifiedTime(path, FileTime.from(modified));
+    }
+
+    private static String header(String token) {
+        return new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))),
+                StandardCharsets.UTF_8);
+    }
+
+    private static void assertInvalid(KeyRing ring, String token) {
+        assertThrows(InvalidTokenException.class, () -> ring.verify(token));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.vickezi.registration.token;
+
+import com.vickezi.registration.exception.InvalidTokenException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenEngineTest {
+    private static final Instant NOW = Instant.parse("2026-10-19T10:15:30Z");
+    private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
+    @Test
+    void roundTripsEveryAlgorithm() {
+        for (TokenAlgorithm algorithm : TokenAlgorithm.values()) {
+            TokenEngine engine = TokenEngine.generate(algorithm, CLOCK);
+            String token = engine.issue("john.doe@university.edu", Duration.ofMinutes(30));
+
+            TokenClaims claims = engine.verify(token);
+
+            assertEquals("john.doe@university.edu", claims.subject(), algorithm.name());
+            assertEquals(NOW, claims.issuedAt());
+            assertEquals(NOW.plus(Duration.ofMinutes(30)), claims.expiresAt());
+            String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))),
+                    StandardCharsets.US_ASCII);
+            assertEquals("{\"typ\":\"JWT\",\"alg\":\"" + algorithm.name() + "\"}", header);
+        }
+    }
+
+    @Test
+    void givesEveryTokenItsOwnId() {
+        TokenEngine engine = TokenEngine.generate(TokenAlgorithm.HS256, CLOCK);
+
+        TokenClaims first = engine.verify(engine.issue("john.doe@university.edu", Duration.ofMinutes(30)));
+        TokenClaims second = engine.verify(engine.issue("john.doe@university.edu", Duration.ofMinutes(30)));
+
+        assertEquals(16, first.id().length());
+        assertNotEquals(first.id(), second.id());
+        TokenClaims withoutId = new TokenClaims(null, "john.doe@university.edu", NOW, NOW.plusSeconds(60));
+        assertEquals(withoutId, engine.verify(engine.sign(withoutId)));
+    }
+
+    @Test
+    void escapesSubjectsInTheClaimsTemplate() {
+        TokenEngine engine = TokenEngine.generate(TokenAlgorithm.HS256, CLOCK);
+        String subject = "a\"b\\c\nd\u0001é@example.com";
+
+        assertEquals(subject, engine.verify(engine.issue(subject, Duration.ofMinutes(1))).subject());
+    }
+
+    @Test
+    void rejectsTamperedAndForeignTokens() {
+        for (TokenAlgorithm algorithm : TokenAlgorithm.values()) {
+            TokenEngine engine = TokenEngine.generate(algorithm, CLOCK);
+            String token = engine.issue("john.doe@university.edu", Duration.ofMinutes(30));
+            String[] parts = token.split("\\.");
+            String forgedPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    "{\"sub\":\"admin@university.edu\",\"iat\":0,\"exp\":9999999999}".getBytes(StandardCharsets.UTF_8));
+
+            assertInvalid(engine, parts[0] + "." + forgedPayload + "." + parts[2]);
+            assertInvalid(engine, parts[0] + "." + parts[1] + "." + parts[2].substring(2));
+            assertInvalid(engine, parts[0] + "." + parts[1] + ".");
+            assertInvalid(engine, parts[0] + "." + parts[1]);
+            assertInvalid(engine, token + ".extra");
+            assertInvalid(engine, "not-a-token");
+            assertInvalid(engine, null);
+            assertInvalid(TokenEngine.generate(algorithm, CLOCK), token);
+        }
+    }
+
+    @Test
+    void rejectsOtherAlgorithmsAndUnsignedTokens() {
+        TokenEngine engine = TokenEngine.generate(TokenAlgorithm.ES256, CLOCK);
+        String token = engine.issue("john.doe@university.edu", Duration.ofMinutes(30));
+        String payload = token.split("\\.")[1];
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+        String none = encoder.encodeToString("{\"alg\":\"none\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.US_ASCII));
+        assertInvalid(engine, none + "." + payload + ".");
+        assertInvalid(engine, TokenEngine.generate(TokenAlgorithm.HS256, CLOCK).issue("john", Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void rejectsExpiredTokens() {
+        TokenEngine issuer = TokenEngine.withSecret(new byte[32], CLOCK);
+        String token = issuer.issue("john.doe@university.edu", Duration.ofMinutes(30));
+        TokenEngine later = TokenEngine.withSecret(new byte[32], Clock.offset(CLOCK, Duration.ofMinutes(30)));
+
+        assertEquals("john.doe@university.edu", TokenEngine.withSecret(new byte[32],
+                Clock.offset(CLOCK, Duration.ofMinutes(29))).verify(token).subject());
+        assertInvalid(later, token);
+    }
+
+    @Test
+    void rejectsUnfitKeys() {
+        assertThrows(IllegalArgumentException.class, () -> TokenEngine.withSecret(new byte[16], CLOCK));
+        assertThrows(IllegalArgumentException.class,
+                () -> TokenEngine.withKeyPair(TokenAlgorithm.HS256, TokenAlgorithm.ES256.generateKeyPair(), CLOCK));
+        assertThrows(IllegalArgumentException.class,
+                () -> TokenEngine.withKeyPair(TokenAlgorithm.EdDSA, TokenAlgorithm.ES256.generateKeyPair(), CLOCK));
+    }
+
+    @Test
+    void isSafeToShareBetweenThreads() throws Exception {
+        for (TokenAlgorithm algorithm : TokenAlgorithm.values()) {
+            TokenEngine engine = TokenEngine.generate(algorithm, CLOCK);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<?>> results = new ArrayList<>();
+                for (int thread = 0; thread < 8; thread++) {
+                    int id = thread;
+                    results.add(executor.submit(() -> {
+                        for (int i = 0; i < 200; i++) {
+                            String subject = "user-" + id + "-" + i + "@example.com";
+                            assertEquals(subject, engine.verify(engine.issue(subject, Duration.ofMinutes(5))).subject());
+                        }
+                    }));
+                }
+                for (Future<?> result : results) {
+                    result.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private static void assertInvalid(TokenEngine engine, String token) {
+        assertThrows(InvalidTokenException.class, () -> engine.verify(token), token);
+    }
+}
@@ -0,0 +1,39 @@
+package com.vickezi.registration.token;
+
+import org.apache.kafka.clients.admin.MemberAssignment;
+import org.apache.kafka.clients.admin.MemberDescription;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static com.vickezi.globals.util.Constants.EMAIL_VERIFICATION_MESSAGE_TOPIC;
+import static com.vickezi.globals.util.Constants.USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC;
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerificationCodeInstanceCheckTest {
+    private static final TopicPartition FIRST = new TopicPartition(EMAIL_VERIFICATION_MESSAGE_TOPIC, 0);
+    private static final TopicPartition SECOND = new TopicPartition(EMAIL_VERIFICATION_MESSAGE_TOPIC, 1);
+
+    @Test
+    void findsNothingWhileThisInstanceConsumesEveryVerificationPartition() {
+        List<MemberDescription> members = List.of(member("registration-0", FIRST), member("registration-1", SECOND),
+                // The group is shared with the messaging service, which reads another topic
+                member("messaging-0", new TopicPartition(USER_REGISTRATION_CONFIRMATION_NOTICE_TOPIC, 0)));
+
+        assertTrue(VerificationCodeInstanceCheck.consumedElsewhere(members, Set.of(FIRST, SECOND)).isEmpty());
+    }
+
+    @Test
+    void findsThePartitionsOfAnotherInstance() {
+        List<MemberDescription> members = List.of(member("registration-0", FIRST), member("other-0", SECOND));
+
+        assertEquals(Set.of(SECOND), VerificationCodeInstanceCheck.consumedElsewhere(members, Set.of(FIRST)));
+    }
+
+    private static MemberDescription member(String clientId, TopicPartition... partitions) {
+        return new MemberDescription(clientId + "-member", clientId, "/10.0.0.1",
+                new MemberAssignment(Set.of(partitions)));
+    }
+}
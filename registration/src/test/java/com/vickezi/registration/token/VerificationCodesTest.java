@@ -0,0 +1,139 @@
+package com.vickezi.registration.token;
+
+import com.vickezi.registration.exception.InvalidTokenException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerificationCodesTest {
+    private static final Instant NOW = Instant.parse("2026-10-19T10:15:30Z");
+    private static final Duration TTL = Duration.ofMinutes(30);
+    private static final String EMAIL = "john.doe@university.edu";
+
+    private final MutableClock clock = new MutableClock();
+    private final VerificationCodes codes = new VerificationCodes(TTL, Duration.ofMinutes(1), clock);
+
+    @Test
+    void redeemsACodeForItsMessageId() {
+        String code = codes.issue("m-1", EMAIL, TTL);
+
+        TokenClaims claims = codes.redeem(code, "m-1");
+
+        assertEquals(22, code.length());
+        assertEquals(new TokenClaims(code, EMAIL, NOW, NOW.plus(TTL)), claims);
+    }
+
+    @Test
+    void redeemsEachCodeOnce() {
+        String code = codes.issue("m-1", EMAIL, TTL);
+        codes.redeem(code, "m-1");
+
+        assertThrows(InvalidTokenException.class, () -> codes.redeem(code, "m-1"));
+    }
+
+    @Test
+    void redeemsAReleasedCodeAgain() {
+        String code = codes.issue("m-1", EMAIL, TTL);
+        TokenClaims claims = codes.redeem(code, "m-1");
+
+        codes.release(claims, "m-1");
+
+        assertEquals(claims, codes.redeem(code, "m-1"));
+    }
+
+    @Test
+    void redeemsACodeAgainOnlyForTheRecordThatRedeemedIt() {
+        String code = codes.issue("m-1", EMAIL, TTL);
+        TokenClaims claims = codes.redeem(code, "m-1", "topic-0@1");
+
+        assertEquals(claims, codes.redeem(code, "m-1", "topic-0@1"));
+        assertThrows(InvalidTokenException.class, () -> codes.redeem(code, "m-1", "topic-0@2"));
+        assertThrows(InvalidTokenException.class, () -> codes.redeem(code, "m-1"));
+        assertThrows(InvalidTokenException.class, () -> codes.redeem(code, "m-2", "topic-0@1"));
+    }
+
+    @Test
+    void keepsACodeRedeemedWithAnotherMessageId() {
+        String code = codes.issue("m-1", EMAIL, TTL);
+
+        assertThrows(InvalidTokenException.class, () -> codes.redeem(code, "m-2"));
+        assertThrows(InvalidTokenException.class, () -> codes.redeem(code, null));
+
+        assertEquals(EMAIL, codes.redeem(code, "m-1").subject());
+    }
+
+    @Test
+    void rejectsExpiredCodes() {
+        String code = codes.issue("m-1", EMAIL, TTL);
+
+        clock.advance(TTL);
+
+        assertThrows(InvalidTokenException.class, () -> codes.redeem(code, "m-1"));
+    }
+
+    @Test
+    void rejectsCodesWithAnAlteredExpiry() {
+        String code = codes.issue("m-1", EMAIL, TTL);
+        byte[] altered = Base64.getUrlDecoder().decode(code);
+        altered[3]++;
+
+        String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(altered);
+
+        assertThrows(InvalidTokenException.class, () -> codes.redeem(forged, "m-1"));
+    }
+
+    @Test
+    void rejectsMalformedCodes() {
+        assertThrows(InvalidTokenException.class, () -> codes.redeem(null, "m-1"));
+        assertThrows(InvalidTokenException.class, () -> codes.redeem("short", "m-1"));
+        assertThrows(InvalidTokenException.class, () -> codes.redeem("!!!!!!!!!!!!!!!!!!!!!!", "m-1"));
+    }
+
+    @Test
+    void dropsCodesOnceTheirBucketIsReused() {
+        codes.issue("m-1", EMAIL, TTL);
+        codes.issue("m-2", EMAIL, TTL);
+
+        // 31 one-minute buckets cover a 30 minute lifetime, so the codes issued now land in the same buckets
+        clock.advance(TTL.plusMinutes(1));
+        for (int i = 0; i < 1_000; i++) {
+            codes.issue("m-" + (3 + i), EMAIL, TTL);
+        }
+
+        assertEquals(1_000, codes.size());
+    }
+
+    @Test
+    void refusesLifetimesLongerThanConfigured() {
+        assertThrows(IllegalArgumentException.class, () -> codes.issue("m-1", EMAIL, TTL.plusSeconds(1)));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = NOW;
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+    }
+}